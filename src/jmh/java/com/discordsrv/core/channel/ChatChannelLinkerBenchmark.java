@@ -0,0 +1,204 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLinker;
+import com.discordsrv.core.api.channel.ChatMessage;
+import com.discordsrv.core.test.mocker.Mocker;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.TextChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measures a round trip through a {@link ChatChannelLinker}, from a {@link Chat} to its {@link TextChannel} and back.
+ * <p>
+ * The {@code map} linker is backed by plain maps, so it measures the cost of the callback style API itself; the
+ * {@code routing} linker is a {@link RoutingChatChannelLinker} to compare against this baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatChannelLinkerBenchmark {
+
+    /** The number of linked chats. */
+    @Param({"1000"})
+    public int chats;
+
+    /** The kind of linker to measure. */
+    @Param({"map", "routing"})
+    public String kind;
+
+    private Chat[] linked;
+    private ChatChannelLinker linker;
+    private int next;
+    private FutureCallback<Chat> chatCallback;
+    private FutureCallback<TextChannel> channelCallback;
+
+    /**
+     * Links every chat to a channel of its own.
+     *
+     * @param blackhole
+     *         The sink for the results.
+     */
+    @Setup(Level.Trial)
+    public void setup(final Blackhole blackhole) {
+        Map<String, TextChannel> channels = new HashMap<>();
+        Map<Long, Chat> chatsByChannel = new HashMap<>();
+        Map<String, Chat> chatsById = new HashMap<>();
+        linked = new Chat[chats];
+        for (int i = 0; i < chats; i++) {
+            long id = 100_000_000_000_000_000L + i;
+            TextChannel channel = Mocker.getInstance(TextChannel.class,
+                (proxy, method, args) -> "getIdLong".equals(method.getName()) ? id : null);
+            linked[i] = new MapChat("chat-" + i);
+            channels.put("chat-" + i, channel);
+            chatsByChannel.put(id, linked[i]);
+            chatsById.put("chat-" + i, linked[i]);
+        }
+        linker = "routing".equals(kind) ? new RoutingChatChannelLinker(new ChannelRoutingTable(chatsById, channels))
+            : new MapChatChannelLinker(channels, chatsByChannel);
+        chatCallback = new FutureCallback<Chat>() {
+            @Override
+            public void onSuccess(final @Nullable Chat result) {
+                blackhole.consume(result);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                blackhole.consume(t);
+            }
+        };
+        channelCallback = new FutureCallback<TextChannel>() {
+            @Override
+            public void onSuccess(final @Nullable TextChannel result) {
+                if (result == null) {
+                    blackhole.consume(result);
+                } else {
+                    linker.translate(result, chatCallback);
+                }
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                blackhole.consume(t);
+            }
+        };
+    }
+
+    /**
+     * Translates a chat to its channel and back again.
+     */
+    @Benchmark
+    public void roundTrip() {
+        next = next + 1 == chats ? 0 : next + 1;
+        linker.translate(linked[next], channelCallback);
+    }
+
+    /**
+     * A chat identified by a fixed name.
+     */
+    static final class MapChat implements Chat {
+
+        private final String name;
+
+        /**
+         * Creates a chat with the given name.
+         *
+         * @param name
+         *         The name, which doubles as the identifier.
+         */
+        MapChat(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void getUniqueIdentifier(final @Nonnull Consumer<String> callback) {
+            callback.accept(name);
+        }
+
+        @Override
+        public void getName(final @Nonnull Consumer<CharSequence> callback) {
+            callback.accept(name);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void sendMessage(final @Nonnull ChatMessage message,
+                                final @Nonnull FutureCallback<Void> resultCallback) {
+            resultCallback.onSuccess(null);
+        }
+
+    }
+
+    /**
+     * A linker backed by a pair of maps.
+     */
+    static final class MapChatChannelLinker implements ChatChannelLinker {
+
+        private final Map<String, TextChannel> channels;
+        private final Map<Long, Chat> chats;
+
+        /**
+         * Creates a linker over the given maps.
+         *
+         * @param channels
+         *         The channels, by chat identifier.
+         * @param chats
+         *         The chats, by channel id.
+         */
+        MapChatChannelLinker(final Map<String, TextChannel> channels, final Map<Long, Chat> chats) {
+            this.channels = channels;
+            this.chats = chats;
+        }
+
+        @Override
+        public void translate(final @Nonnull Chat chat, final @Nonnull FutureCallback<TextChannel> callback) {
+            chat.getUniqueIdentifier(identifier -> callback.onSuccess(channels.get(identifier)));
+        }
+
+        @Override
+        public void translate(final @Nonnull TextChannel channel, final @Nonnull FutureCallback<Chat> callback) {
+            callback.onSuccess(chats.get(channel.getIdLong()));
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.unit.UniquelyIdentifiable;
+import com.google.common.util.concurrent.FutureCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link UniquelyIdentifiable#hasMatchingIdentifier(UniquelyIdentifiable, FutureCallback)} against the same
+ * comparison composed from {@link Stages}.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation rate of both paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdentifierComparisonBenchmark {
+
+    private final String identifier = "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8";
+    private final UniquelyIdentifiable<String> first = callback -> callback.accept(identifier);
+    private final UniquelyIdentifiable<String> second = callback -> callback.accept(identifier);
+
+    /**
+     * Compares through the default method, which requests both identifiers at once.
+     *
+     * @param blackhole
+     *         The sink for the result.
+     */
+    @Benchmark
+    public void defaultMethod(final Blackhole blackhole) {
+        first.hasMatchingIdentifier(second, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(final @Nullable Boolean result) {
+                blackhole.consume(result);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                blackhole.consume(t);
+            }
+        });
+    }
+
+    /**
+     * Compares by combining the stages of both identifiers.
+     *
+     * @return matching Whether the identifiers match.
+     */
+    @Benchmark
+    public boolean stages() {
+        return Stages.identifier(first).thenCombine(Stages.identifier(second), Objects::equals)
+            .toCompletableFuture().join();
+    }
+
+}
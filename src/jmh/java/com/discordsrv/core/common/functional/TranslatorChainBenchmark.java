@@ -0,0 +1,115 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.functional.Translator;
+import com.google.common.util.concurrent.FutureCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a chain of three synchronous translators composed with {@link Translators} against the same chain written
+ * as hand-nested callbacks.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation rate of both paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslatorChainBenchmark {
+
+    private final String original = "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8";
+    private final Translator<String, Integer> length = (value, callback) -> callback.onSuccess(value.length());
+    private final Translator<Integer, Long> square = (value, callback) -> callback.onSuccess((long) value * value);
+    private final Translator<Long, String> render = (value, callback) -> callback.onSuccess(Long.toHexString(value));
+    private final Translator<String, String> fused = Translators.andThen(Translators.andThen(
+        Translators.of(String::length), Translators.of((Integer value) -> (long) value * value)),
+        Translators.of(Long::toHexString));
+
+    /**
+     * Translates through callbacks nested by hand, one per stage.
+     *
+     * @param blackhole
+     *         The sink for the result.
+     */
+    @Benchmark
+    public void nested(final Blackhole blackhole) {
+        FutureCallback<String> sink = sink(blackhole);
+        length.translate(original, new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(final @Nullable Integer first) {
+                square.translate(first, new FutureCallback<Long>() {
+                    @Override
+                    public void onSuccess(final @Nullable Long second) {
+                        render.translate(second, sink);
+                    }
+
+                    @Override
+                    public void onFailure(final Throwable t) {
+                        sink.onFailure(t);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                sink.onFailure(t);
+            }
+        });
+    }
+
+    /**
+     * Translates through the composed chain, whose stages are fused into a single function.
+     *
+     * @param blackhole
+     *         The sink for the result.
+     */
+    @Benchmark
+    public void fused(final Blackhole blackhole) {
+        fused.translate(original, sink(blackhole));
+    }
+
+    private static FutureCallback<String> sink(final Blackhole blackhole) {
+        return new FutureCallback<String>() {
+            @Override
+            public void onSuccess(final @Nullable String result) {
+                blackhole.consume(result);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                blackhole.consume(t);
+            }
+        };
+    }
+
+}
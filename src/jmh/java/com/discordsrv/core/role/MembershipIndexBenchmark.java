@@ -0,0 +1,175 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link MembershipIndex} against plain sets of player identifiers, which is what
+ * {@link com.discordsrv.core.api.role.Team#getMembers(java.util.function.Consumer)} hands out.
+ * <p>
+ * The first team holds every player and its role nine in ten of them, the next ten teams hold a fifth of the players
+ * each, and every other team holds a few hundred.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MembershipIndexBenchmark {
+
+    /** The number of players. */
+    @Param({"100000"})
+    public int players;
+
+    /** The number of teams. */
+    @Param({"500"})
+    public int teams;
+
+    private final Random random = new Random(0);
+    private MembershipIndex index;
+    private String[] identifiers;
+    private List<Set<String>> sets;
+    private Set<String> roleSet;
+
+    /**
+     * Fills the index and the sets with the same memberships.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        index = new MembershipIndex();
+        identifiers = new String[players];
+        for (int i = 0; i < players; i++) {
+            identifiers[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+            index.playerId(identifiers[i]);
+        }
+        sets = new ArrayList<>(teams);
+        for (int team = 0; team < teams; team++) {
+            int size = team == 0 ? players : team <= 10 ? players / 5 : 300;
+            Set<String> members = new HashSet<>();
+            while (members.size() < size) {
+                members.add(identifiers[team == 0 ? members.size() : random.nextInt(players)]);
+            }
+            sets.add(members);
+            index.setMembers("team-" + team, members);
+        }
+        roleSet = new HashSet<>();
+        for (int i = 0; i < players; i++) {
+            if (i % 10 != 0) {
+                roleSet.add(identifiers[i]);
+            }
+        }
+        index.setMembers("role-0", roleSet);
+    }
+
+    /**
+     * Finds the members of the largest team who do not hold its role, through the index.
+     *
+     * @return missing The ids of the members.
+     */
+    @Benchmark
+    public CompressedBitSet differenceIndex() {
+        return index.difference("team-0", "role-0");
+    }
+
+    /**
+     * Finds the members of the largest team who do not hold its role, through sets.
+     *
+     * @return missing The identifiers of the members.
+     */
+    @Benchmark
+    public Set<String> differenceSets() {
+        Set<String> missing = new HashSet<>(sets.get(0));
+        missing.removeAll(roleSet);
+        return missing;
+    }
+
+    /**
+     * Counts the members of a mid-sized team, through the index.
+     *
+     * @return count The number of members.
+     */
+    @Benchmark
+    public int iterateIndex() {
+        int[] count = new int[1];
+        index.members("team-1").forEach(id -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Counts the members of a mid-sized team, through a copy of its set.
+     *
+     * @param blackhole
+     *         The sink for the members.
+     */
+    @Benchmark
+    public void iterateSets(final Blackhole blackhole) {
+        for (String member : new ArrayList<>(sets.get(1))) {
+            blackhole.consume(member);
+        }
+    }
+
+    /**
+     * Finds the teams of a random player, through the index.
+     *
+     * @return teams The ids of the teams.
+     */
+    @Benchmark
+    public CompressedBitSet teamsOfIndex() {
+        return index.groupsOf(identifiers[random.nextInt(players)]);
+    }
+
+    /**
+     * Finds the teams of a random player, through sets.
+     *
+     * @return teams The indices of the teams.
+     */
+    @Benchmark
+    public List<Integer> teamsOfSets() {
+        String player = identifiers[random.nextInt(players)];
+        List<Integer> result = new ArrayList<>();
+        for (int team = 0; team < sets.size(); team++) {
+            if (sets.get(team).contains(player)) {
+                result.add(team);
+            }
+        }
+        return result;
+    }
+
+}
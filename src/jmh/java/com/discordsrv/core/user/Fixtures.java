@@ -0,0 +1,178 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.api.user.PlayerUserLookup;
+import com.discordsrv.core.test.user.CallbackMinecraftPlayer;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.User;
+import org.apache.commons.collections4.bidimap.DualTreeBidiMap;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Players, users and lookups shared by the User benchmarks.
+ * <p>
+ * Unlike the {@link com.discordsrv.core.test.mocker.Mocker}, every instance is created ahead of time and users only
+ * answer {@link User#getIdLong()}, so that the benchmarks measure the linkers rather than their fixtures.
+ */
+final class Fixtures implements PlayerUserLookup {
+
+    private final MinecraftPlayer[] players;
+    private final User[] users;
+    private final Map<String, MinecraftPlayer> playersByIdentifier = new HashMap<>();
+
+    /**
+     * Creates the players and users, where player {@code i} is meant to be linked to user {@code i + 1}.
+     *
+     * @param count
+     *         The number of players and users.
+     */
+    Fixtures(final int count) {
+        this(count, true);
+    }
+
+    /**
+     * Creates the players and users, where player {@code i} is meant to be linked to user {@code i + 1}.
+     *
+     * @param count
+     *         The number of players and users.
+     * @param direct
+     *         Whether the players are {@link DirectlyIdentifiable}, rather than only answering through callbacks.
+     */
+    Fixtures(final int count, final boolean direct) {
+        Random random = new Random(0);
+        players = new MinecraftPlayer[count];
+        users = new User[count];
+        for (int i = 0; i < count; i++) {
+            TestMinecraftPlayer player = new TestMinecraftPlayer("Test",
+                new UUID(random.nextLong(), random.nextLong()).toString());
+            players[i] = direct ? player : new CallbackMinecraftPlayer(player);
+            users[i] = newUser(i + 1);
+            playersByIdentifier.put(identifierOf(players[i]), players[i]);
+        }
+    }
+
+    /**
+     * Creates an empty storage of the given kind.
+     *
+     * @param kind
+     *         The simple name of the storage class, or {@code DualTreeBidiMap}.
+     *
+     * @return storage The empty storage.
+     *
+     * @throws IOException
+     *         If a snapshot could not be written.
+     */
+    static LinkStorage storage(final String kind) throws IOException {
+        switch (kind) {
+            case "DualTreeBidiMap":
+                return new BidiMapLinkStorage(new DualTreeBidiMap<>());
+            case "PrimitiveLinkIndex":
+                return new PrimitiveLinkIndex();
+            case "StripedLinkStorage":
+                return new StripedLinkStorage();
+            case "SnapshotLinkStorage":
+                Path file = Files.createTempFile("links", ".snapshot");
+                file.toFile().deleteOnExit();
+                LinkSnapshot.write(file, new PrimitiveLinkIndex());
+                return new SnapshotLinkStorage(LinkSnapshot.open(file));
+            default:
+                throw new IllegalArgumentException("Unknown storage: " + kind);
+        }
+    }
+
+    /**
+     * Creates a user which only answers its snowflake.
+     *
+     * @param id
+     *         The snowflake of the user.
+     *
+     * @return user The user.
+     */
+    static User newUser(final long id) {
+        Long boxed = id;
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class[]{User.class},
+            (proxy, method, args) -> {
+                if ("getIdLong".equals(method.getName())) {
+                    return boxed;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    /**
+     * Fetches a player.
+     *
+     * @param index
+     *         The index of the player.
+     *
+     * @return player The player.
+     */
+    MinecraftPlayer player(final int index) {
+        return players[index];
+    }
+
+    /**
+     * Fetches a user.
+     *
+     * @param index
+     *         The index of the user, which is one less than its snowflake.
+     *
+     * @return user The user.
+     */
+    User user(final int index) {
+        return users[index];
+    }
+
+    /**
+     * Fetches the identifier of a player.
+     *
+     * @param player
+     *         The player.
+     *
+     * @return identifier The identifier of the player.
+     */
+    static String identifierOf(final MinecraftPlayer player) {
+        String[] identifier = new String[1];
+        player.getUniqueIdentifier(ident -> identifier[0] = ident);
+        return identifier[0];
+    }
+
+    @Override
+    public void lookup(final long id, final @Nonnull FutureCallback<User> callback) {
+        callback.onSuccess(users[(int) id - 1]);
+    }
+
+    @Override
+    public void lookup(final @Nonnull String id, final @Nonnull FutureCallback<MinecraftPlayer> callback) {
+        callback.onSuccess(playersByIdentifier.get(id));
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes before the first lookup can be served from a snapshot of the link table, compared to
+ * rebuilding the table on the heap from the same snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LinkSnapshotStartupBenchmark {
+
+    /** The number of links within the snapshot. */
+    @Param({"2000000"})
+    public int links;
+
+    private Path file;
+    private String player;
+
+    /**
+     * Writes the snapshot to start from.
+     *
+     * @throws IOException
+     *         If the snapshot could not be written.
+     */
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        Random random = new Random(0);
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        for (int i = 0; i < links; i++) {
+            player = new UUID(random.nextLong(), random.nextLong()).toString();
+            index.put(player, i + 1);
+        }
+        file = Files.createTempFile("links", ".snapshot");
+        LinkSnapshot.write(file, index);
+    }
+
+    /**
+     * Deletes the snapshot.
+     *
+     * @throws IOException
+     *         If the snapshot could not be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Maps the snapshot and serves the first lookup from it.
+     *
+     * @return user The user of the looked up player.
+     *
+     * @throws IOException
+     *         If the snapshot could not be mapped.
+     */
+    @Benchmark
+    public long mapped() throws IOException {
+        return new SnapshotLinkStorage(LinkSnapshot.open(file)).getUser(player);
+    }
+
+    /**
+     * Rebuilds the link table on the heap from the snapshot and serves the first lookup from it.
+     *
+     * @return user The user of the looked up player.
+     *
+     * @throws IOException
+     *         If the snapshot could not be mapped.
+     */
+    @Benchmark
+    public long rebuilt() throws IOException {
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        LinkSnapshot.open(file).forEach(index::put);
+        return index.getUser(player);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures pushes and removals of the thread safe {@link LinkStorage} implementations under contention.
+ * <p>
+ * Vary the number of threads with {@code -t} to see how each storage scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LinkStorageContentionBenchmark {
+
+    /** The storage to modify. */
+    @Param({"PrimitiveLinkIndex", "SnapshotLinkStorage", "StripedLinkStorage"})
+    public String storage;
+
+    /** The number of players and users to pick from. */
+    @Param({"100000"})
+    public int links;
+
+    private LinkStorage target;
+    private String[] players;
+
+    /**
+     * The random source of a single thread.
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+    }
+
+    /**
+     * Links half of the players to start from.
+     *
+     * @throws IOException
+     *         If the storage could not be created.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Fixtures fixtures = new Fixtures(links);
+        target = Fixtures.storage(storage);
+        players = new String[links];
+        for (int i = 0; i < links; i++) {
+            players[i] = Fixtures.identifierOf(fixtures.player(i));
+            if (i % 2 == 0) {
+                target.put(players[i], i + 1);
+            }
+        }
+    }
+
+    /**
+     * Links a random player to a random user.
+     *
+     * @param picker
+     *         The random source of this thread.
+     */
+    @Benchmark
+    public void push(final Picker picker) {
+        target.put(players[picker.random.nextInt(links)], 1 + picker.random.nextInt(links));
+    }
+
+    /**
+     * Unlinks a random player and a random user.
+     *
+     * @param picker
+     *         The random source of this thread.
+     */
+    @Benchmark
+    public void remove(final Picker picker) {
+        target.remove(players[picker.random.nextInt(links)], 1 + picker.random.nextInt(links));
+    }
+
+    /**
+     * Looks up a random player nine times out of ten, and otherwise links it to a random user.
+     *
+     * @param picker
+     *         The random source of this thread.
+     *
+     * @return user The user of the player, or {@link LinkStorage#NO_USER} after linking.
+     */
+    @Benchmark
+    public long mixed(final Picker picker) {
+        String player = players[picker.random.nextInt(links)];
+        if (picker.random.nextInt(10) != 0) {
+            return target.getUser(player);
+        }
+        target.put(player, 1 + picker.random.nextInt(links));
+        return LinkStorage.NO_USER;
+    }
+
+    /**
+     * Looks up the user of a random player.
+     *
+     * @param picker
+     *         The random source of this thread.
+     *
+     * @return user The user of the player.
+     */
+    @Benchmark
+    public long getUser(final Picker picker) {
+        return target.getUser(players[picker.random.nextInt(links)]);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.apache.commons.collections4.bidimap.DualTreeBidiMap;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap retained per link by the {@link LinkStorage} implementations.
+ * <p>
+ * A single iteration fills a single storage, whose retained size is reported through the {@code bytesPerLink} auxiliary
+ * counter. Auxiliary counters are summed over iterations and forks, so neither should be raised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, time = 1, timeUnit = TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LinkStorageFootprintBenchmark {
+
+    /** The storage implementation to measure. */
+    @Param({"DualTreeBidiMap", "PrimitiveLinkIndex"})
+    public String storage;
+
+    /** The number of links to store. */
+    @Param({"100000", "2000000"})
+    public int links;
+
+    private String[] players;
+
+    /**
+     * The auxiliary counters of this benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        /** The heap retained per link, in bytes. */
+        public long bytesPerLink;
+
+        /**
+         * Resets the counters between iterations.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerLink = 0;
+        }
+
+    }
+
+    /**
+     * Generates the player identifiers ahead of time so that they are not counted as part of the storage.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(0);
+        players = new String[links];
+        for (int i = 0; i < links; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+    }
+
+    /**
+     * Fills a storage and records the heap it retains.
+     *
+     * @param footprint
+     *         The counters to report the footprint through.
+     *
+     * @return storage The filled storage, so that it stays reachable until the measurement is done.
+     */
+    @Benchmark
+    public LinkStorage fill(final Footprint footprint) {
+        long before = usedHeap();
+        LinkStorage result = "PrimitiveLinkIndex".equals(storage) ? new PrimitiveLinkIndex()
+            : new BidiMapLinkStorage(new DualTreeBidiMap<>());
+        for (int i = 0; i < links; i++) {
+            // Copies the identifier, as the host would hand a fresh string to the storage.
+            result.put(new String(players[i].toCharArray()), i + 1);
+        }
+        footprint.bytesPerLink = (usedHeap() - before) / links;
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
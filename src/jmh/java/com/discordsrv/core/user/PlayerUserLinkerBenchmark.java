@@ -0,0 +1,171 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the translation throughput of the {@link LocalPlayerUserLinker} in both directions, over each kind of
+ * {@link LinkStorage}.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation rate of {@link DirectlyIdentifiable} players against players
+ * which only answer through callbacks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerUserLinkerBenchmark {
+
+    /** The storage to link through. */
+    @Param({"DualTreeBidiMap", "PrimitiveLinkIndex", "SnapshotLinkStorage", "StripedLinkStorage"})
+    public String storage;
+
+    /** The number of links. */
+    @Param({"100000"})
+    public int links;
+
+    /** Whether players are {@code direct}ly identifiable or only answer through {@code callback}s. */
+    @Param({"direct", "callback"})
+    public String players;
+
+    private Fixtures fixtures;
+    private LocalPlayerUserLinker linker;
+
+    /**
+     * The position of a single thread within the links, along with its callbacks.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+        private FutureCallback<User> userCallback;
+        private FutureCallback<MinecraftPlayer> playerCallback;
+
+        /**
+         * Creates the callbacks, which hand their results to the blackhole.
+         *
+         * @param blackhole
+         *         The sink for the results.
+         */
+        @Setup(Level.Trial)
+        public void setup(final Blackhole blackhole) {
+            userCallback = new Sink<>(blackhole);
+            playerCallback = new Sink<>(blackhole);
+        }
+
+        private int next(final int bound) {
+            next = next + 1 == bound ? 0 : next + 1;
+            return next;
+        }
+
+    }
+
+    /**
+     * Links every player to its user.
+     *
+     * @throws IOException
+     *         If the storage could not be created.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fixtures = new Fixtures(links, "direct".equals(players));
+        linker = new LocalPlayerUserLinker(Fixtures.storage(storage), fixtures);
+        for (int i = 0; i < links; i++) {
+            linker.push(fixtures.player(i), fixtures.user(i));
+        }
+    }
+
+    /**
+     * Translates a player to its user.
+     *
+     * @param cursor
+     *         The position of this thread.
+     */
+    @Benchmark
+    public void playerToUser(final Cursor cursor) {
+        linker.translate(fixtures.player(cursor.next(links)), cursor.userCallback);
+    }
+
+    /**
+     * Translates a user to its player.
+     *
+     * @param cursor
+     *         The position of this thread.
+     */
+    @Benchmark
+    public void userToPlayer(final Cursor cursor) {
+        linker.translate(fixtures.user(cursor.next(links)), cursor.playerCallback);
+    }
+
+    /**
+     * A callback which hands its result to a blackhole.
+     *
+     * @param <T>
+     *         The type of the result.
+     */
+    static final class Sink<T> implements FutureCallback<T> {
+
+        private final Blackhole blackhole;
+
+        /**
+         * Creates a callback for the given blackhole.
+         *
+         * @param blackhole
+         *         The sink for the results.
+         */
+        Sink(final Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onSuccess(final @Nullable T result) {
+            blackhole.consume(result);
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            blackhole.consume(t);
+        }
+
+    }
+
+}
@@ -53,4 +53,29 @@ public interface AuthenticationStore<T, R> {
      */
     void remove(T first, R last);
 
+    /**
+     * Creates a store which passes every pair to this store, then to the given store.
+     *
+     * @param next
+     *         The store to pass every pair to after this one.
+     *
+     * @return store The composed store.
+     */
+    default AuthenticationStore<T, R> andThen(AuthenticationStore<? super T, ? super R> next) {
+        AuthenticationStore<T, R> self = this;
+        return new AuthenticationStore<T, R>() {
+            @Override
+            public void push(final T first, final R last) {
+                self.push(first, last);
+                next.push(first, last);
+            }
+
+            @Override
+            public void remove(final T first, final R last) {
+                self.remove(first, last);
+                next.remove(first, last);
+            }
+        };
+    }
+
 }
@@ -23,6 +23,8 @@ import net.dv8tion.jda.core.entities.TextChannel;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * ChatChannelLinker type, for looking up {@link Chat} instances and {@link TextChannel} instances.
@@ -55,4 +57,36 @@ public interface ChatChannelLookup {
      */
     void lookup(String id, FutureCallback<Chat> callback);
 
+    /**
+     * Performs a lookup for {@link TextChannel} instances given many ids at once. Ids which are not found are absent
+     * from the resulting map.
+     * <p>
+     * By default this performs a lookup for each id on its own; backends which can fetch many at once should override
+     * this method.
+     *
+     * @param ids
+     *         The IDs of the channels.
+     * @param callback
+     *         The callback to invoke when every channel is (not) found.
+     */
+    default void lookupChannels(Collection<Long> ids, FutureCallback<Map<Long, TextChannel>> callback) {
+        ((Translator<Long, TextChannel>) this::lookup).translateAll(ids, callback);
+    }
+
+    /**
+     * Performs a lookup for {@link Chat} instances given many ids at once. Ids which are not found are absent from the
+     * resulting map.
+     * <p>
+     * By default this performs a lookup for each id on its own; backends which can fetch many at once should override
+     * this method.
+     *
+     * @param ids
+     *         The IDs of the chats.
+     * @param callback
+     *         The callback to invoke when every chat is (not) found.
+     */
+    default void lookupChats(Collection<String> ids, FutureCallback<Map<String, Chat>> callback) {
+        ((Translator<String, Chat>) this::lookup).translateAll(ids, callback);
+    }
+
 }
@@ -0,0 +1,47 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.api.common.functional;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * AsyncTranslator type, for translating from one thing to another through a {@link CompletionStage}.
+ * <p>
+ * This is the {@link CompletionStage} counterpart of {@link Translator}.
+ *
+ * @param <T>
+ *         The original type to translate from.
+ * @param <R>
+ *         The type of the result of the translation.
+ */
+@ThreadSafe
+@FunctionalInterface
+public interface AsyncTranslator<T, R> {
+
+    /**
+     * Convert from the original type to the target translation.
+     *
+     * @param original
+     *         The original instance to translate.
+     *
+     * @return stage The stage which completes with the translation, possibly null.
+     */
+    CompletionStage<R> translate(T original);
+
+}
@@ -19,7 +19,15 @@ package com.discordsrv.core.api.common.functional;
 
 import com.google.common.util.concurrent.FutureCallback;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Translator type, for translating from one thing to another.
@@ -43,4 +51,46 @@ public interface Translator<T, R> {
      */
     void translate(T original, FutureCallback<R> callback);
 
+    /**
+     * Converts every original instance to its target translation. Originals without a translation are absent from the
+     * resulting map. If any translation fails, only the first failure is passed to the callback.
+     * <p>
+     * By default this translates each original on its own; implementations which can translate many at once should
+     * override this method.
+     *
+     * @param originals
+     *         The original instances to translate.
+     * @param callback
+     *         The callback to invoke once every translation is (not) found.
+     */
+    default void translateAll(Collection<? extends T> originals, FutureCallback<Map<T, R>> callback) {
+        if (originals.isEmpty()) {
+            callback.onSuccess(Collections.emptyMap());
+            return;
+        }
+        Map<T, R> results = new ConcurrentHashMap<>();
+        AtomicInteger remaining = new AtomicInteger(originals.size());
+        AtomicBoolean failed = new AtomicBoolean();
+        for (T original : originals) {
+            translate(original, new FutureCallback<R>() {
+                @Override
+                public void onSuccess(final @Nullable R result) {
+                    if (result != null) {
+                        results.put(original, result);
+                    }
+                    if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                        callback.onSuccess(results);
+                    }
+                }
+
+                @Override
+                public void onFailure(final @Nonnull Throwable t) {
+                    if (failed.compareAndSet(false, true)) {
+                        callback.onFailure(t);
+                    }
+                }
+            });
+        }
+    }
+
 }
@@ -0,0 +1,75 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.api.common.unit;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * DirectlyIdentifiable type, for uniquely identifiable types which hold their identifier in memory.
+ * <p>
+ * Callers which find this type may read the identifier directly instead of passing a callback.
+ *
+ * @param <T>
+ *         The type used to identify the identifiable instance.
+ */
+@ThreadSafe
+public interface DirectlyIdentifiable<T> extends UniquelyIdentifiable<T> {
+
+    /**
+     * Fetches the identifier for this uniquely identifiable type.
+     *
+     * @return identifier The identifier.
+     */
+    T getUniqueIdentifier();
+
+    @Override
+    default void getUniqueIdentifier(Consumer<T> callback) {
+        callback.accept(getUniqueIdentifier());
+    }
+
+    /**
+     * Passes the identifier of an identifiable to an action, reading it directly if the identifiable is directly
+     * identifiable. The argument is handed to the action as is, so that an action which does not capture anything
+     * allocates nothing on the direct path.
+     *
+     * @param identifiable
+     *         The identifiable to read the identifier of.
+     * @param argument
+     *         The argument to pass to the action along with the identifier.
+     * @param action
+     *         The action to invoke once the identifier is known.
+     * @param <T>
+     *         The type used to identify the identifiable instance.
+     * @param <A>
+     *         The type of the argument.
+     */
+    static <T, A> void identify(UniquelyIdentifiable<T> identifiable, A argument,
+                                BiConsumer<? super T, ? super A> action) {
+        if (identifiable instanceof DirectlyIdentifiable) {
+            // An identifiable of T which is directly identifiable can only be directly identifiable by T.
+            @SuppressWarnings("unchecked")
+            T identifier = ((DirectlyIdentifiable<T>) identifiable).getUniqueIdentifier();
+            action.accept(identifier, argument);
+        } else {
+            identifiable.getUniqueIdentifier(identifier -> action.accept(identifier, argument));
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.api.common.unit;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * DirectlyNamed type, for named types which hold their name in memory.
+ * <p>
+ * Callers which find this type may read the name directly instead of passing a callback.
+ */
+@ThreadSafe
+public interface DirectlyNamed extends Named {
+
+    /**
+     * Fetches the name of this named instance.
+     *
+     * @return name The name.
+     */
+    CharSequence getName();
+
+    @Override
+    default void getName(Consumer<CharSequence> callback) {
+        callback.accept(getName());
+    }
+
+    /**
+     * Passes the name of a named instance to an action, reading it directly if the instance is directly named. The
+     * argument is handed to the action as is, so that an action which does not capture anything allocates nothing on
+     * the direct path.
+     *
+     * @param named
+     *         The named instance to read the name of.
+     * @param argument
+     *         The argument to pass to the action along with the name.
+     * @param action
+     *         The action to invoke once the name is known.
+     * @param <A>
+     *         The type of the argument.
+     */
+    static <A> void name(Named named, A argument, BiConsumer<? super CharSequence, ? super A> action) {
+        if (named instanceof DirectlyNamed) {
+            action.accept(((DirectlyNamed) named).getName(), argument);
+        } else {
+            named.getName(name -> action.accept(name, argument));
+        }
+    }
+
+}
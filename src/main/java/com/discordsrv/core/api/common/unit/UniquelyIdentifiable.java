@@ -21,6 +21,8 @@ import com.google.common.util.concurrent.FutureCallback;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 
 /**
@@ -41,7 +43,8 @@ public interface UniquelyIdentifiable<T> {
     void getUniqueIdentifier(Consumer<T> callback);
 
     /**
-     * Compares two uniquely identifiable types with the same identifiable parameter.
+     * Compares two uniquely identifiable types with the same identifiable parameter. Both identifiers are requested at
+     * once, so the comparison completes as soon as the slower of the two arrives.
      *
      * @param identifiable
      *         The other identifiable.
@@ -49,8 +52,20 @@ public interface UniquelyIdentifiable<T> {
      *         The callback of this comparison.
      */
     default void hasMatchingIdentifier(UniquelyIdentifiable<T> identifiable, FutureCallback<Boolean> callback) {
-        getUniqueIdentifier(thisIdentifier -> identifiable.getUniqueIdentifier(
-            otherIdentifiable -> callback.onSuccess(Objects.equals(thisIdentifier, otherIdentifiable))));
+        AtomicReferenceArray<T> identifiers = new AtomicReferenceArray<>(2);
+        AtomicInteger remaining = new AtomicInteger(2);
+        getUniqueIdentifier(thisIdentifier -> {
+            identifiers.set(0, thisIdentifier);
+            if (remaining.decrementAndGet() == 0) {
+                callback.onSuccess(Objects.equals(thisIdentifier, identifiers.get(1)));
+            }
+        });
+        identifiable.getUniqueIdentifier(otherIdentifier -> {
+            identifiers.set(1, otherIdentifier);
+            if (remaining.decrementAndGet() == 0) {
+                callback.onSuccess(Objects.equals(identifiers.get(0), otherIdentifier));
+            }
+        });
     }
 
 }
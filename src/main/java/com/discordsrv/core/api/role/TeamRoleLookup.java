@@ -24,6 +24,8 @@ import net.dv8tion.jda.core.entities.Role;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * TeamRoleLinker type, for looking up {@link Team} instances and {@link Role} instances.
@@ -56,4 +58,36 @@ public interface TeamRoleLookup {
      */
     void lookup(String id, FutureCallback<Team<MinecraftPlayer>> callback);
 
+    /**
+     * Performs a lookup for {@link Role} instances given many ids at once. Ids which are not found are absent from the
+     * resulting map.
+     * <p>
+     * By default this performs a lookup for each id on its own; backends which can fetch many at once should override
+     * this method.
+     *
+     * @param ids
+     *         The IDs of the roles.
+     * @param callback
+     *         The callback to invoke when every role is (not) found.
+     */
+    default void lookupRoles(Collection<Long> ids, FutureCallback<Map<Long, Role>> callback) {
+        ((Translator<Long, Role>) this::lookup).translateAll(ids, callback);
+    }
+
+    /**
+     * Performs a lookup for {@link Team} instances given many ids at once. Ids which are not found are absent from the
+     * resulting map.
+     * <p>
+     * By default this performs a lookup for each id on its own; backends which can fetch many at once should override
+     * this method.
+     *
+     * @param ids
+     *         The IDs of the teams.
+     * @param callback
+     *         The callback to invoke when every team is (not) found.
+     */
+    default void lookupTeams(Collection<String> ids, FutureCallback<Map<String, Team<MinecraftPlayer>>> callback) {
+        ((Translator<String, Team<MinecraftPlayer>>) this::lookup).translateAll(ids, callback);
+    }
+
 }
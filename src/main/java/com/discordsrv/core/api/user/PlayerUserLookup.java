@@ -23,6 +23,8 @@ import net.dv8tion.jda.core.entities.User;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * PlayerUserLookup type, for looking up {@link MinecraftPlayer} instances and {@link User} instances.
@@ -55,4 +57,36 @@ public interface PlayerUserLookup {
      */
     void lookup(String id, FutureCallback<MinecraftPlayer> callback);
 
+    /**
+     * Performs a lookup for {@link User} instances given many ids at once. Ids which are not found are absent from the
+     * resulting map.
+     * <p>
+     * By default this performs a lookup for each id on its own; backends which can fetch many at once should override
+     * this method.
+     *
+     * @param ids
+     *         The IDs of the users.
+     * @param callback
+     *         The callback to invoke when every user is (not) found.
+     */
+    default void lookupUsers(Collection<Long> ids, FutureCallback<Map<Long, User>> callback) {
+        ((Translator<Long, User>) this::lookup).translateAll(ids, callback);
+    }
+
+    /**
+     * Performs a lookup for {@link MinecraftPlayer} instances given many ids at once. Ids which are not found are
+     * absent from the resulting map.
+     * <p>
+     * By default this performs a lookup for each id on its own; backends which can fetch many at once should override
+     * this method.
+     *
+     * @param ids
+     *         The IDs of the players.
+     * @param callback
+     *         The callback to invoke when every player is (not) found.
+     */
+    default void lookupPlayers(Collection<String> ids, FutureCallback<Map<String, MinecraftPlayer>> callback) {
+        ((Translator<String, MinecraftPlayer>) this::lookup).translateAll(ids, callback);
+    }
+
 }
@@ -0,0 +1,124 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the failed attempts of each presenter, blocking those who fail too often within a window.
+ * <p>
+ * A presenter's count starts with their first failure and is forgotten once the window has passed since then.
+ * Forgotten counts are pruned at most once per window, so checking a presenter is a single map lookup.
+ */
+@NotThreadSafe
+final class AttemptThrottle {
+
+    private final int maximum;
+    private final long window;
+    private final Map<Object, Attempts> attempts = new HashMap<>();
+    private long pruned;
+
+    /**
+     * Creates a throttle.
+     *
+     * @param maximum
+     *         The number of failures allowed within a window.
+     * @param window
+     *         The length of the window in nanoseconds.
+     * @param now
+     *         The current time in nanoseconds.
+     */
+    AttemptThrottle(final int maximum, final long window, final long now) {
+        this.maximum = maximum;
+        this.window = window;
+        this.pruned = now;
+    }
+
+    /**
+     * Checks whether a presenter has failed too often.
+     *
+     * @param presenter
+     *         The presenter.
+     * @param now
+     *         The current time in nanoseconds.
+     *
+     * @return blocked Whether the presenter is blocked.
+     */
+    boolean isBlocked(final Object presenter, final long now) {
+        @Nullable Attempts current = attempts.get(presenter);
+        return current != null && now - current.since < window && current.failures >= maximum;
+    }
+
+    /**
+     * Records a failed attempt of a presenter.
+     *
+     * @param presenter
+     *         The presenter.
+     * @param now
+     *         The current time in nanoseconds.
+     */
+    void fail(final Object presenter, final long now) {
+        @Nullable Attempts current = attempts.get(presenter);
+        if (current == null || now - current.since >= window) {
+            current = new Attempts(now);
+            attempts.put(presenter, current);
+        }
+        current.failures++;
+        if (now - pruned >= window) {
+            attempts.values().removeIf(entry -> now - entry.since >= window);
+            pruned = now;
+        }
+    }
+
+    /**
+     * Forgets the failed attempts of a presenter.
+     *
+     * @param presenter
+     *         The presenter.
+     */
+    void clear(final Object presenter) {
+        attempts.remove(presenter);
+    }
+
+    /**
+     * Fetches the number of presenters with recent failures.
+     *
+     * @return size The number of presenters.
+     */
+    int size() {
+        return attempts.size();
+    }
+
+    /**
+     * The failures of a presenter within the current window.
+     */
+    private static final class Attempts {
+
+        private final long since;
+        private int failures;
+
+        private Attempts(final long since) {
+            this.since = since;
+        }
+
+    }
+
+}
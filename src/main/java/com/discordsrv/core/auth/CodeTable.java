@@ -0,0 +1,174 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Open-addressed table from link codes to values.
+ * <p>
+ * Codes are kept as raw longs and zero marks an empty slot, so finding a code boxes nothing and compares a single long
+ * per probe. Collisions are resolved by linear probing and removals shift the following cluster backwards, so no
+ * tombstones are ever left behind.
+ *
+ * @param <V>
+ *         The type of the values.
+ */
+@NotThreadSafe
+final class CodeTable<V> {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] codes;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    /**
+     * Creates an empty table.
+     */
+    CodeTable() {
+        allocate(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Fetches the value of a code.
+     *
+     * @param code
+     *         The code, which must not be zero.
+     *
+     * @return value The value, or null if the code is not present.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    V get(final long code) {
+        int slot = find(code);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Stores the value of a code which is not present yet.
+     *
+     * @param code
+     *         The code, which must not be zero.
+     * @param value
+     *         The value.
+     *
+     * @return added Whether the code was added, which it is not if it was already present.
+     */
+    boolean add(final long code, final V value) {
+        int i = slot(code);
+        while (codes[i] != 0) {
+            if (codes[i] == code) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        codes[i] = code;
+        values[i] = value;
+        if (++size > threshold) {
+            allocate((mask + 1) << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a code.
+     *
+     * @param code
+     *         The code.
+     *
+     * @return value The value of the code, or null if it was not present.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    V remove(final long code) {
+        int slot = find(code);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) values[slot];
+        int hole = slot;
+        int i = (hole + 1) & mask;
+        while (codes[i] != 0) {
+            int home = slot(codes[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                codes[hole] = codes[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        codes[hole] = 0;
+        values[hole] = null;
+        size--;
+        return value;
+    }
+
+    /**
+     * Fetches the number of codes within this table.
+     *
+     * @return size The number of codes.
+     */
+    int size() {
+        return size;
+    }
+
+    private int find(final long code) {
+        if (code == 0) {
+            return -1;
+        }
+        int i = slot(code);
+        while (codes[i] != 0) {
+            if (codes[i] == code) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(final long code) {
+        long h = code * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(final int capacity) {
+        long[] oldCodes = codes;
+        Object[] oldValues = values;
+        codes = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+        if (oldCodes != null) {
+            for (int j = 0; j < oldCodes.length; j++) {
+                if (oldCodes[j] != 0) {
+                    int i = slot(oldCodes[j]);
+                    while (codes[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    codes[i] = oldCodes[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+
+}
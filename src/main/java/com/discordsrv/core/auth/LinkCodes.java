@@ -0,0 +1,117 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Link codes, which are random 40 bit numbers packed into longs and shown to players as eight characters.
+ * <p>
+ * Codes are rendered in Crockford's base32, which leaves out letters that are easily confused. Parsing is forgiving:
+ * letters may be of either case, {@code I} and {@code L} are read as {@code 1}, {@code O} as {@code 0}, and dashes and
+ * spaces are skipped. Parsing allocates nothing, so a code typed by a player is checked without creating any objects.
+ */
+public final class LinkCodes {
+
+    /** The number of characters of a rendered code. */
+    public static final int LENGTH = 8;
+    /** The value returned by {@link #parse(CharSequence)} for text which is not a code. */
+    public static final long INVALID = -1;
+
+    private static final int BITS_PER_CHARACTER = 5;
+    private static final long MASK = (1L << (LENGTH * BITS_PER_CHARACTER)) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+            VALUES[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+        VALUES['I'] = 1;
+        VALUES['i'] = 1;
+        VALUES['L'] = 1;
+        VALUES['l'] = 1;
+        VALUES['O'] = 0;
+        VALUES['o'] = 0;
+    }
+
+    private LinkCodes() {
+    }
+
+    /**
+     * Draws a new code.
+     *
+     * @param random
+     *         The source of the code, which should be secure.
+     *
+     * @return code The code, which is never zero.
+     */
+    public static long next(final @Nonnull Random random) {
+        long code;
+        do {
+            code = random.nextLong() & MASK;
+        } while (code == 0);
+        return code;
+    }
+
+    /**
+     * Renders a code as text.
+     *
+     * @param code
+     *         The code.
+     *
+     * @return text The eight characters of the code.
+     */
+    public static String render(final long code) {
+        char[] text = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            text[LENGTH - 1 - i] = ALPHABET[(int) (code >>> (i * BITS_PER_CHARACTER)) & (ALPHABET.length - 1)];
+        }
+        return new String(text);
+    }
+
+    /**
+     * Parses a code from text.
+     *
+     * @param text
+     *         The text, as typed by a player.
+     *
+     * @return code The code, or {@link #INVALID} if the text is not a code.
+     */
+    public static long parse(final @Nonnull CharSequence text) {
+        long code = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            int value = c < VALUES.length ? VALUES[c] : -1;
+            if (value < 0 || ++digits > LENGTH) {
+                return INVALID;
+            }
+            code = (code << BITS_PER_CHARACTER) | value;
+        }
+        return digits == LENGTH ? code : INVALID;
+    }
+
+}
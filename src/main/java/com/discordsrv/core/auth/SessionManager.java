@@ -0,0 +1,429 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import com.discordsrv.core.api.auth.Authenticatable;
+import com.discordsrv.core.api.auth.AuthenticationStore;
+import com.discordsrv.core.api.auth.State;
+import com.discordsrv.core.api.auth.Token;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues the tokens with which players authenticate, and moves them through the authentication states.
+ * <p>
+ * {@link #begin(Authenticatable, FutureCallback)} moves a player from {@link State#UNAUTHENTICATED} to {@link
+ * State#AUTHENTICATING} and issues a token, replacing any token issued to them before. Presenting the token's code to
+ * {@link #complete(String, Object, FutureCallback)} pushes the pair to the store and moves the player to {@link
+ * State#AUTHENTICATED}. A token which is not presented in time expires and moves its player back to {@link
+ * State#UNAUTHENTICATED}. Pending sessions are kept in a {@link TimerWheel}, so expiring one costs the same however
+ * many are pending; expiry happens as part of every call, and hosts may call {@link #expire()} periodically too.
+ * The states of subjects are only set once the manager's lock is released, so host code never runs while it is held.
+ * Instead, states are set under a lock striped by subject, after checking that the session which decided the state is
+ * still the latest for its subject, so a sweep which races a new token cannot move its subject back.
+ * <p>
+ * Codes are {@link LinkCodes}, found in a table keyed by the packed code, so checking a presented code allocates
+ * nothing. Whoever presents codes is throttled: after too many unknown codes within the lifetime of a token, their
+ * attempts are refused without looking at the code at all.
+ *
+ * @param <A>
+ *         The type of authenticatable, such as a player.
+ * @param <R>
+ *         The type to authenticate as, such as a user.
+ */
+@ThreadSafe
+public class SessionManager<A extends Authenticatable<?, R>, R> {
+
+    /** The default number of minutes a token stays valid. */
+    public static final long DEFAULT_TTL_MINUTES = 5;
+    /** The default number of unknown codes a presenter may try within the lifetime of a token. */
+    public static final int DEFAULT_MAXIMUM_ATTEMPTS = 5;
+    /** The number of ticks of the timer wheel within the lifetime of a token. */
+    static final int TICKS_PER_TTL = 64;
+    /** The number of locks the states of subjects are set under. */
+    private static final int STRIPES = 64;
+
+    private final AuthenticationStore<? super A, ? super R> store;
+    private final long ttl;
+    private final Ticker ticker;
+    private final Random random;
+    @GuardedBy("this")
+    private final TimerWheel<Session<A>> wheel;
+    @GuardedBy("this")
+    private final CodeTable<Session<A>> sessions = new CodeTable<>();
+    @GuardedBy("this")
+    private final Map<Object, Session<A>> subjects = new HashMap<>();
+    @GuardedBy("this")
+    private final AttemptThrottle throttle;
+    private final Object[] stripes = new Object[STRIPES];
+
+    /**
+     * Creates a manager whose tokens stay valid for the default time.
+     *
+     * @param store
+     *         The store to push authenticated pairs to.
+     */
+    public SessionManager(final @Nonnull AuthenticationStore<? super A, ? super R> store) {
+        this(store, DEFAULT_TTL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates a manager.
+     *
+     * @param store
+     *         The store to push authenticated pairs to.
+     * @param ttl
+     *         The time a token stays valid.
+     * @param unit
+     *         The unit of the time.
+     */
+    public SessionManager(final @Nonnull AuthenticationStore<? super A, ? super R> store, final long ttl,
+                          final @Nonnull TimeUnit unit) {
+        this(store, ttl, unit, Ticker.systemTicker(), new SecureRandom(), DEFAULT_MAXIMUM_ATTEMPTS);
+    }
+
+    /**
+     * Creates a manager which reads the time from the given clock and draws codes from the given source.
+     *
+     * @param store
+     *         The store to push authenticated pairs to.
+     * @param ttl
+     *         The time a token stays valid.
+     * @param unit
+     *         The unit of the time.
+     * @param ticker
+     *         The clock to read the time from.
+     * @param random
+     *         The source of codes, which should be secure.
+     * @param maximumAttempts
+     *         The number of unknown codes a presenter may try within the lifetime of a token.
+     */
+    public SessionManager(final @Nonnull AuthenticationStore<? super A, ? super R> store, final long ttl,
+                          final @Nonnull TimeUnit unit, final @Nonnull Ticker ticker, final @Nonnull Random random,
+                          final int maximumAttempts) {
+        this.store = store;
+        this.ttl = unit.toNanos(ttl);
+        if (this.ttl <= 0) {
+            throw new IllegalArgumentException("Lifetime must be positive: " + ttl);
+        }
+        this.ticker = ticker;
+        this.random = random;
+        long now = ticker.read();
+        this.wheel = new TimerWheel<>(Math.max(1, this.ttl / TICKS_PER_TTL), this.ttl, now);
+        this.throttle = new AttemptThrottle(maximumAttempts, this.ttl, now);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Checks whether an authenticatable may move from one state to another.
+     *
+     * @param from
+     *         The current state.
+     * @param to
+     *         The next state.
+     *
+     * @return valid Whether the transition is valid.
+     */
+    public static boolean canTransition(final @Nonnull State from, final @Nonnull State to) {
+        switch (from) {
+            case UNAUTHENTICATED:
+                return to == State.AUTHENTICATING;
+            case AUTHENTICATING:
+                return true;
+            default:
+                return to == State.UNAUTHENTICATED;
+        }
+    }
+
+    /**
+     * Starts authenticating a subject, issuing them a token. A token issued to the subject before is revoked.
+     *
+     * @param subject
+     *         The subject to authenticate.
+     * @param callback
+     *         The callback to invoke with the token, or with an {@link IllegalStateException} if the subject is
+     *         already authenticated.
+     */
+    public void begin(final @Nonnull A subject, final @Nonnull FutureCallback<Token> callback) {
+        subject.getAuthenticationStage(state -> {
+            if (!canTransition(state, State.AUTHENTICATING)) {
+                callback.onFailure(new IllegalStateException("Cannot authenticate from " + state));
+                return;
+            }
+            subject.getUniqueIdentifier(id -> {
+                SessionToken token;
+                Session<A> session;
+                List<Session<A>> expired = new ArrayList<>();
+                synchronized (this) {
+                    long now = ticker.read();
+                    expire(now, expired);
+                    @Nullable Session<A> previous = subjects.remove(id);
+                    if (previous != null) {
+                        sessions.remove(previous.token.getPackedCode());
+                        wheel.cancel(previous.entry);
+                    }
+                    do {
+                        token = new SessionToken(LinkCodes.next(random), now + ttl);
+                        session = new Session<>(subject, id, token);
+                    } while (!sessions.add(token.getPackedCode(), session));
+                    session.entry = wheel.schedule(session, token.getDeadline());
+                    subjects.put(id, session);
+                }
+                unauthenticate(expired);
+                synchronized (stripe(id)) {
+                    // The token may already have been replaced, cancelled or expired by another thread.
+                    if (isLatest(session)) {
+                        subject.setAuthenticationStage(State.AUTHENTICATING);
+                    }
+                }
+                callback.onSuccess(token);
+            });
+        });
+    }
+
+    /**
+     * Completes the authentication of the subject a token was issued to, pushing the subject and the result to the
+     * store. The result is throttled as the presenter of the code.
+     *
+     * @param code
+     *         The code of the token, as typed.
+     * @param result
+     *         What the subject is authenticated as.
+     * @param callback
+     *         The callback to invoke with the authenticated subject, or with null if the code is unknown or expired.
+     */
+    public void complete(final @Nonnull CharSequence code, final @Nonnull R result,
+                         final @Nonnull FutureCallback<A> callback) {
+        complete(result, code, result, callback);
+    }
+
+    /**
+     * Completes the authentication of the subject a token was issued to, pushing the subject and the result to the
+     * store.
+     *
+     * @param presenter
+     *         Whoever presents the code, such as the player or user typing it, whose unknown codes are counted.
+     * @param code
+     *         The code of the token, as typed.
+     * @param result
+     *         What the subject is authenticated as.
+     * @param callback
+     *         The callback to invoke with the authenticated subject, or with null if the code is unknown or expired.
+     *         If the presenter tried too many unknown codes, it is invoked with an {@link IllegalStateException}.
+     */
+    public void complete(final @Nonnull Object presenter, final @Nonnull CharSequence code, final @Nonnull R result,
+                         final @Nonnull FutureCallback<A> callback) {
+        long packed = LinkCodes.parse(code);
+        @Nullable Session<A> session;
+        boolean blocked;
+        List<Session<A>> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = ticker.read();
+            blocked = throttle.isBlocked(presenter, now);
+            if (blocked) {
+                session = null;
+            } else {
+                expire(now, expired);
+                session = packed == LinkCodes.INVALID ? null : sessions.remove(packed);
+                if (session == null) {
+                    throttle.fail(presenter, now);
+                } else {
+                    throttle.clear(presenter);
+                    subjects.remove(session.id);
+                    wheel.cancel(session.entry);
+                }
+            }
+        }
+        unauthenticate(expired);
+        if (session == null) {
+            if (blocked) {
+                callback.onFailure(new IllegalStateException("Too many attempts"));
+            } else {
+                callback.onSuccess(null);
+            }
+            return;
+        }
+        A subject = session.subject;
+        subject.getAuthenticationStage(state -> {
+            if (state != State.AUTHENTICATING) {
+                callback.onFailure(new IllegalStateException("Cannot complete authentication from " + state));
+                return;
+            }
+            try {
+                store.push(subject, result);
+            } catch (RuntimeException e) {
+                subject.setAuthenticationStage(State.UNAUTHENTICATED);
+                callback.onFailure(e);
+                return;
+            }
+            subject.setAuthenticationStage(State.AUTHENTICATED);
+            callback.onSuccess(subject);
+        });
+    }
+
+    /**
+     * Cancels a token before it is presented, moving its subject back to {@link State#UNAUTHENTICATED}.
+     *
+     * @param code
+     *         The code of the token.
+     *
+     * @return cancelled Whether the token was pending.
+     */
+    public boolean cancel(final @Nonnull CharSequence code) {
+        long packed = LinkCodes.parse(code);
+        @Nullable Session<A> session;
+        synchronized (this) {
+            session = packed == LinkCodes.INVALID ? null : sessions.remove(packed);
+            if (session == null) {
+                return false;
+            }
+            subjects.remove(session.id);
+            wheel.cancel(session.entry);
+        }
+        unauthenticate(Collections.singletonList(session));
+        return true;
+    }
+
+    /**
+     * Revokes the authentication of a subject, removing the pair from the store.
+     *
+     * @param subject
+     *         The authenticated subject.
+     * @param result
+     *         What the subject is authenticated as.
+     * @param callback
+     *         The callback to invoke once revoked, or with an {@link IllegalStateException} if the subject is not
+     *         authenticated.
+     */
+    public void revoke(final @Nonnull A subject, final @Nonnull R result,
+                       final @Nonnull FutureCallback<Void> callback) {
+        subject.getAuthenticationStage(state -> {
+            if (state != State.AUTHENTICATED) {
+                callback.onFailure(new IllegalStateException("Cannot revoke authentication from " + state));
+                return;
+            }
+            store.remove(subject, result);
+            subject.setAuthenticationStage(State.UNAUTHENTICATED);
+            callback.onSuccess(null);
+        });
+    }
+
+    /**
+     * Expires every token whose time has passed.
+     *
+     * @return expired The number of expired tokens.
+     */
+    public int expire() {
+        List<Session<A>> expired = new ArrayList<>();
+        synchronized (this) {
+            expire(ticker.read(), expired);
+        }
+        unauthenticate(expired);
+        return expired.size();
+    }
+
+    /**
+     * Checks whether a presenter tried too many unknown codes recently.
+     *
+     * @param presenter
+     *         Whoever presents codes.
+     *
+     * @return blocked Whether their attempts are refused.
+     */
+    public synchronized boolean isBlocked(final @Nonnull Object presenter) {
+        return throttle.isBlocked(presenter, ticker.read());
+    }
+
+    /**
+     * Fetches the number of tokens which are neither presented nor expired yet.
+     *
+     * @return pending The number of tokens.
+     */
+    public synchronized int getPending() {
+        return sessions.size();
+    }
+
+    @GuardedBy("this")
+    private void expire(final long now, final List<Session<A>> expired) {
+        wheel.advance(now, session -> {
+            sessions.remove(session.token.getPackedCode());
+            subjects.remove(session.id);
+            expired.add(session);
+        });
+    }
+
+    private void unauthenticate(final List<Session<A>> ended) {
+        for (Session<A> session : ended) {
+            synchronized (stripe(session.id)) {
+                // A subject which was issued a newer token since keeps authenticating.
+                if (!hasPending(session.id)) {
+                    session.subject.setAuthenticationStage(State.UNAUTHENTICATED);
+                }
+            }
+        }
+    }
+
+    private synchronized boolean isLatest(final Session<A> session) {
+        return subjects.get(session.id) == session;
+    }
+
+    private synchronized boolean hasPending(final Object id) {
+        return subjects.containsKey(id);
+    }
+
+    private Object stripe(final Object id) {
+        return stripes[(id.hashCode() & Integer.MAX_VALUE) % STRIPES];
+    }
+
+    /**
+     * A pending authentication.
+     *
+     * @param <A>
+     *         The type of authenticatable.
+     */
+    private static final class Session<A> {
+
+        private final A subject;
+        private final Object id;
+        private final SessionToken token;
+        private TimerWheel.Entry<Session<A>> entry;
+
+        private Session(final A subject, final Object id, final SessionToken token) {
+            this.subject = subject;
+            this.id = id;
+            this.token = token;
+        }
+
+    }
+
+}
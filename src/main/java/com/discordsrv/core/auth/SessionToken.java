@@ -0,0 +1,89 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import com.discordsrv.core.api.auth.Token;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.function.Consumer;
+
+/**
+ * A token issued by a {@link SessionManager}, identified by the code the player has to present to authenticate.
+ * <p>
+ * The code is a packed long, rendered once by {@link LinkCodes#render(long)} when the token is issued.
+ */
+@Immutable
+public final class SessionToken implements Token {
+
+    private final long packed;
+    private final String code;
+    private final long deadline;
+
+    /**
+     * Creates a token.
+     *
+     * @param packed
+     *         The packed code of the token.
+     * @param deadline
+     *         The time in nanoseconds, according to the ticker of the manager, at which the token expires.
+     */
+    SessionToken(final long packed, final long deadline) {
+        this.packed = packed;
+        this.code = LinkCodes.render(packed);
+        this.deadline = deadline;
+    }
+
+    /**
+     * Fetches the packed code of this token.
+     *
+     * @return packed The packed code.
+     */
+    public long getPackedCode() {
+        return packed;
+    }
+
+    /**
+     * Fetches the code of this token, as shown to players.
+     *
+     * @return code The rendered code.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Fetches the time at which this token expires.
+     *
+     * @return deadline The time in nanoseconds, according to the ticker of the manager.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public void getUniqueIdentifier(final @Nonnull Consumer<String> callback) {
+        callback.accept(code);
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+
+}
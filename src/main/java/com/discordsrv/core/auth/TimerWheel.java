@@ -0,0 +1,186 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel, for expiring many entries in constant time each.
+ * <p>
+ * Time is divided into ticks, and each entry is kept in the slot of the tick on which it expires, within an intrusive
+ * doubly linked list. Scheduling and cancelling an entry therefore never search, and advancing the wheel visits only
+ * the slots of the ticks which passed. Entries further away than one turn of the wheel share slots with nearer ones
+ * and are skipped until their turn comes.
+ *
+ * @param <E>
+ *         The type of the values kept in the wheel.
+ */
+@NotThreadSafe
+final class TimerWheel<E> {
+
+    private final Entry<E>[] slots;
+    private final int mask;
+    private final long tickNanos;
+    private final long origin;
+    private long tick;
+    private int size;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param tickNanos
+     *         The length of a tick in nanoseconds, which bounds how late an entry may expire.
+     * @param span
+     *         The shortest time in nanoseconds which one turn of the wheel should cover.
+     * @param now
+     *         The current time in nanoseconds.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(final long tickNanos, final long span, final long now) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickNanos);
+        }
+        long ticks = Math.max(2, Math.min(1 << 20, span / tickNanos + 1));
+        int capacity = Integer.highestOneBit((int) ticks - 1) << 1;
+        this.slots = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Entry<>(null, 0);
+            slots[i].previous = slots[i];
+            slots[i].next = slots[i];
+        }
+        this.mask = capacity - 1;
+        this.tickNanos = tickNanos;
+        this.origin = now;
+    }
+
+    /**
+     * Adds a value which expires at the given time.
+     *
+     * @param value
+     *         The value.
+     * @param deadline
+     *         The time in nanoseconds at which the value expires.
+     *
+     * @return entry The entry of the value, for cancelling it.
+     */
+    Entry<E> schedule(final E value, final long deadline) {
+        long elapsed = deadline - origin;
+        // Round up, so that an entry never expires before its deadline.
+        long due = Math.max(tick + 1, elapsed <= 0 ? 0 : (elapsed - 1) / tickNanos + 1);
+        Entry<E> entry = new Entry<>(value, due);
+        Entry<E> head = slots[(int) (due & mask)];
+        entry.previous = head.previous;
+        entry.next = head;
+        head.previous.next = entry;
+        head.previous = entry;
+        size++;
+        return entry;
+    }
+
+    /**
+     * Removes an entry before it expires.
+     *
+     * @param entry
+     *         The entry returned by {@link #schedule(Object, long)}.
+     *
+     * @return removed Whether the entry was still within the wheel.
+     */
+    boolean cancel(final Entry<E> entry) {
+        if (entry.next == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Expires every entry whose deadline has passed.
+     *
+     * @param now
+     *         The current time in nanoseconds.
+     * @param expired
+     *         The consumer of the values of the expired entries.
+     *
+     * @return count The number of expired entries.
+     */
+    int advance(final long now, final Consumer<? super E> expired) {
+        long target = Math.floorDiv(now - origin, tickNanos);
+        if (target <= tick) {
+            return 0;
+        }
+        long passed = Math.min(target - tick, slots.length);
+        int count = 0;
+        for (long i = 1; i <= passed; i++) {
+            Entry<E> head = slots[(int) ((tick + i) & mask)];
+            Entry<E> entry = head.next;
+            while (entry != head) {
+                Entry<E> next = entry.next;
+                if (entry.due <= target) {
+                    unlink(entry);
+                    count++;
+                    expired.accept(entry.value);
+                }
+                entry = next;
+            }
+        }
+        tick = target;
+        return count;
+    }
+
+    /**
+     * Fetches the number of entries within this wheel.
+     *
+     * @return size The number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    private void unlink(final Entry<E> entry) {
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+        size--;
+    }
+
+    /**
+     * A value within the wheel.
+     *
+     * @param <E>
+     *         The type of the value.
+     */
+    static final class Entry<E> {
+
+        private final E value;
+        private final long due;
+        @Nullable
+        private Entry<E> previous;
+        @Nullable
+        private Entry<E> next;
+
+        private Entry(final @Nullable E value, final long due) {
+            this.value = value;
+            this.due = due;
+        }
+
+    }
+
+}
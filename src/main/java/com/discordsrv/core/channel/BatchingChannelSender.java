@@ -0,0 +1,318 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLinker;
+import com.discordsrv.core.api.channel.ChatMessage;
+import com.discordsrv.core.api.common.unit.DirectlyNamed;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Sends chat messages to their linked channels, merging the messages for each channel into as few Discord messages
+ * as possible.
+ * <p>
+ * Lines for a channel are held for at most the latency window, then sent joined by newlines. A batch is sent early
+ * once the next line would push it past {@link #MESSAGE_LIMIT}. Lines keep the order in which they reached
+ * {@link #send(TextChannel, String, FutureCallback)}, which for {@link #send(Chat, ChatMessage, FutureCallback)} is
+ * the order in which the linker answered. Every line's callback is completed with the result of the Discord message
+ * it was sent within. A channel's batch is discarded once it has been sent, so channels which fall silent hold nothing.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class BatchingChannelSender {
+
+    /**
+     * The maximum number of characters within a single Discord message.
+     */
+    public static final int MESSAGE_LIMIT = 2000;
+
+    private static final String SEPARATOR = "\n";
+
+    private final ChatChannelLinker linker;
+    private final ScheduledExecutorService scheduler;
+    private final long window;
+    private final BiFunction<CharSequence, String, String> formatter;
+    private final ConcurrentMap<Long, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a sender which formats each line as {@code sender: message}.
+     *
+     * @param linker
+     *         The linker to find the channel of each chat with.
+     * @param scheduler
+     *         The scheduler to send batches with once their window closes.
+     * @param window
+     *         The longest time to hold a line for.
+     * @param unit
+     *         The unit of the window.
+     */
+    public BatchingChannelSender(final ChatChannelLinker linker, final ScheduledExecutorService scheduler,
+                                 final long window, final TimeUnit unit) {
+        this(linker, scheduler, window, unit, (sender, message) -> sender + ": " + message);
+    }
+
+    /**
+     * Creates a sender.
+     *
+     * @param linker
+     *         The linker to find the channel of each chat with.
+     * @param scheduler
+     *         The scheduler to send batches with once their window closes.
+     * @param window
+     *         The longest time to hold a line for.
+     * @param unit
+     *         The unit of the window.
+     * @param formatter
+     *         The function which renders the name of a sender and their message as a line.
+     */
+    public BatchingChannelSender(final ChatChannelLinker linker, final ScheduledExecutorService scheduler,
+                                 final long window, final TimeUnit unit,
+                                 final BiFunction<CharSequence, String, String> formatter) {
+        this.linker = linker;
+        this.scheduler = scheduler;
+        this.window = unit.toNanos(window);
+        this.formatter = formatter;
+    }
+
+    /**
+     * Sends a chat message to the channel linked to its chat.
+     *
+     * @param chat
+     *         The chat the message was sent in.
+     * @param message
+     *         The message to send.
+     * @param callback
+     *         The callback to invoke once the Discord message containing this message is sent.
+     */
+    public void send(final Chat chat, final ChatMessage<?> message, final FutureCallback<Void> callback) {
+        linker.translate(chat, new FutureCallback<TextChannel>() {
+            @Override
+            public void onSuccess(final @Nullable TextChannel channel) {
+                if (channel == null) {
+                    callback.onFailure(new IllegalStateException("Chat is not linked to a channel"));
+                } else {
+                    DirectlyNamed.name(message.getSender(), channel,
+                        (name, target) -> send(target, formatter.apply(name, message.getMessage()), callback));
+                }
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                callback.onFailure(t);
+            }
+        });
+    }
+
+    /**
+     * Sends a line to the given channel.
+     * <p>
+     * Lines longer than {@link #MESSAGE_LIMIT} are split over as many Discord messages as needed, and their callback
+     * succeeds once every part is sent.
+     *
+     * @param channel
+     *         The channel to send the line to.
+     * @param line
+     *         The line to send.
+     * @param callback
+     *         The callback to invoke once the Discord message containing this line is sent.
+     */
+    public void send(final TextChannel channel, final String line, final FutureCallback<Void> callback) {
+        Batch batch;
+        do {
+            // A batch which was discarded after it was looked up has already left the map, so the next one is fresh.
+            batch = batches.computeIfAbsent(channel.getIdLong(), id -> new Batch(channel));
+        } while (!batch.add(line, callback));
+    }
+
+    /**
+     * Sends every pending batch immediately.
+     */
+    public void flush() {
+        batches.values().forEach(Batch::expire);
+    }
+
+    /**
+     * Fetches the number of channels which hold a batch.
+     *
+     * @return size The number of batches.
+     */
+    int size() {
+        return batches.size();
+    }
+
+    /**
+     * Sends a Discord message.
+     * <p>
+     * This is always called with the lock of the channel's batch held, so the messages of a channel are dispatched in
+     * order.
+     *
+     * @param channel
+     *         The channel to send the message to.
+     * @param content
+     *         The content of the message.
+     * @param callback
+     *         The callback to invoke once the message is sent.
+     */
+    protected void dispatch(final TextChannel channel, final String content, final FutureCallback<Message> callback) {
+        channel.sendMessage(content).queue(callback::onSuccess, callback::onFailure);
+    }
+
+    /**
+     * The pending lines of a single channel.
+     */
+    private final class Batch {
+
+        private final TextChannel channel;
+        @GuardedBy("this")
+        private final StringBuilder content = new StringBuilder();
+        @GuardedBy("this")
+        private final List<FutureCallback<Void>> callbacks = new ArrayList<>();
+        @GuardedBy("this")
+        private @Nullable ScheduledFuture<?> timer;
+        @GuardedBy("this")
+        private boolean discarded;
+
+        Batch(final TextChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized boolean add(final String line, final FutureCallback<Void> callback) {
+            if (discarded) {
+                return false;
+            }
+            if (line.length() > MESSAGE_LIMIT) {
+                flush();
+                split(line, callback);
+                discard();
+                return true;
+            }
+            if (content.length() > 0 && content.length() + SEPARATOR.length() + line.length() > MESSAGE_LIMIT) {
+                flush();
+            }
+            if (content.length() > 0) {
+                content.append(SEPARATOR);
+            }
+            content.append(line);
+            callbacks.add(callback);
+            if (content.length() + SEPARATOR.length() >= MESSAGE_LIMIT) {
+                flush();
+                discard();
+            } else if (timer == null) {
+                timer = scheduler.schedule(this::expire, window, TimeUnit.NANOSECONDS);
+            }
+            return true;
+        }
+
+        synchronized void expire() {
+            flush();
+            discard();
+        }
+
+        @GuardedBy("this")
+        private void flush() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            if (callbacks.isEmpty()) {
+                return;
+            }
+            List<FutureCallback<Void>> sent = new ArrayList<>(callbacks);
+            String text = content.toString();
+            content.setLength(0);
+            callbacks.clear();
+            send(text, new FutureCallback<Message>() {
+                @Override
+                public void onSuccess(final @Nullable Message result) {
+                    sent.forEach(callback -> callback.onSuccess(null));
+                }
+
+                @Override
+                public void onFailure(final @Nonnull Throwable t) {
+                    sent.forEach(callback -> callback.onFailure(t));
+                }
+            });
+        }
+
+        @GuardedBy("this")
+        private void discard() {
+            discarded = true;
+            batches.remove(channel.getIdLong(), this);
+        }
+
+        @GuardedBy("this")
+        private void split(final String line, final FutureCallback<Void> callback) {
+            List<String> parts = new ArrayList<>();
+            for (int start = 0, end; start < line.length(); start = end) {
+                end = Math.min(start + MESSAGE_LIMIT, line.length());
+                if (end < line.length() && Character.isHighSurrogate(line.charAt(end - 1))) {
+                    end--;
+                }
+                parts.add(line.substring(start, end));
+            }
+            AtomicInteger remaining = new AtomicInteger(parts.size());
+            AtomicBoolean done = new AtomicBoolean();
+            FutureCallback<Message> partCallback = new FutureCallback<Message>() {
+                @Override
+                public void onSuccess(final @Nullable Message result) {
+                    if (remaining.decrementAndGet() == 0 && done.compareAndSet(false, true)) {
+                        callback.onSuccess(null);
+                    }
+                }
+
+                @Override
+                public void onFailure(final @Nonnull Throwable t) {
+                    if (done.compareAndSet(false, true)) {
+                        callback.onFailure(t);
+                    }
+                }
+            };
+            parts.forEach(part -> send(part, partCallback));
+        }
+
+        @GuardedBy("this")
+        private void send(final String text, final FutureCallback<Message> callback) {
+            try {
+                dispatch(channel, text, callback);
+            } catch (RuntimeException e) {
+                callback.onFailure(e);
+            }
+        }
+
+    }
+
+}
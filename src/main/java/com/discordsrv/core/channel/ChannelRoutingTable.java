@@ -0,0 +1,196 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable table of the chats and channels linked to each other, built once from configuration.
+ * <p>
+ * Channels are kept in an open-addressed table keyed by their raw snowflakes, and chats in one keyed by their
+ * interned identifiers, which are compared by reference before falling back to {@link String#equals(Object)}. Both
+ * tables are at most half full, so a lookup in either direction is a short run of array reads.
+ */
+@Immutable
+public final class ChannelRoutingTable {
+
+    /** A table without any routes. */
+    public static final ChannelRoutingTable EMPTY = new ChannelRoutingTable(Collections.emptyMap(),
+        Collections.emptyMap());
+
+    private final long[] channelIds;
+    private final TextChannel[] channels;
+    private final Chat[] chatsByChannel;
+    private final int channelMask;
+    private final String[] chatIds;
+    private final int[] chatHashes;
+    private final Chat[] chats;
+    private final TextChannel[] channelsByChat;
+    private final int chatMask;
+    private final int routes;
+
+    /**
+     * Builds a table.
+     *
+     * @param chats
+     *         Every chat which may be looked up, by its unique identifier.
+     * @param links
+     *         The channel linked to each chat, by the unique identifier of the chat. A channel may be linked to one
+     *         chat only.
+     *
+     * @throws IllegalArgumentException
+     *         If a link names an unknown chat, or a channel is linked to several chats.
+     */
+    public ChannelRoutingTable(final @Nonnull Map<String, ? extends Chat> chats,
+                               final @Nonnull Map<String, ? extends TextChannel> links) {
+        int chatCapacity = capacity(chats.size());
+        this.chatIds = new String[chatCapacity];
+        this.chatHashes = new int[chatCapacity];
+        this.chats = new Chat[chatCapacity];
+        this.channelsByChat = new TextChannel[chatCapacity];
+        this.chatMask = chatCapacity - 1;
+        for (Map.Entry<String, ? extends Chat> entry : chats.entrySet()) {
+            String id = entry.getKey().intern();
+            int slot = chatSlot(id, id.hashCode());
+            chatIds[slot] = id;
+            chatHashes[slot] = id.hashCode();
+            this.chats[slot] = entry.getValue();
+        }
+        int channelCapacity = capacity(links.size());
+        this.channelIds = new long[channelCapacity];
+        this.channels = new TextChannel[channelCapacity];
+        this.chatsByChannel = new Chat[channelCapacity];
+        this.channelMask = channelCapacity - 1;
+        for (Map.Entry<String, ? extends TextChannel> entry : links.entrySet()) {
+            int chat = chatSlot(entry.getKey(), entry.getKey().hashCode());
+            if (chatIds[chat] == null) {
+                throw new IllegalArgumentException("Link names unknown chat " + entry.getKey());
+            }
+            TextChannel channel = entry.getValue();
+            long id = channel.getIdLong();
+            if (id == 0) {
+                throw new IllegalArgumentException("Channel of chat " + entry.getKey() + " has no snowflake");
+            }
+            int slot = channelSlot(id);
+            if (channelIds[slot] == id) {
+                throw new IllegalArgumentException("Channel " + id + " is linked to several chats");
+            }
+            channelIds[slot] = id;
+            channels[slot] = channel;
+            chatsByChannel[slot] = this.chats[chat];
+            channelsByChat[chat] = channel;
+        }
+        this.routes = links.size();
+    }
+
+    /**
+     * Fetches the chat with the given identifier.
+     *
+     * @param id
+     *         The unique identifier of the chat.
+     *
+     * @return chat The chat, or null if there is none.
+     */
+    @Nullable
+    public Chat getChat(final @Nonnull String id) {
+        return chats[chatSlot(id, id.hashCode())];
+    }
+
+    /**
+     * Fetches the channel linked to the chat with the given identifier.
+     *
+     * @param id
+     *         The unique identifier of the chat.
+     *
+     * @return channel The channel, or null if the chat is unknown or not linked.
+     */
+    @Nullable
+    public TextChannel getChannelOf(final @Nonnull String id) {
+        return channelsByChat[chatSlot(id, id.hashCode())];
+    }
+
+    /**
+     * Fetches the linked channel with the given snowflake.
+     *
+     * @param id
+     *         The snowflake of the channel.
+     *
+     * @return channel The channel, or null if it is not linked.
+     */
+    @Nullable
+    public TextChannel getChannel(final long id) {
+        return channels[channelSlot(id)];
+    }
+
+    /**
+     * Fetches the chat linked to the channel with the given snowflake.
+     *
+     * @param id
+     *         The snowflake of the channel.
+     *
+     * @return chat The chat, or null if the channel is not linked.
+     */
+    @Nullable
+    public Chat getChatOf(final long id) {
+        return chatsByChannel[channelSlot(id)];
+    }
+
+    /**
+     * Fetches the number of links within this table.
+     *
+     * @return routes The number of links.
+     */
+    public int size() {
+        return routes;
+    }
+
+    private int chatSlot(final String id, final int hash) {
+        int i = (hash ^ (hash >>> 16)) & chatMask;
+        while (true) {
+            String current = chatIds[i];
+            if (current == null || current == id || (chatHashes[i] == hash && current.equals(id))) {
+                return i;
+            }
+            i = (i + 1) & chatMask;
+        }
+    }
+
+    private int channelSlot(final long id) {
+        long h = id * 0x9e3779b97f4a7c15L;
+        int i = (int) (h ^ (h >>> 32)) & channelMask;
+        while (true) {
+            long current = channelIds[i];
+            if (current == 0 || current == id) {
+                return i;
+            }
+            i = (i + 1) & channelMask;
+        }
+    }
+
+    private static int capacity(final int size) {
+        return Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLinker;
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.discordsrv.core.common.dispatch.Dispatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Delivers the messages sent in Discord channels to the recipients of their linked chats.
+ * <p>
+ * The chat linked to a channel is cached, including the absence of one, so most messages are routed without asking
+ * the linker. Each message is formatted into a line once, and the line is then sent to every recipient as its own task
+ * on the executor, so a slow recipient holds up only the thread it runs on. The executor should be bounded; a
+ * recipient whose task it rejects is counted as a failed delivery.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class InboundMessageRouter {
+
+    /** The default number of seconds the chat linked to a channel stays cached. */
+    public static final long DEFAULT_EXPIRY_SECONDS = 60;
+    /** The default maximum number of channels cached. */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1_000;
+
+    private final ChatChannelLinker linker;
+    private final Function<? super Chat, ? extends Collection<? extends Messageable<String, ?>>> recipients;
+    private final Executor executor;
+    private final BiFunction<CharSequence, String, String> formatter;
+    private final Cache<Long, Optional<Chat>> chats;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates a router which formats each line as {@code name: message}.
+     *
+     * @param linker
+     *         The linker to find the chat of each channel with.
+     * @param recipients
+     *         The function which lists the recipients of a chat, such as its players.
+     * @param executor
+     *         The bounded executor to deliver lines on.
+     */
+    public InboundMessageRouter(final ChatChannelLinker linker,
+                                final Function<? super Chat,
+                                    ? extends Collection<? extends Messageable<String, ?>>> recipients,
+                                final Executor executor) {
+        this(linker, recipients, executor, (name, message) -> name + ": " + message,
+            CacheBuilder.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE)
+                .expireAfterWrite(DEFAULT_EXPIRY_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Creates a router.
+     *
+     * @param linker
+     *         The linker to find the chat of each channel with.
+     * @param recipients
+     *         The function which lists the recipients of a chat, such as its players.
+     * @param executor
+     *         The bounded executor to deliver lines on.
+     * @param formatter
+     *         The function which renders the name of an author and their message as a line.
+     * @param cacheBuilder
+     *         The builder for the cache of linked chats, which should bound its size and expire its entries.
+     */
+    public InboundMessageRouter(final ChatChannelLinker linker,
+                                final Function<? super Chat,
+                                    ? extends Collection<? extends Messageable<String, ?>>> recipients,
+                                final Executor executor, final BiFunction<CharSequence, String, String> formatter,
+                                final CacheBuilder<Object, Object> cacheBuilder) {
+        this.linker = linker;
+        this.recipients = recipients;
+        this.executor = executor;
+        this.formatter = formatter;
+        this.chats = cacheBuilder.build();
+    }
+
+    /**
+     * Creates an executor suitable for delivering lines, whose queue is bounded and which rejects tasks beyond it.
+     *
+     * @param threads
+     *         The number of threads to deliver lines with.
+     * @param capacity
+     *         The maximum number of deliveries waiting for a thread.
+     *
+     * @return executor The executor, which the caller must shut down.
+     */
+    public static ExecutorService newBoundedExecutor(final int threads, final int capacity) {
+        return Dispatcher.newBoundedExecutor(threads, capacity);
+    }
+
+    /**
+     * Delivers a Discord message to the recipients of the chat linked to its channel.
+     *
+     * @param event
+     *         The event of the received message.
+     * @param callback
+     *         The callback to invoke with the number of recipients the message was delivered to, once every delivery
+     *         has finished. This is zero if the channel is not linked to a chat.
+     */
+    public void route(final GuildMessageReceivedEvent event, final FutureCallback<Integer> callback) {
+        TextChannel channel = event.getChannel();
+        @Nullable Optional<Chat> cached = chats.getIfPresent(channel.getIdLong());
+        if (cached != null) {
+            deliver(cached.orElse(null), event.getMessage(), callback);
+            return;
+        }
+        long expected = generation.get();
+        linker.translate(channel, new FutureCallback<Chat>() {
+            @Override
+            public void onSuccess(final @Nullable Chat chat) {
+                if (generation.get() == expected) {
+                    chats.put(channel.getIdLong(), Optional.ofNullable(chat));
+                }
+                deliver(chat, event.getMessage(), callback);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                callback.onFailure(t);
+            }
+        });
+    }
+
+    /**
+     * Discards every cached chat, for when links change. Lookups still in flight are not cached.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        chats.invalidateAll();
+    }
+
+    /**
+     * Fetches the name to show for the author of a message.
+     *
+     * @param message
+     *         The message.
+     *
+     * @return name The nickname of the author in the guild if they have one, or their user name otherwise.
+     */
+    protected CharSequence getAuthorName(final Message message) {
+        @Nullable Member member = message.getMember();
+        return member != null ? member.getEffectiveName() : message.getAuthor().getName();
+    }
+
+    private void deliver(final @Nullable Chat chat, final Message message, final FutureCallback<Integer> callback) {
+        Collection<? extends Messageable<String, ?>> targets = chat == null ? null : recipients.apply(chat);
+        if (targets == null || targets.isEmpty()) {
+            callback.onSuccess(0);
+            return;
+        }
+        String line = formatter.apply(getAuthorName(message), message.getContentDisplay());
+        Delivery delivery = new Delivery(targets.size(), callback);
+        for (Messageable<String, ?> target : targets) {
+            try {
+                executor.execute(() -> send(target, line, delivery));
+            } catch (RejectedExecutionException e) {
+                delivery.onFailure(e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> void send(final Messageable<String, R> target, final String line, final Delivery delivery) {
+        try {
+            target.sendMessage(line, (FutureCallback<R>) delivery);
+        } catch (RuntimeException e) {
+            delivery.onFailure(e);
+        }
+    }
+
+    /**
+     * The deliveries of a single line, which completes its callback once every recipient has finished.
+     */
+    private static final class Delivery implements FutureCallback<Object> {
+
+        private final AtomicInteger remaining;
+        private final AtomicInteger delivered = new AtomicInteger();
+        private final FutureCallback<Integer> callback;
+
+        Delivery(final int recipients, final FutureCallback<Integer> callback) {
+            this.remaining = new AtomicInteger(recipients);
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(final @Nullable Object result) {
+            delivered.incrementAndGet();
+            finish();
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            finish();
+        }
+
+        private void finish() {
+            if (remaining.decrementAndGet() == 0) {
+                callback.onSuccess(delivered.get());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatMessage;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.google.common.base.Ticker;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Drops chat messages whose unique identifiers were seen recently, such as the echoes of a message relayed by several
+ * servers of a network.
+ * <p>
+ * Identifiers are remembered in a pair of Bloom filters. New identifiers go into the current filter, and a message is
+ * a repeat if either filter might contain its identifier. Once the current filter has held its expected number of
+ * identifiers, or the window has passed, it becomes the previous filter and the oldest one is discarded. Every
+ * identifier is therefore remembered for at least one window unless the expected rate is exceeded, memory never grows
+ * beyond the two filters, and a new message is dropped with at most the configured false-positive probability.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class MessageDeduplicator {
+
+    private static final Funnel<Object> IDENTIFIER_FUNNEL = (identifier, sink) -> {
+        if (identifier instanceof Long) {
+            sink.putLong((Long) identifier);
+        } else if (identifier instanceof CharSequence) {
+            sink.putUnencodedChars((CharSequence) identifier);
+        } else {
+            sink.putInt(identifier.hashCode()).putUnencodedChars(identifier.toString());
+        }
+    };
+
+    private final long expected;
+    private final double falsePositiveRate;
+    private final long window;
+    private final Ticker ticker;
+    private final LongAdder dropped = new LongAdder();
+    private final BiConsumer<Object, Consumer<Boolean>> checker = this::check;
+    @GuardedBy("this")
+    private BloomFilter<Object> current;
+    @GuardedBy("this")
+    @Nullable
+    private BloomFilter<Object> previous;
+    @GuardedBy("this")
+    private long inserted;
+    @GuardedBy("this")
+    private long started;
+
+    /**
+     * Creates a deduplicator.
+     *
+     * @param expected
+     *         The number of distinct messages expected within a window.
+     * @param falsePositiveRate
+     *         The highest acceptable probability of dropping a message which was not seen before.
+     * @param window
+     *         The shortest time to remember a message for.
+     * @param unit
+     *         The unit of the window.
+     */
+    public MessageDeduplicator(final long expected, final double falsePositiveRate, final long window,
+                               final TimeUnit unit) {
+        this(expected, falsePositiveRate, window, unit, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a deduplicator which reads the time from the given clock.
+     *
+     * @param expected
+     *         The number of distinct messages expected within a window.
+     * @param falsePositiveRate
+     *         The highest acceptable probability of dropping a message which was not seen before.
+     * @param window
+     *         The shortest time to remember a message for.
+     * @param unit
+     *         The unit of the window.
+     * @param ticker
+     *         The clock to read the time from.
+     */
+    public MessageDeduplicator(final long expected, final double falsePositiveRate, final long window,
+                               final TimeUnit unit, final Ticker ticker) {
+        if (expected <= 0) {
+            throw new IllegalArgumentException("Expected count must be positive: " + expected);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must lie between 0 and 1: " + falsePositiveRate);
+        }
+        this.expected = expected;
+        // A message is checked against both filters, so each gets half of the rate.
+        this.falsePositiveRate = falsePositiveRate / 2;
+        this.window = unit.toNanos(window);
+        this.ticker = ticker;
+        this.current = newFilter();
+        this.started = ticker.read();
+    }
+
+    /**
+     * Creates a deduplicator which remembers as many messages as fit within a memory budget.
+     *
+     * @param bytes
+     *         The number of bytes both filters may occupy together.
+     * @param falsePositiveRate
+     *         The highest acceptable probability of dropping a message which was not seen before.
+     * @param window
+     *         The shortest time to remember a message for, unless more messages arrive than the budget allows.
+     * @param unit
+     *         The unit of the window.
+     *
+     * @return deduplicator The deduplicator.
+     */
+    public static MessageDeduplicator withMemoryBudget(final long bytes, final double falsePositiveRate,
+                                                       final long window, final TimeUnit unit) {
+        return new MessageDeduplicator(capacity(bytes, falsePositiveRate), falsePositiveRate, window, unit);
+    }
+
+    /**
+     * Computes how many messages a window may hold within a memory budget.
+     *
+     * @param bytes
+     *         The number of bytes both filters may occupy together.
+     * @param falsePositiveRate
+     *         The highest acceptable probability of dropping a message which was not seen before.
+     *
+     * @return expected The number of distinct messages per window.
+     */
+    static long capacity(final long bytes, final double falsePositiveRate) {
+        // An optimal filter needs -n * ln(p) / ln(2)^2 bits for n insertions at a rate of p.
+        double bitsPerFilter = bytes * (double) Byte.SIZE / 2;
+        double ln2 = Math.log(2);
+        return Math.max(1, (long) (bitsPerFilter * ln2 * ln2 / -Math.log(falsePositiveRate / 2)));
+    }
+
+    /**
+     * Records an identifier as seen.
+     *
+     * @param identifier
+     *         The unique identifier of a message.
+     *
+     * @return first Whether the identifier was not seen within the window before.
+     */
+    public synchronized boolean markSeen(final Object identifier) {
+        rotate();
+        if (previous != null && previous.mightContain(identifier)) {
+            // Keep the identifier for another window, since its echoes are still arriving.
+            if (current.put(identifier)) {
+                inserted++;
+            }
+            dropped.increment();
+            return false;
+        }
+        if (!current.put(identifier)) {
+            dropped.increment();
+            return false;
+        }
+        inserted++;
+        return true;
+    }
+
+    /**
+     * Checks whether a message was not seen before, and records it as seen.
+     *
+     * @param message
+     *         The message.
+     * @param callback
+     *         The callback to invoke with whether the message is new. Messages without an identifier are always new.
+     */
+    public void check(final ChatMessage<?> message, final Consumer<Boolean> callback) {
+        DirectlyIdentifiable.identify(message, callback, checker);
+    }
+
+    private void check(final @Nullable Object identifier, final Consumer<Boolean> callback) {
+        callback.accept(identifier == null || markSeen(identifier));
+    }
+
+    /**
+     * Wraps a chat so that messages seen recently never reach it. A dropped message's callback succeeds without the
+     * message being sent.
+     *
+     * @param chat
+     *         The chat to send new messages to.
+     *
+     * @return chat The deduplicated chat.
+     */
+    public Chat deduplicate(final Chat chat) {
+        return new Chat() {
+            @Override
+            @SuppressWarnings("rawtypes")
+            public void sendMessage(final @Nonnull ChatMessage message, final @Nonnull FutureCallback<Void> callback) {
+                check(message, fresh -> {
+                    if (fresh) {
+                        chat.sendMessage(message, callback);
+                    } else {
+                        callback.onSuccess(null);
+                    }
+                });
+            }
+
+            @Override
+            public void getName(final @Nonnull Consumer<CharSequence> callback) {
+                chat.getName(callback);
+            }
+
+            @Override
+            public void getUniqueIdentifier(final @Nonnull Consumer<String> callback) {
+                chat.getUniqueIdentifier(callback);
+            }
+        };
+    }
+
+    /**
+     * Fetches the number of messages dropped as repeats.
+     *
+     * @return dropped The number of messages.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @GuardedBy("this")
+    private void rotate() {
+        long elapsed = ticker.read() - started;
+        if (elapsed < window && inserted < expected) {
+            return;
+        }
+        previous = elapsed < 2 * window ? current : null;
+        current = newFilter();
+        inserted = 0;
+        started = ticker.read();
+    }
+
+    private BloomFilter<Object> newFilter() {
+        return BloomFilter.create(IDENTIFIER_FUNNEL, expected, falsePositiveRate);
+    }
+
+}
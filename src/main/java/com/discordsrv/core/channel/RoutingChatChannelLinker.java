@@ -0,0 +1,148 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLinker;
+import com.discordsrv.core.api.channel.ChatChannelLookup;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Links chats and channels through a {@link ChannelRoutingTable}, answering every lookup and translation immediately.
+ * <p>
+ * Reloading builds a whole new table before publishing it, so lookups never block and never see a table which is
+ * only partly built. Bulk lookups read a single table, so their results are consistent even across a reload.
+ */
+@ThreadSafe
+public class RoutingChatChannelLinker implements ChatChannelLinker, ChatChannelLookup {
+
+    private volatile ChannelRoutingTable table;
+    private final BiConsumer<String, FutureCallback<TextChannel>> router = (id, callback) -> callback.onSuccess(
+        id == null ? null : this.table.getChannelOf(id));
+
+    /**
+     * Creates a linker without any routes.
+     */
+    public RoutingChatChannelLinker() {
+        this(ChannelRoutingTable.EMPTY);
+    }
+
+    /**
+     * Creates a linker which serves the given table.
+     *
+     * @param table
+     *         The table of routes.
+     */
+    public RoutingChatChannelLinker(final @Nonnull ChannelRoutingTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Replaces the routes of this linker.
+     *
+     * @param chats
+     *         Every chat which may be looked up, by its unique identifier.
+     * @param links
+     *         The channel linked to each chat, by the unique identifier of the chat.
+     *
+     * @throws IllegalArgumentException
+     *         If the routes are invalid, in which case the current routes are kept.
+     */
+    public void reload(final @Nonnull Map<String, ? extends Chat> chats,
+                       final @Nonnull Map<String, ? extends TextChannel> links) {
+        reload(new ChannelRoutingTable(chats, links));
+    }
+
+    /**
+     * Replaces the table of this linker.
+     *
+     * @param table
+     *         The new table of routes.
+     */
+    public void reload(final @Nonnull ChannelRoutingTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Fetches the table currently served by this linker.
+     *
+     * @return table The table of routes.
+     */
+    public ChannelRoutingTable getTable() {
+        return table;
+    }
+
+    @Override
+    public void translate(final @Nonnull Chat chat, final @Nonnull FutureCallback<TextChannel> callback) {
+        DirectlyIdentifiable.identify(chat, callback, router);
+    }
+
+    @Override
+    public void translate(final @Nonnull TextChannel channel, final @Nonnull FutureCallback<Chat> callback) {
+        callback.onSuccess(table.getChatOf(channel.getIdLong()));
+    }
+
+    @Override
+    public void lookup(final long id, final @Nonnull FutureCallback<TextChannel> callback) {
+        callback.onSuccess(table.getChannel(id));
+    }
+
+    @Override
+    public void lookup(final @Nonnull String id, final @Nonnull FutureCallback<Chat> callback) {
+        callback.onSuccess(table.getChat(id));
+    }
+
+    @Override
+    public void lookupChannels(final @Nonnull Collection<Long> ids,
+                               final @Nonnull FutureCallback<Map<Long, TextChannel>> callback) {
+        ChannelRoutingTable current = table;
+        Map<Long, TextChannel> results = new HashMap<>();
+        for (Long id : ids) {
+            @Nullable TextChannel channel = current.getChannel(id);
+            if (channel != null) {
+                results.put(id, channel);
+            }
+        }
+        callback.onSuccess(results);
+    }
+
+    @Override
+    public void lookupChats(final @Nonnull Collection<String> ids,
+                            final @Nonnull FutureCallback<Map<String, Chat>> callback) {
+        ChannelRoutingTable current = table;
+        Map<String, Chat> results = new HashMap<>();
+        for (String id : ids) {
+            @Nullable Chat chat = current.getChat(id);
+            if (chat != null) {
+                results.put(id, chat);
+            }
+        }
+        callback.onSuccess(results);
+    }
+
+}
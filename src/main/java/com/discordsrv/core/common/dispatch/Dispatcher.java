@@ -0,0 +1,294 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.dispatch;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLookup;
+import com.discordsrv.core.api.role.Team;
+import com.discordsrv.core.api.role.TeamRoleLookup;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.api.user.PlayerUserLookup;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the thread callbacks run on.
+ * <p>
+ * Lookups invoke their callbacks on whichever thread completes them, which may be the Minecraft main thread or a JDA
+ * thread. Wrapping a callback with {@link #on(Executor, FutureCallback)}, or a whole lookup with one of the {@code
+ * lookup} methods, moves the callback to an executor instead: the {@link #CALLER} itself, a bounded pool, virtual
+ * threads where the JDK has them, or a {@link MainThreadQueue}.
+ */
+public final class Dispatcher {
+
+    /** The executor which runs callbacks on the thread which completes them, as if they were not dispatched at all. */
+    public static final Executor CALLER = MoreExecutors.directExecutor();
+
+    private static final @Nullable Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private Dispatcher() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates an executor whose queue is bounded and which rejects tasks beyond it.
+     *
+     * @param threads
+     *         The number of threads.
+     * @param capacity
+     *         The maximum number of tasks waiting for a thread.
+     *
+     * @return executor The executor, which the caller must shut down.
+     */
+    @Nonnull
+    public static ExecutorService newBoundedExecutor(final int threads, final int capacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(capacity));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates an executor which starts a virtual thread per task, if the running JDK supports virtual threads.
+     *
+     * @return executor The executor, which the caller must shut down, or nothing on older JDKs.
+     */
+    @Nonnull
+    public static Optional<ExecutorService> newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of((ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Creates an executor for callback work which may block, preferring virtual threads and falling back to a bounded
+     * pool on older JDKs.
+     *
+     * @param threads
+     *         The number of threads of the fallback pool.
+     * @param capacity
+     *         The maximum number of tasks waiting for a thread of the fallback pool.
+     *
+     * @return executor The executor, which the caller must shut down.
+     */
+    @Nonnull
+    public static ExecutorService newExecutor(final int threads, final int capacity) {
+        return newVirtualThreadExecutor().orElseGet(() -> newBoundedExecutor(threads, capacity));
+    }
+
+    /**
+     * Wraps a callback so that it runs on an executor. A callback dispatched to a {@link MainThreadQueue} from the main
+     * thread runs immediately. If the executor rejects the callback, its failure is invoked on the completing thread
+     * with the {@link RejectedExecutionException}.
+     *
+     * @param executor
+     *         The executor to run the callback on.
+     * @param callback
+     *         The callback.
+     * @param <T>
+     *         The type of the result.
+     *
+     * @return callback The dispatching callback, or the callback itself for the {@link #CALLER}.
+     */
+    @Nonnull
+    public static <T> FutureCallback<T> on(final @Nonnull Executor executor,
+                                           final @Nonnull FutureCallback<T> callback) {
+        return executor == CALLER ? callback : new Dispatched<>(executor, callback);
+    }
+
+    /**
+     * Wraps a lookup so that every callback passed to it runs on an executor.
+     *
+     * @param executor
+     *         The executor to run callbacks on.
+     * @param lookup
+     *         The lookup.
+     *
+     * @return lookup The dispatching lookup.
+     */
+    @Nonnull
+    public static PlayerUserLookup lookup(final @Nonnull Executor executor, final @Nonnull PlayerUserLookup lookup) {
+        return new PlayerUserLookup() {
+            @Override
+            public void lookup(final long id, final FutureCallback<User> callback) {
+                lookup.lookup(id, on(executor, callback));
+            }
+
+            @Override
+            public void lookup(final String id, final FutureCallback<MinecraftPlayer> callback) {
+                lookup.lookup(id, on(executor, callback));
+            }
+
+            @Override
+            public void lookupUsers(final Collection<Long> ids, final FutureCallback<Map<Long, User>> callback) {
+                lookup.lookupUsers(ids, on(executor, callback));
+            }
+
+            @Override
+            public void lookupPlayers(final Collection<String> ids,
+                                      final FutureCallback<Map<String, MinecraftPlayer>> callback) {
+                lookup.lookupPlayers(ids, on(executor, callback));
+            }
+        };
+    }
+
+    /**
+     * Wraps a lookup so that every callback passed to it runs on an executor.
+     *
+     * @param executor
+     *         The executor to run callbacks on.
+     * @param lookup
+     *         The lookup.
+     *
+     * @return lookup The dispatching lookup.
+     */
+    @Nonnull
+    public static ChatChannelLookup lookup(final @Nonnull Executor executor, final @Nonnull ChatChannelLookup lookup) {
+        return new ChatChannelLookup() {
+            @Override
+            public void lookup(final long id, final FutureCallback<TextChannel> callback) {
+                lookup.lookup(id, on(executor, callback));
+            }
+
+            @Override
+            public void lookup(final String id, final FutureCallback<Chat> callback) {
+                lookup.lookup(id, on(executor, callback));
+            }
+
+            @Override
+            public void lookupChannels(final Collection<Long> ids,
+                                       final FutureCallback<Map<Long, TextChannel>> callback) {
+                lookup.lookupChannels(ids, on(executor, callback));
+            }
+
+            @Override
+            public void lookupChats(final Collection<String> ids, final FutureCallback<Map<String, Chat>> callback) {
+                lookup.lookupChats(ids, on(executor, callback));
+            }
+        };
+    }
+
+    /**
+     * Wraps a lookup so that every callback passed to it runs on an executor.
+     *
+     * @param executor
+     *         The executor to run callbacks on.
+     * @param lookup
+     *         The lookup.
+     *
+     * @return lookup The dispatching lookup.
+     */
+    @Nonnull
+    public static TeamRoleLookup lookup(final @Nonnull Executor executor, final @Nonnull TeamRoleLookup lookup) {
+        return new TeamRoleLookup() {
+            @Override
+            public void lookup(final long id, final FutureCallback<Role> callback) {
+                lookup.lookup(id, on(executor, callback));
+            }
+
+            @Override
+            public void lookup(final String id, final FutureCallback<Team<MinecraftPlayer>> callback) {
+                lookup.lookup(id, on(executor, callback));
+            }
+
+            @Override
+            public void lookupRoles(final Collection<Long> ids, final FutureCallback<Map<Long, Role>> callback) {
+                lookup.lookupRoles(ids, on(executor, callback));
+            }
+
+            @Override
+            public void lookupTeams(final Collection<String> ids,
+                                    final FutureCallback<Map<String, Team<MinecraftPlayer>>> callback) {
+                lookup.lookupTeams(ids, on(executor, callback));
+            }
+        };
+    }
+
+    @Nullable
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A callback which runs another on an executor.
+     *
+     * @param <T>
+     *         The type of the result.
+     */
+    private static final class Dispatched<T> implements FutureCallback<T> {
+
+        private final Executor executor;
+        private final FutureCallback<T> callback;
+
+        private Dispatched(final Executor executor, final FutureCallback<T> callback) {
+            this.executor = executor;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(final @Nullable T result) {
+            dispatch(() -> callback.onSuccess(result));
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            dispatch(() -> callback.onFailure(t));
+        }
+
+        private void dispatch(final Runnable task) {
+            if (executor instanceof MainThreadQueue && ((MainThreadQueue) executor).isMainThread()) {
+                task.run();
+                return;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                callback.onFailure(e);
+            }
+        }
+
+    }
+
+}
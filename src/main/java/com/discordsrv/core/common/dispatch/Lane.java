@@ -0,0 +1,40 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.dispatch;
+
+/**
+ * Lane type, for ordering the tasks of a {@link MainThreadQueue}. Every drain empties higher lanes before lower ones.
+ */
+public enum Lane {
+
+    /**
+     * Tasks which should run on the next tick, such as replies to commands.
+     */
+    HIGH,
+
+    /**
+     * Tasks without any particular urgency.
+     */
+    NORMAL,
+
+    /**
+     * Tasks which may wait for a quiet tick, such as bulk deliveries of Discord messages.
+     */
+    LOW
+
+}
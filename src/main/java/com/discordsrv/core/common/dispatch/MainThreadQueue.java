@@ -0,0 +1,288 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.dispatch;
+
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.google.common.base.Ticker;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands tasks from any thread over to the Minecraft main thread, which runs them as part of its tick.
+ * <p>
+ * The main thread calls {@link #drain(long)} once per tick with the nanoseconds it can spare; tasks beyond that budget
+ * wait for the next tick, so a burst of Discord messages delays them rather than the tick. The thread which drains is
+ * taken to be the main thread, and only that thread may drain.
+ * <p>
+ * Tasks are queued in {@link Lane}s without locks, and each drain empties higher lanes before lower ones. Each lane
+ * holds at most a fixed number of tasks and rejects more with a {@link RejectedExecutionException}. Drains which run
+ * over their budget, and by how much, are counted so hosts can tell whether their budget is respected.
+ */
+@ThreadSafe
+public class MainThreadQueue implements Executor {
+
+    private static final Lane[] LANES = Lane.values();
+
+    private final Ticker ticker;
+    private final int capacity;
+    private final MpscQueue<Runnable>[] lanes;
+    private final AtomicInteger[] pending;
+    private final LongAdder rejected = new LongAdder();
+    private volatile long overruns;
+    private volatile long overrunNanos;
+    private volatile @Nullable Thread mainThread;
+
+    /**
+     * Creates a queue with unbounded lanes, which measures its budget with the system ticker.
+     */
+    public MainThreadQueue() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a queue with unbounded lanes.
+     *
+     * @param ticker
+     *         The ticker to measure the budget of each drain with.
+     */
+    public MainThreadQueue(final @Nonnull Ticker ticker) {
+        this(ticker, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a queue.
+     *
+     * @param ticker
+     *         The ticker to measure the budget of each drain with.
+     * @param capacity
+     *         The maximum number of tasks waiting in each lane.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public MainThreadQueue(final @Nonnull Ticker ticker, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.ticker = ticker;
+        this.capacity = capacity;
+        this.lanes = new MpscQueue[LANES.length];
+        this.pending = new AtomicInteger[LANES.length];
+        for (int i = 0; i < LANES.length; i++) {
+            lanes[i] = new MpscQueue<>();
+            pending[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Queues a task in the {@link Lane#NORMAL} lane.
+     *
+     * @param command
+     *         The task.
+     *
+     * @throws RejectedExecutionException
+     *         If the lane is full.
+     */
+    @Override
+    public void execute(final @Nonnull Runnable command) {
+        execute(command, Lane.NORMAL);
+    }
+
+    /**
+     * Queues a task.
+     *
+     * @param command
+     *         The task.
+     * @param lane
+     *         The lane to queue the task in.
+     *
+     * @throws RejectedExecutionException
+     *         If the lane is full.
+     */
+    public void execute(final @Nonnull Runnable command, final @Nonnull Lane lane) {
+        AtomicInteger count = pending[lane.ordinal()];
+        if (count.incrementAndGet() > capacity) {
+            count.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("The " + lane + " lane is full");
+        }
+        lanes[lane.ordinal()].offer(command);
+    }
+
+    /**
+     * Runs queued tasks on the calling thread until none are left or the budget is spent.
+     *
+     * @param budget
+     *         The time the tasks may take.
+     * @param unit
+     *         The unit of the budget.
+     *
+     * @return ran The number of tasks which ran.
+     *
+     * @see #drain(long)
+     */
+    public int drain(final long budget, final @Nonnull TimeUnit unit) {
+        return drain(unit.toNanos(budget));
+    }
+
+    /**
+     * Runs queued tasks on the calling thread until none are left or the budget is spent, taking them from higher
+     * lanes first. At least one task runs if any is queued, so the queue always makes progress. A task which throws is
+     * passed to the uncaught exception handler of the thread, and draining continues.
+     *
+     * @param budgetNanos
+     *         The nanoseconds the tasks may take.
+     *
+     * @return ran The number of tasks which ran.
+     */
+    public int drain(final long budgetNanos) {
+        Thread current = Thread.currentThread();
+        mainThread = current;
+        long start = ticker.read();
+        long elapsed = 0;
+        int ran = 0;
+        @Nullable Runnable task;
+        while ((task = poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                current.getUncaughtExceptionHandler().uncaughtException(current, e);
+            }
+            ran++;
+            elapsed = ticker.read() - start;
+            if (elapsed >= budgetNanos) {
+                break;
+            }
+        }
+        if (elapsed > budgetNanos) {
+            overruns++;
+            overrunNanos += elapsed - budgetNanos;
+        }
+        return ran;
+    }
+
+    /**
+     * Wraps a messageable so that its messages are sent from the main thread. A message which does not fit in the lane
+     * fails with the {@link RejectedExecutionException}.
+     *
+     * @param messageable
+     *         The messageable, such as a player or chat.
+     * @param lane
+     *         The lane to queue the messages in.
+     * @param <M>
+     *         The type of message to be sent.
+     * @param <R>
+     *         The result type of a message.
+     *
+     * @return messageable The messageable which sends through this queue.
+     */
+    @Nonnull
+    public <M, R> Messageable<M, R> messageable(final @Nonnull Messageable<M, R> messageable,
+                                                final @Nonnull Lane lane) {
+        return (message, callback) -> {
+            try {
+                execute(() -> messageable.sendMessage(message, callback), lane);
+            } catch (RejectedExecutionException e) {
+                callback.onFailure(e);
+            }
+        };
+    }
+
+    /**
+     * Checks whether the calling thread is the thread which drains this queue.
+     *
+     * @return main Whether the calling thread is the main thread.
+     */
+    public boolean isMainThread() {
+        return Thread.currentThread() == mainThread;
+    }
+
+    /**
+     * Checks whether any task is waiting to run.
+     *
+     * @return pending Whether the queue holds any task.
+     */
+    public boolean hasPending() {
+        for (AtomicInteger count : pending) {
+            if (count.get() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fetches the number of tasks waiting in a lane.
+     *
+     * @param lane
+     *         The lane.
+     *
+     * @return pending The number of waiting tasks.
+     */
+    public int getPending(final @Nonnull Lane lane) {
+        return pending[lane.ordinal()].get();
+    }
+
+    /**
+     * Fetches the number of tasks rejected because their lane was full.
+     *
+     * @return rejected The number of rejected tasks.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Fetches the number of drains which took longer than their budget, because their last task did.
+     *
+     * @return overruns The number of overrunning drains.
+     */
+    public long getOverrunCount() {
+        return overruns;
+    }
+
+    /**
+     * Fetches the total time drains took beyond their budgets.
+     *
+     * @param unit
+     *         The unit of the result.
+     *
+     * @return overrun The time beyond the budgets.
+     */
+    public long getOverrunTime(final @Nonnull TimeUnit unit) {
+        return unit.convert(overrunNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Nullable
+    private Runnable poll() {
+        for (int i = 0; i < lanes.length; i++) {
+            @Nullable Runnable task = lanes[i].poll();
+            if (task != null) {
+                pending[i].decrementAndGet();
+                return task;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.dispatch;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free queue for many producers and a single consumer.
+ * <p>
+ * Offering swaps the tail with a single atomic exchange, and polling touches only the head, which belongs to the
+ * consumer. An element offered while another offer is halfway done may be missed by a poll until that offer finishes.
+ *
+ * @param <E>
+ *         The type of the elements.
+ */
+@ThreadSafe
+final class MpscQueue<E> {
+
+    private final AtomicReference<Node<E>> tail;
+    private Node<E> head;
+
+    /**
+     * Creates an empty queue.
+     */
+    MpscQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Adds an element at the end of the queue. May be called from any thread.
+     *
+     * @param element
+     *         The element.
+     */
+    void offer(final E element) {
+        Node<E> node = new Node<>(element);
+        tail.getAndSet(node).lazySet(node);
+    }
+
+    /**
+     * Takes the element at the front of the queue. May only be called by the consumer.
+     *
+     * @return element The element, or null if the queue is empty.
+     */
+    @Nullable
+    E poll() {
+        @Nullable Node<E> next = head.get();
+        if (next == null) {
+            return null;
+        }
+        E element = next.element;
+        next.element = null;
+        head = next;
+        return element;
+    }
+
+    /**
+     * A node of the queue, which links to the next node.
+     *
+     * @param <E>
+     *         The type of the element.
+     */
+    @SuppressWarnings("serial")
+    private static final class Node<E> extends AtomicReference<Node<E>> {
+
+        private E element;
+
+        private Node(final E element) {
+            this.element = element;
+        }
+
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A {@link CompletableFuture} which may be handed to callback style methods directly, so that bridging a callback
+ * into a future costs a single allocation.
+ *
+ * @param <T>
+ *         The type of the result.
+ */
+@ThreadSafe
+public class CallbackFuture<T> extends CompletableFuture<T> implements FutureCallback<T>, Consumer<T> {
+
+    @Override
+    public void onSuccess(final @Nullable T result) {
+        complete(result);
+    }
+
+    @Override
+    public void onFailure(final @Nonnull Throwable t) {
+        completeExceptionally(t);
+    }
+
+    @Override
+    public void accept(final @Nullable T result) {
+        complete(result);
+    }
+
+}
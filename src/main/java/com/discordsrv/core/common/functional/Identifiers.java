@@ -0,0 +1,132 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.unit.UniquelyIdentifiable;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Comparisons of the identifiers of {@link UniquelyIdentifiable} instances.
+ * <p>
+ * Every identifier involved in a comparison is requested up front, so a comparison against remote sources takes as long
+ * as the slowest of them rather than the sum of all of them.
+ */
+public final class Identifiers {
+
+    private Identifiers() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Finds the candidates which share the identifier of an identifiable instance, for scans such as whether any online
+     * player is linked to a user.
+     *
+     * @param identifiable
+     *         The identifiable instance to compare against.
+     * @param candidates
+     *         The candidates to compare, which are copied when this method is called.
+     * @param callback
+     *         The callback to invoke with the matching candidates, in the order of the collection. If requesting an
+     *         identifier throws, it is invoked with that failure instead.
+     * @param <T>
+     *         The type of the identifiers.
+     * @param <I>
+     *         The type of the candidates.
+     */
+    public static <T, I extends UniquelyIdentifiable<T>> void matching(
+            final @Nonnull UniquelyIdentifiable<T> identifiable, final @Nonnull Collection<? extends I> candidates,
+            final @Nonnull FutureCallback<Set<I>> callback) {
+        @SuppressWarnings({"unchecked", "rawtypes"}) I[] copy = (I[]) candidates.toArray(new UniquelyIdentifiable[0]);
+        Scan<T, I> scan = new Scan<>(copy, callback);
+        try {
+            identifiable.getUniqueIdentifier(scan);
+            for (int i = 0; i < copy.length; i++) {
+                int index = i;
+                copy[i].getUniqueIdentifier(identifier -> scan.arrive(index, identifier));
+            }
+        } catch (RuntimeException e) {
+            scan.fail(e);
+        }
+    }
+
+    /**
+     * The state of one scan, counting down the identifiers which have yet to arrive. It receives the identifier of the
+     * identifiable instance itself.
+     *
+     * @param <T>
+     *         The type of the identifiers.
+     * @param <I>
+     *         The type of the candidates.
+     */
+    @SuppressWarnings("serial")
+    private static final class Scan<T, I> extends AtomicInteger implements Consumer<T> {
+
+        private final I[] candidates;
+        private final Object[] identifiers;
+        private final FutureCallback<Set<I>> callback;
+        private T identifier;
+
+        private Scan(final I[] candidates, final FutureCallback<Set<I>> callback) {
+            super(candidates.length + 1);
+            this.candidates = candidates;
+            this.identifiers = new Object[candidates.length];
+            this.callback = callback;
+        }
+
+        @Override
+        public void accept(final @Nullable T result) {
+            identifier = result;
+            arrived();
+        }
+
+        private void arrive(final int index, final @Nullable T result) {
+            identifiers[index] = result;
+            arrived();
+        }
+
+        private void arrived() {
+            if (decrementAndGet() != 0) {
+                return;
+            }
+            Set<I> matching = new LinkedHashSet<>();
+            for (int i = 0; i < candidates.length; i++) {
+                if (Objects.equals(identifier, identifiers[i])) {
+                    matching.add(candidates[i]);
+                }
+            }
+            callback.onSuccess(matching);
+        }
+
+        private void fail(final Throwable t) {
+            if (getAndSet(Integer.MIN_VALUE) > 0) {
+                callback.onFailure(t);
+            }
+        }
+
+    }
+
+}
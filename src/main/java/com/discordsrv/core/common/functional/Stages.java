@@ -0,0 +1,172 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.functional.AsyncTranslator;
+import com.discordsrv.core.api.common.functional.Translator;
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.discordsrv.core.api.common.unit.Named;
+import com.discordsrv.core.api.common.unit.UniquelyIdentifiable;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Adapters between the callback style API and {@link CompletionStage}s.
+ * <p>
+ * Every callback style lookup and linker converts to a {@link Translator} with a method reference, for instance
+ * {@code Stages.async(lookup::lookup)}, and from there to an {@link AsyncTranslator}.
+ */
+public final class Stages {
+
+    private Stages() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Adapts a callback style translator into a stage returning one.
+     *
+     * @param translator
+     *         The callback style translator.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The stage returning translator.
+     */
+    @Nonnull
+    public static <T, R> AsyncTranslator<T, R> async(final @Nonnull Translator<T, R> translator) {
+        return original -> {
+            CallbackFuture<R> future = new CallbackFuture<>();
+            translator.translate(original, future);
+            return future;
+        };
+    }
+
+    /**
+     * Adapts a stage returning translator into a callback style one.
+     *
+     * @param translator
+     *         The stage returning translator.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The callback style translator.
+     */
+    @Nonnull
+    public static <T, R> Translator<T, R> callback(final @Nonnull AsyncTranslator<T, R> translator) {
+        return (original, callback) -> whenComplete(translator.translate(original), callback);
+    }
+
+    /**
+     * Invokes a callback once a stage completes. A stage which is already complete invokes the callback immediately,
+     * without registering anything on the stage.
+     *
+     * @param stage
+     *         The stage to wait for.
+     * @param callback
+     *         The callback to invoke.
+     * @param <T>
+     *         The type of the result.
+     */
+    public static <T> void whenComplete(final @Nonnull CompletionStage<T> stage,
+                                        final @Nonnull FutureCallback<? super T> callback) {
+        if (stage instanceof CompletableFuture && ((CompletableFuture<T>) stage).isDone()) {
+            T result;
+            try {
+                result = ((CompletableFuture<T>) stage).join();
+            } catch (CompletionException e) {
+                callback.onFailure(e.getCause());
+                return;
+            } catch (RuntimeException e) {
+                callback.onFailure(e);
+                return;
+            }
+            callback.onSuccess(result);
+            return;
+        }
+        stage.whenComplete((result, t) -> {
+            if (t == null) {
+                callback.onSuccess(result);
+            } else {
+                callback.onFailure(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+            }
+        });
+    }
+
+    /**
+     * Fetches the identifier of a uniquely identifiable instance.
+     *
+     * @param identifiable
+     *         The uniquely identifiable instance.
+     * @param <T>
+     *         The type of the identifier.
+     *
+     * @return stage The stage which completes with the identifier.
+     */
+    @Nonnull
+    public static <T> CompletionStage<T> identifier(final @Nonnull UniquelyIdentifiable<T> identifiable) {
+        CallbackFuture<T> future = new CallbackFuture<>();
+        identifiable.getUniqueIdentifier(future);
+        return future;
+    }
+
+    /**
+     * Fetches the name of a named instance.
+     *
+     * @param named
+     *         The named instance.
+     *
+     * @return stage The stage which completes with the name.
+     */
+    @Nonnull
+    public static CompletionStage<CharSequence> name(final @Nonnull Named named) {
+        CallbackFuture<CharSequence> future = new CallbackFuture<>();
+        named.getName(future);
+        return future;
+    }
+
+    /**
+     * Sends a message to a messageable instance.
+     *
+     * @param messageable
+     *         The messageable instance.
+     * @param message
+     *         The message which needs to be sent.
+     * @param <M>
+     *         The type of message to be sent.
+     * @param <R>
+     *         The result type of the message.
+     *
+     * @return stage The stage which completes with the result of the message.
+     */
+    @Nonnull
+    public static <M, R> CompletionStage<R> send(final @Nonnull Messageable<M, R> messageable,
+                                                 final @Nonnull M message) {
+        CallbackFuture<R> future = new CallbackFuture<>();
+        messageable.sendMessage(message, future);
+        return future;
+    }
+
+}
@@ -0,0 +1,479 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.functional.Translator;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Composition of {@link Translator}s, such as translating a player to a user and that user to a role.
+ * <p>
+ * Null is the absence of a translation: a composed translator stops at the first stage which yields null and passes
+ * null on, without invoking the later stages or allocating anything for them. Failures of any stage, including
+ * exceptions thrown by functions, reach the {@link FutureCallback#onFailure(Throwable)} of the composed translator.
+ * <p>
+ * Translators made from functions with {@link #of(Function)} are synchronous, and adjacent synchronous stages are fused
+ * into a single function, so a pipeline only passes callbacks where a stage is actually asynchronous.
+ */
+public final class Translators {
+
+    private Translators() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Creates a synchronous translator from a function.
+     *
+     * @param function
+     *         The function, which yields null if there is no translation.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The synchronous translator.
+     */
+    @Nonnull
+    public static <T, R> Translator<T, R> of(final @Nonnull Function<? super T, ? extends R> function) {
+        return new Sync<>(function);
+    }
+
+    /**
+     * Checks whether a translator was composed only of functions, and so always answers before returning.
+     *
+     * @param translator
+     *         The translator.
+     *
+     * @return synchronous Whether the translator is synchronous.
+     */
+    public static boolean isSynchronous(final @Nonnull Translator<?, ?> translator) {
+        return translator instanceof Sync;
+    }
+
+    /**
+     * Composes two translators, translating the result of the first with the second.
+     *
+     * @param first
+     *         The first translator.
+     * @param second
+     *         The translator of the results of the first.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <M>
+     *         The type of the result of the first translator.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The composed translator.
+     */
+    @Nonnull
+    public static <T, M, R> Translator<T, R> andThen(final @Nonnull Translator<T, M> first,
+                                                     final @Nonnull Translator<M, R> second) {
+        if (first instanceof Sync) {
+            Sync<T, M> head = (Sync<T, M>) first;
+            return second instanceof Sync ? fuse(head, (Sync<M, R>) second) : new Head<>(head.function, second);
+        } else if (first instanceof Head) {
+            return reassociate((Head<T, ?, M>) first, second);
+        } else if (first instanceof Chain) {
+            return reassociate((Chain<T, ?, M>) first, second);
+        }
+        return new Chain<>(first, second);
+    }
+
+    /**
+     * Maps the results of a translator. Absent results are not passed to the function.
+     *
+     * @param translator
+     *         The translator.
+     * @param function
+     *         The function of the results, which may yield null if there is no translation.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <M>
+     *         The type of the result of the translator.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The mapping translator.
+     */
+    @Nonnull
+    public static <T, M, R> Translator<T, R> mapNullable(final @Nonnull Translator<T, M> translator,
+                                                         final @Nonnull Function<? super M, ? extends R> function) {
+        return andThen(translator, of(function));
+    }
+
+    /**
+     * Composes two translators of the same original, asking the second only when the first has no translation.
+     *
+     * @param primary
+     *         The translator to ask first.
+     * @param secondary
+     *         The translator to ask when the primary yields null.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The composed translator.
+     */
+    @Nonnull
+    public static <T, R> Translator<T, R> fallback(final @Nonnull Translator<T, R> primary,
+                                                   final @Nonnull Translator<T, R> secondary) {
+        if (primary instanceof Sync && secondary instanceof Sync) {
+            Function<? super T, ? extends R> first = ((Sync<T, R>) primary).function;
+            Function<? super T, ? extends R> second = ((Sync<T, R>) secondary).function;
+            return new Sync<T, R>(original -> {
+                R result = first.apply(original);
+                return result != null ? result : second.apply(original);
+            });
+        }
+        return new Fallback<>(primary, secondary);
+    }
+
+    /**
+     * Composes two translators of the same original which run at the same time, combining both of their results.
+     * If either yields null, so does the composed translator, as soon as that null arrives.
+     *
+     * @param first
+     *         The first translator.
+     * @param second
+     *         The second translator.
+     * @param combiner
+     *         The function combining both results, which may yield null if there is no translation.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <A>
+     *         The type of the result of the first translator.
+     * @param <B>
+     *         The type of the result of the second translator.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The composed translator.
+     */
+    @Nonnull
+    public static <T, A, B, R> Translator<T, R> zip(
+            final @Nonnull Translator<T, A> first, final @Nonnull Translator<T, B> second,
+            final @Nonnull BiFunction<? super A, ? super B, ? extends R> combiner) {
+        if (first instanceof Sync && second instanceof Sync) {
+            Function<? super T, ? extends A> left = ((Sync<T, A>) first).function;
+            Function<? super T, ? extends B> right = ((Sync<T, B>) second).function;
+            return new Sync<T, R>(original -> {
+                A a = left.apply(original);
+                if (a == null) {
+                    return null;
+                }
+                B b = right.apply(original);
+                return b == null ? null : combiner.apply(a, b);
+            });
+        }
+        return (original, callback) -> {
+            Join<A, B, R> join = new Join<>(combiner, callback);
+            first.translate(original, join);
+            second.translate(original, join.second);
+        };
+    }
+
+    private static <T, M, R> Sync<T, R> fuse(final Sync<T, M> first, final Sync<M, R> second) {
+        Function<? super T, ? extends M> head = first.function;
+        Function<? super M, ? extends R> tail = second.function;
+        return new Sync<T, R>(original -> {
+            M middle = head.apply(original);
+            return middle == null ? null : tail.apply(middle);
+        });
+    }
+
+    private static <T, N, M, R> Translator<T, R> reassociate(final Head<T, N, M> first,
+                                                             final Translator<M, R> second) {
+        return new Head<>(first.function, andThen(first.second, second));
+    }
+
+    private static <T, N, M, R> Translator<T, R> reassociate(final Chain<T, N, M> first,
+                                                             final Translator<M, R> second) {
+        return new Chain<>(first.first, andThen(first.second, second));
+    }
+
+    /**
+     * Applies a function on behalf of a translator, passing a thrown exception to the callback.
+     *
+     * @param function
+     *         The function.
+     * @param original
+     *         The original instance to translate.
+     * @param callback
+     *         The callback to invoke with the result or failure.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     */
+    private static <T, R> void apply(final Function<? super T, ? extends R> function, final T original,
+                                     final FutureCallback<R> callback) {
+        R result;
+        try {
+            result = function.apply(original);
+        } catch (RuntimeException e) {
+            callback.onFailure(e);
+            return;
+        }
+        callback.onSuccess(result);
+    }
+
+    /**
+     * A synchronous translator.
+     *
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     */
+    private static final class Sync<T, R> implements Translator<T, R> {
+
+        private final Function<? super T, ? extends R> function;
+
+        private Sync(final Function<? super T, ? extends R> function) {
+            this.function = function;
+        }
+
+        @Override
+        public void translate(final @Nonnull T original, final @Nonnull FutureCallback<R> callback) {
+            apply(function, original, callback);
+        }
+
+    }
+
+    /**
+     * A synchronous stage followed by an asynchronous one, which passes the callback straight to the latter.
+     *
+     * @param <T>
+     *         The original type to translate from.
+     * @param <M>
+     *         The type of the result of the synchronous stage.
+     * @param <R>
+     *         The type of the result of the translation.
+     */
+    private static final class Head<T, M, R> implements Translator<T, R> {
+
+        private final Function<? super T, ? extends M> function;
+        private final Translator<M, R> second;
+
+        private Head(final Function<? super T, ? extends M> function, final Translator<M, R> second) {
+            this.function = function;
+            this.second = second;
+        }
+
+        @Override
+        public void translate(final @Nonnull T original, final @Nonnull FutureCallback<R> callback) {
+            M middle;
+            try {
+                middle = function.apply(original);
+            } catch (RuntimeException e) {
+                callback.onFailure(e);
+                return;
+            }
+            if (middle == null) {
+                callback.onSuccess(null);
+            } else {
+                second.translate(middle, callback);
+            }
+        }
+
+    }
+
+    /**
+     * An asynchronous stage followed by any other.
+     *
+     * @param <T>
+     *         The original type to translate from.
+     * @param <M>
+     *         The type of the result of the first stage.
+     * @param <R>
+     *         The type of the result of the translation.
+     */
+    private static final class Chain<T, M, R> implements Translator<T, R> {
+
+        private final Translator<T, M> first;
+        private final Translator<M, R> second;
+
+        private Chain(final Translator<T, M> first, final Translator<M, R> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void translate(final @Nonnull T original, final @Nonnull FutureCallback<R> callback) {
+            first.translate(original, new FutureCallback<M>() {
+                @Override
+                public void onSuccess(final @Nullable M middle) {
+                    if (middle == null) {
+                        callback.onSuccess(null);
+                    } else {
+                        second.translate(middle, callback);
+                    }
+                }
+
+                @Override
+                public void onFailure(final @Nonnull Throwable t) {
+                    callback.onFailure(t);
+                }
+            });
+        }
+
+    }
+
+    /**
+     * Two translators of the same original, the second asked when the first has no translation.
+     *
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     */
+    private static final class Fallback<T, R> implements Translator<T, R> {
+
+        private final Translator<T, R> primary;
+        private final Translator<T, R> secondary;
+
+        private Fallback(final Translator<T, R> primary, final Translator<T, R> secondary) {
+            this.primary = primary;
+            this.secondary = secondary;
+        }
+
+        @Override
+        public void translate(final @Nonnull T original, final @Nonnull FutureCallback<R> callback) {
+            if (primary instanceof Sync) {
+                R result;
+                try {
+                    result = ((Sync<T, R>) primary).function.apply(original);
+                } catch (RuntimeException e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                if (result == null) {
+                    secondary.translate(original, callback);
+                } else {
+                    callback.onSuccess(result);
+                }
+                return;
+            }
+            primary.translate(original, new FutureCallback<R>() {
+                @Override
+                public void onSuccess(final @Nullable R result) {
+                    if (result == null) {
+                        secondary.translate(original, callback);
+                    } else {
+                        callback.onSuccess(result);
+                    }
+                }
+
+                @Override
+                public void onFailure(final @Nonnull Throwable t) {
+                    callback.onFailure(t);
+                }
+            });
+        }
+
+    }
+
+    /**
+     * The state of one zipped translation, counting down the results which have yet to arrive. It receives the result
+     * of the first translator itself.
+     *
+     * @param <A>
+     *         The type of the result of the first translator.
+     * @param <B>
+     *         The type of the result of the second translator.
+     * @param <R>
+     *         The type of the result of the translation.
+     */
+    @SuppressWarnings("serial")
+    private static final class Join<A, B, R> extends AtomicInteger implements FutureCallback<A> {
+
+        private final BiFunction<? super A, ? super B, ? extends R> combiner;
+        private final FutureCallback<R> callback;
+        private final FutureCallback<B> second = new FutureCallback<B>() {
+            @Override
+            public void onSuccess(final @Nullable B result) {
+                if (result == null) {
+                    absent();
+                } else {
+                    b = result;
+                    arrived();
+                }
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                Join.this.onFailure(t);
+            }
+        };
+        private A a;
+        private B b;
+
+        private Join(final BiFunction<? super A, ? super B, ? extends R> combiner, final FutureCallback<R> callback) {
+            super(2);
+            this.combiner = combiner;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(final @Nullable A result) {
+            if (result == null) {
+                absent();
+            } else {
+                a = result;
+                arrived();
+            }
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            if (getAndSet(-1) > 0) {
+                callback.onFailure(t);
+            }
+        }
+
+        private void absent() {
+            if (getAndSet(-1) > 0) {
+                callback.onSuccess(null);
+            }
+        }
+
+        private void arrived() {
+            if (decrementAndGet() != 0) {
+                return;
+            }
+            R result;
+            try {
+                result = combiner.apply(a, b);
+            } catch (RuntimeException e) {
+                callback.onFailure(e);
+                return;
+            }
+            callback.onSuccess(result);
+        }
+
+    }
+
+}
@@ -0,0 +1,502 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.unit;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatMessage;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.exceptions.RateLimitedException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Spaces out the messages sent to {@link Messageable} instances, with a token bucket for each key (such as a channel)
+ * and one shared by every key.
+ * <p>
+ * Messages which cannot be sent immediately wait in a bounded queue for their key, and once it is full the
+ * {@link DropPolicy} decides which message fails. Queues are drained in order, taking turns between keys; each drain
+ * starts with the key after the last one served, so no key is always first. A send which fails because of a rate limit
+ * halves the rate of both buckets, withholds the key's tokens for the time the API asked for, and is queued again at
+ * the front of its queue, where it counts as the oldest message if the queue is full; the rates recover step by step as
+ * sends succeed.
+ * <p>
+ * Queued messages are sent by the scheduler given at creation. Without one, {@link #drain()} must be called instead,
+ * which together with a fake {@link Ticker} makes the limiter deterministic.
+ */
+@ThreadSafe
+public class RateLimiter {
+
+    /**
+     * The limit shared by every key when none is specified, matching the global limit of Discord.
+     */
+    public static final Limit DEFAULT_GLOBAL_LIMIT = new Limit(50, 1, TimeUnit.SECONDS);
+
+    /**
+     * The limit of each key when none is specified, matching the limit of Discord for messages within a channel.
+     */
+    public static final Limit DEFAULT_KEY_LIMIT = new Limit(5, 5, TimeUnit.SECONDS);
+
+    /**
+     * The capacity of the queue of each key when none is specified.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+    private static final int MAXIMUM_ATTEMPTS = 3;
+
+    private final @Nullable ScheduledExecutorService scheduler;
+    private final Ticker ticker;
+    private final Limit keyLimit;
+    private final int queueCapacity;
+    private final DropPolicy dropPolicy;
+    private final ToLongFunction<Throwable> retryAfter;
+    @GuardedBy("this")
+    private final TokenBucket global;
+    @GuardedBy("this")
+    private final Map<Object, Lane> lanes = new LinkedHashMap<>();
+    @GuardedBy("this")
+    private int cursor;
+    @GuardedBy("this")
+    private @Nullable ScheduledFuture<?> wakeup;
+    @GuardedBy("this")
+    private long wakeupTime;
+
+    /**
+     * Creates a limiter with the limits of Discord, which drops the oldest messages once a queue is full.
+     *
+     * @param scheduler
+     *         The scheduler to send queued messages with.
+     */
+    public RateLimiter(final ScheduledExecutorService scheduler) {
+        this(scheduler, Ticker.systemTicker(), DEFAULT_GLOBAL_LIMIT, DEFAULT_KEY_LIMIT, DEFAULT_QUEUE_CAPACITY,
+            DropPolicy.DROP_OLDEST, RateLimiter::retryAfter);
+    }
+
+    /**
+     * Creates a limiter.
+     *
+     * @param scheduler
+     *         The scheduler to send queued messages with, or null if {@link #drain()} is called instead.
+     * @param ticker
+     *         The source of the current time.
+     * @param globalLimit
+     *         The limit shared by every key.
+     * @param keyLimit
+     *         The limit of each key.
+     * @param queueCapacity
+     *         The number of messages which may wait for each key.
+     * @param dropPolicy
+     *         The policy for when the queue of a key is full.
+     * @param retryAfter
+     *         The function which tells how many milliseconds a failure asks to wait for, or a negative number if the
+     *         failure is not caused by a rate limit.
+     */
+    public RateLimiter(final @Nullable ScheduledExecutorService scheduler, final Ticker ticker,
+                       final Limit globalLimit, final Limit keyLimit, final int queueCapacity,
+                       final DropPolicy dropPolicy, final ToLongFunction<Throwable> retryAfter) {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Negative queue capacity: " + queueCapacity);
+        }
+        this.scheduler = scheduler;
+        this.ticker = ticker;
+        this.keyLimit = keyLimit;
+        this.queueCapacity = queueCapacity;
+        this.dropPolicy = dropPolicy;
+        this.retryAfter = retryAfter;
+        this.global = new TokenBucket(globalLimit, ticker.read());
+    }
+
+    /**
+     * Fetches how long a failure asks to wait before retrying, recognising the {@link RateLimitedException} of JDA.
+     *
+     * @param failure
+     *         The failure of a send.
+     *
+     * @return retryAfter The time to wait in milliseconds, or -1 if the failure is not caused by a rate limit.
+     */
+    public static long retryAfter(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RateLimitedException) {
+                return ((RateLimitedException) cause).getRetryAfter();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Wraps a messageable, so that its messages are limited under the given key.
+     *
+     * @param key
+     *         The key to limit the messages under.
+     * @param target
+     *         The messageable to limit.
+     * @param <M>
+     *         The type of message to be sent.
+     * @param <R>
+     *         The result type of a message.
+     *
+     * @return limited The limited messageable.
+     */
+    public <M, R> Messageable<M, R> limit(final Object key, final Messageable<M, R> target) {
+        return (message, callback) -> submit(key, target, message, callback);
+    }
+
+    /**
+     * Wraps a chat, so that its messages are limited under its unique identifier.
+     *
+     * @param chat
+     *         The chat to limit.
+     *
+     * @return limited The limited chat.
+     */
+    public Chat limit(final Chat chat) {
+        return new LimitedChat(chat);
+    }
+
+    /**
+     * Sends a message once both buckets allow it.
+     *
+     * @param key
+     *         The key to limit the message under.
+     * @param target
+     *         The messageable to send the message to.
+     * @param message
+     *         The message to send.
+     * @param callback
+     *         The callback to invoke with the result of the send.
+     * @param <M>
+     *         The type of message to be sent.
+     * @param <R>
+     *         The result type of a message.
+     */
+    public <M, R> void submit(final Object key, final Messageable<M, R> target, final M message,
+                              final FutureCallback<R> callback) {
+        Send<M, R> send = new Send<>(key, target, message, callback);
+        @Nullable Send<?, ?> dropped = null;
+        boolean ready = false;
+        synchronized (this) {
+            long now = ticker.read();
+            Lane lane = lane(key, now);
+            if (lane.queue.isEmpty() && lane.bucket.delay(now) == 0 && global.delay(now) == 0) {
+                lane.bucket.acquire(now);
+                global.acquire(now);
+                ready = true;
+            } else if (lane.queue.size() < queueCapacity) {
+                lane.queue.add(send);
+                wake(now, delay(lane, now));
+            } else if (dropPolicy == DropPolicy.DROP_OLDEST && !lane.queue.isEmpty()) {
+                dropped = lane.queue.poll();
+                lane.queue.add(send);
+            } else {
+                dropped = send;
+            }
+        }
+        if (ready) {
+            send.dispatch();
+        } else if (dropped != null) {
+            dropped.callback.onFailure(new RejectedExecutionException("Queue for " + key + " is full"));
+        }
+    }
+
+    /**
+     * Sends every queued message which the buckets allow now.
+     *
+     * @return delay The time until the next queued message may be sent in nanoseconds, or -1 if none are queued.
+     */
+    public long drain() {
+        List<Send<?, ?>> ready = new ArrayList<>();
+        long next = -1;
+        synchronized (this) {
+            long now = ticker.read();
+            Lane[] order = lanes.values().toArray(new Lane[0]);
+            int start = order.length == 0 ? 0 : cursor % order.length;
+            int served = -1;
+            boolean progress = true;
+            while (progress && global.delay(now) == 0) {
+                progress = false;
+                for (int i = 0; i < order.length; i++) {
+                    int index = (start + i) % order.length;
+                    Lane lane = order[index];
+                    if (!lane.queue.isEmpty() && lane.bucket.delay(now) == 0 && global.delay(now) == 0) {
+                        lane.bucket.acquire(now);
+                        global.acquire(now);
+                        ready.add(lane.queue.poll());
+                        served = index;
+                        progress = true;
+                    }
+                }
+            }
+            if (served >= 0) {
+                cursor = served + 1;
+            }
+            Iterator<Lane> iterator = lanes.values().iterator();
+            while (iterator.hasNext()) {
+                Lane lane = iterator.next();
+                if (!lane.queue.isEmpty()) {
+                    long delay = delay(lane, now);
+                    next = next < 0 ? delay : Math.min(next, delay);
+                } else if (lane.bucket.isIdle(now)) {
+                    iterator.remove();
+                }
+            }
+            wake(now, next);
+        }
+        ready.forEach(Send::dispatch);
+        return next;
+    }
+
+    /**
+     * Fetches the number of messages waiting to be sent.
+     *
+     * @return queued The number of queued messages.
+     */
+    public synchronized int queued() {
+        return lanes.values().stream().mapToInt(lane -> lane.queue.size()).sum();
+    }
+
+    @GuardedBy("this")
+    private Lane lane(final Object key, final long now) {
+        return lanes.computeIfAbsent(key, k -> new Lane(new TokenBucket(keyLimit, now)));
+    }
+
+    @GuardedBy("this")
+    private long delay(final Lane lane, final long now) {
+        return Math.max(lane.bucket.delay(now), global.delay(now));
+    }
+
+    @GuardedBy("this")
+    private void wake(final long now, final long delay) {
+        if (scheduler == null || delay < 0) {
+            return;
+        }
+        long time = now + delay;
+        if (wakeup != null) {
+            if (time - wakeupTime >= 0) {
+                return;
+            }
+            wakeup.cancel(false);
+        }
+        wakeupTime = time;
+        wakeup = scheduler.schedule(() -> {
+            synchronized (this) {
+                wakeup = null;
+            }
+            drain();
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void succeeded(final Object key) {
+        @Nullable Lane lane = lanes.get(key);
+        if (lane != null) {
+            lane.bucket.recover();
+        }
+        global.recover();
+    }
+
+    @Nullable
+    private synchronized Send<?, ?> rateLimited(final Send<?, ?> send, final long retryAfterMillis) {
+        long now = ticker.read();
+        Lane lane = lane(send.key, now);
+        lane.bucket.backOff(now, TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+        global.slowDown();
+        @Nullable Send<?, ?> dropped = null;
+        if (lane.queue.size() >= queueCapacity) {
+            if (dropPolicy == DropPolicy.DROP_OLDEST || lane.queue.isEmpty()) {
+                dropped = send;
+            } else {
+                dropped = lane.queue.pollLast();
+            }
+        }
+        if (dropped != send) {
+            lane.queue.addFirst(send);
+        }
+        wake(now, delay(lane, now));
+        return dropped;
+    }
+
+    /**
+     * A limit of a token bucket, as a number of permits per period.
+     */
+    @Immutable
+    public static final class Limit {
+
+        private final int permits;
+        private final long period;
+
+        /**
+         * Creates a limit.
+         *
+         * @param permits
+         *         The number of messages which may be sent per period, which may also be sent all at once.
+         * @param period
+         *         The length of the period.
+         * @param unit
+         *         The unit of the period.
+         */
+        public Limit(final int permits, final long period, final @Nonnull TimeUnit unit) {
+            if (permits < 1 || period < 1) {
+                throw new IllegalArgumentException("Limits must be positive");
+            }
+            this.permits = permits;
+            this.period = unit.toNanos(period);
+        }
+
+        /**
+         * Fetches the number of permits per period.
+         *
+         * @return permits The number of permits.
+         */
+        public int getPermits() {
+            return permits;
+        }
+
+        /**
+         * Fetches the length of the period.
+         *
+         * @return period The length of the period in nanoseconds.
+         */
+        public long getPeriod() {
+            return period;
+        }
+
+    }
+
+    /**
+     * The bucket and queue of a single key.
+     */
+    private static final class Lane {
+
+        private final TokenBucket bucket;
+        private final Deque<Send<?, ?>> queue = new ArrayDeque<>();
+
+        Lane(final TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+    }
+
+    /**
+     * A message waiting to be sent.
+     *
+     * @param <M>
+     *         The type of message to be sent.
+     * @param <R>
+     *         The result type of the message.
+     */
+    private final class Send<M, R> implements FutureCallback<R> {
+
+        private final Object key;
+        private final Messageable<M, R> target;
+        private final M message;
+        private final FutureCallback<R> callback;
+        private int attempts;
+
+        Send(final Object key, final Messageable<M, R> target, final M message, final FutureCallback<R> callback) {
+            this.key = key;
+            this.target = target;
+            this.message = message;
+            this.callback = callback;
+        }
+
+        void dispatch() {
+            attempts++;
+            try {
+                target.sendMessage(message, this);
+            } catch (RuntimeException e) {
+                callback.onFailure(e);
+            }
+        }
+
+        @Override
+        public void onSuccess(final @Nullable R result) {
+            succeeded(key);
+            callback.onSuccess(result);
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            long wait = retryAfter.applyAsLong(t);
+            if (wait >= 0 && attempts < MAXIMUM_ATTEMPTS) {
+                @Nullable Send<?, ?> dropped = rateLimited(this, wait);
+                if (dropped != null) {
+                    dropped.callback.onFailure(new RejectedExecutionException("Queue for " + key + " is full"));
+                }
+            } else {
+                callback.onFailure(t);
+            }
+        }
+
+    }
+
+    /**
+     * A chat whose messages are limited under its unique identifier.
+     */
+    private final class LimitedChat implements Chat {
+
+        private final Chat chat;
+        private final BiConsumer<String, Map.Entry<ChatMessage<?>, FutureCallback<Void>>> submitter = this::submit;
+
+        LimitedChat(final Chat chat) {
+            this.chat = chat;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void sendMessage(final @Nonnull ChatMessage message,
+                                final @Nonnull FutureCallback<Void> resultCallback) {
+            DirectlyIdentifiable.identify(chat, Maps.immutableEntry(message, resultCallback), submitter);
+        }
+
+        private void submit(final String identifier, final Map.Entry<ChatMessage<?>, FutureCallback<Void>> send) {
+            RateLimiter.this.submit(identifier, chat, send.getKey(), send.getValue());
+        }
+
+        @Override
+        public void getName(final @Nonnull Consumer<CharSequence> callback) {
+            chat.getName(callback);
+        }
+
+        @Override
+        public void getUniqueIdentifier(final @Nonnull Consumer<String> callback) {
+            chat.getUniqueIdentifier(callback);
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.unit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A token bucket, kept as the theoretical arrival time of the next token (the generic cell rate algorithm), so that
+ * it needs no refilling.
+ * <p>
+ * The interval between tokens grows when the bucket is told to slow down, and shrinks back towards the configured
+ * interval as sends succeed again.
+ */
+@NotThreadSafe
+final class TokenBucket {
+
+    private static final long MAXIMUM_SLOWDOWN = 16;
+    private static final long RECOVERY_STEPS = 16;
+
+    private final long interval;
+    private final int burst;
+    private long current;
+    private long arrival;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param limit
+     *         The limit which the bucket enforces.
+     * @param now
+     *         The current time, in nanoseconds.
+     */
+    TokenBucket(final RateLimiter.Limit limit, final long now) {
+        interval = Math.max(1, limit.getPeriod() / limit.getPermits());
+        burst = limit.getPermits();
+        current = interval;
+        arrival = now;
+    }
+
+    /**
+     * Fetches how long it will take for a token to become available.
+     *
+     * @param now
+     *         The current time, in nanoseconds.
+     *
+     * @return delay The delay in nanoseconds, or zero if a token is available now.
+     */
+    long delay(final long now) {
+        long delay = arrival - (burst - 1) * current - now;
+        return delay > 0 ? delay : 0;
+    }
+
+    /**
+     * Takes a token, which must be available.
+     *
+     * @param now
+     *         The current time, in nanoseconds.
+     */
+    void acquire(final long now) {
+        arrival = (arrival - now < 0 ? now : arrival) + current;
+    }
+
+    /**
+     * Halves the rate of this bucket.
+     */
+    void slowDown() {
+        current = Math.min(current * 2, interval * MAXIMUM_SLOWDOWN);
+    }
+
+    /**
+     * Halves the rate of this bucket and withholds every token for the given time.
+     *
+     * @param now
+     *         The current time, in nanoseconds.
+     * @param pause
+     *         The time to withhold tokens for, in nanoseconds.
+     */
+    void backOff(final long now, final long pause) {
+        slowDown();
+        long resume = now + pause + (burst - 1) * current;
+        if (resume - arrival > 0) {
+            arrival = resume;
+        }
+    }
+
+    /**
+     * Moves the rate of this bucket a step back towards its configured rate.
+     */
+    void recover() {
+        current = Math.max(interval, current - interval / RECOVERY_STEPS);
+    }
+
+    /**
+     * Checks whether this bucket is full at its configured rate, and thus no different from a new bucket.
+     *
+     * @param now
+     *         The current time, in nanoseconds.
+     *
+     * @return idle Whether this bucket is idle.
+     */
+    boolean isIdle(final long now) {
+        return current == interval && arrival - now <= 0;
+    }
+
+}
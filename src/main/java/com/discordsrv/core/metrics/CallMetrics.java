@@ -0,0 +1,142 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.metrics;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The calls made through a single instrumented path: how many were made, how each ended, and how long they took.
+ * <p>
+ * Every count is a {@link LongAdder}, which spreads contended updates over several cells, so recording a call costs a
+ * handful of uncontended additions. Latencies are counted in buckets of which there are four per power of two
+ * nanoseconds, so a percentile is accurate to within a quarter of its value.
+ */
+@ThreadSafe
+public class CallMetrics {
+
+    /** The number of latency buckets per power of two. */
+    static final int SUB_BUCKETS = 4;
+    /** The number of latency buckets. */
+    static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - 2);
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder nulls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder[] latencies = new LongAdder[BUCKETS];
+
+    /**
+     * Creates empty metrics.
+     *
+     * @param name
+     *         The name of the instrumented path.
+     */
+    public CallMetrics(final String name) {
+        this.name = name;
+        for (int i = 0; i < BUCKETS; i++) {
+            latencies[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a call which produced a result.
+     *
+     * @param nanos
+     *         The time the call took, in nanoseconds.
+     * @param empty
+     *         Whether the result was null.
+     */
+    public void success(final long nanos, final boolean empty) {
+        (empty ? nulls : successes).increment();
+        record(nanos);
+    }
+
+    /**
+     * Records a call which failed.
+     *
+     * @param nanos
+     *         The time the call took, in nanoseconds.
+     */
+    public void failure(final long nanos) {
+        failures.increment();
+        record(nanos);
+    }
+
+    /**
+     * Takes a snapshot of these metrics.
+     * <p>
+     * The counts are read one after another, so calls completing meanwhile may be counted by some but not others.
+     *
+     * @return snapshot The snapshot.
+     */
+    public CallSnapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = latencies[i].sum();
+        }
+        return new CallSnapshot(name, calls.sum(), successes.sum(), nulls.sum(), failures.sum(), totalNanos.sum(),
+            buckets);
+    }
+
+    /**
+     * Fetches the bucket which counts the given latency. Latencies below four nanoseconds have a bucket each, and every
+     * power of two above that is split into four buckets.
+     *
+     * @param nanos
+     *         The latency in nanoseconds.
+     *
+     * @return bucket The index of the bucket.
+     */
+    static int bucket(final long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        return SUB_BUCKETS * (exponent - 1) + (int) ((nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Fetches the largest latency which the given bucket counts.
+     *
+     * @param bucket
+     *         The index of the bucket.
+     *
+     * @return nanos The latency in nanoseconds.
+     */
+    static long upperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket >= BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    private void record(final long nanos) {
+        calls.increment();
+        totalNanos.add(nanos);
+        latencies[bucket(nanos)].increment();
+    }
+
+}
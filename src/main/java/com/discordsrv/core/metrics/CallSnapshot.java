@@ -0,0 +1,191 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.metrics;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The state of some {@link CallMetrics} at one point in time, for a host plugin to export.
+ */
+@Immutable
+public final class CallSnapshot {
+
+    private final String name;
+    private final long calls;
+    private final long successes;
+    private final long nulls;
+    private final long failures;
+    private final long totalNanos;
+    private final long[] buckets;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param name
+     *         The name of the instrumented path.
+     * @param calls
+     *         The number of completed calls.
+     * @param successes
+     *         The number of calls which produced a result.
+     * @param nulls
+     *         The number of calls which produced a null result.
+     * @param failures
+     *         The number of calls which failed.
+     * @param totalNanos
+     *         The time taken by all calls, in nanoseconds.
+     * @param buckets
+     *         The number of calls in each latency bucket.
+     */
+    CallSnapshot(final String name, final long calls, final long successes, final long nulls, final long failures,
+                 final long totalNanos, final long[] buckets) {
+        this.name = name;
+        this.calls = calls;
+        this.successes = successes;
+        this.nulls = nulls;
+        this.failures = failures;
+        this.totalNanos = totalNanos;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Fetches the name of the instrumented path.
+     *
+     * @return name The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Fetches the number of completed calls.
+     *
+     * @return calls The number of calls.
+     */
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Fetches the number of calls which produced a non-null result.
+     *
+     * @return successes The number of calls.
+     */
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * Fetches the number of calls which produced a null result, usually meaning nothing was found.
+     *
+     * @return nulls The number of calls.
+     */
+    public long getNulls() {
+        return nulls;
+    }
+
+    /**
+     * Fetches the number of calls which failed.
+     *
+     * @return failures The number of calls.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Fetches the time taken by all calls.
+     *
+     * @return totalNanos The time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Fetches the mean time taken by a call.
+     *
+     * @return mean The time in nanoseconds, or zero if no call completed.
+     */
+    public double getMeanNanos() {
+        return calls == 0 ? 0 : (double) totalNanos / calls;
+    }
+
+    /**
+     * Fetches an upper bound of the time taken by the given share of calls.
+     *
+     * @param quantile
+     *         The share of calls, from zero to one.
+     *
+     * @return nanos The time in nanoseconds, or zero if no call was recorded.
+     */
+    public long getQuantileNanos(final double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile out of range: " + quantile);
+        }
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        int last = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] == 0) {
+                continue;
+            }
+            seen += buckets[i];
+            last = i;
+            if (seen >= rank) {
+                break;
+            }
+        }
+        return CallMetrics.upperBound(last);
+    }
+
+    /**
+     * Fetches the number of calls in each latency bucket. Bucket {@code i} holds the calls which took at most {@link
+     * #getBucketBound(int) getBucketBound(i)} nanoseconds, and more than the bound of the bucket before it.
+     *
+     * @return buckets A copy of the counts.
+     */
+    public long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    /**
+     * Fetches the largest latency counted by a bucket.
+     *
+     * @param bucket
+     *         The index of the bucket.
+     *
+     * @return nanos The latency in nanoseconds.
+     */
+    public static long getBucketBound(final int bucket) {
+        return CallMetrics.upperBound(bucket);
+    }
+
+    @Override
+    public String toString() {
+        return name + "{calls=" + calls + ", successes=" + successes + ", nulls=" + nulls + ", failures=" + failures
+            + ", p50=" + getQuantileNanos(0.5) + "ns, p99=" + getQuantileNanos(0.99) + "ns}";
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.metrics;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLinker;
+import com.discordsrv.core.api.common.functional.Translator;
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.api.user.PlayerUserLookup;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the {@link CallMetrics} of every instrumented path, and wraps the library's interfaces so that their calls are
+ * measured.
+ * <p>
+ * A wrapped call is timed from the moment it is made until its callback is invoked, and counted as a success, a null
+ * result or a failure accordingly. A call which throws instead of invoking its callback is counted as a failure. The
+ * wrappers add no behaviour of their own, so they can be placed around any implementation.
+ */
+@ThreadSafe
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, CallMetrics> metrics = new ConcurrentHashMap<>();
+    private final Ticker ticker;
+
+    /**
+     * Creates a registry which times calls with the system clock.
+     */
+    public MetricsRegistry() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a registry which times calls with the given clock.
+     *
+     * @param ticker
+     *         The clock to read the time from.
+     */
+    public MetricsRegistry(final @Nonnull Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    /**
+     * Fetches the metrics of a path, creating them if they do not exist yet.
+     *
+     * @param name
+     *         The name of the path.
+     *
+     * @return metrics The metrics.
+     */
+    public CallMetrics metrics(final @Nonnull String name) {
+        CallMetrics existing = metrics.get(name);
+        return existing != null ? existing : metrics.computeIfAbsent(name, CallMetrics::new);
+    }
+
+    /**
+     * Takes a snapshot of the metrics of every path.
+     *
+     * @return snapshots The snapshots, sorted by name.
+     */
+    public SortedMap<String, CallSnapshot> snapshot() {
+        SortedMap<String, CallSnapshot> snapshots = new TreeMap<>();
+        metrics.forEach((name, path) -> snapshots.put(name, path.snapshot()));
+        return Collections.unmodifiableSortedMap(snapshots);
+    }
+
+    /**
+     * Measures the calls made to a translator. Single translations are recorded under the name, and bulk translations
+     * under {@code name + ".all"}.
+     *
+     * @param name
+     *         The name to record the calls under.
+     * @param translator
+     *         The translator to measure.
+     * @param <T>
+     *         The original type to translate from.
+     * @param <R>
+     *         The type of the result of the translation.
+     *
+     * @return translator The measured translator.
+     */
+    public <T, R> Translator<T, R> translator(final @Nonnull String name, final @Nonnull Translator<T, R> translator) {
+        CallMetrics path = metrics(name);
+        CallMetrics all = metrics(name + ".all");
+        return new Translator<T, R>() {
+            @Override
+            public void translate(final T original, final FutureCallback<R> callback) {
+                measure(path, callback, timed -> translator.translate(original, timed));
+            }
+
+            @Override
+            public void translateAll(final Collection<? extends T> originals,
+                                     final FutureCallback<Map<T, R>> callback) {
+                measure(all, callback, timed -> translator.translateAll(originals, timed));
+            }
+        };
+    }
+
+    /**
+     * Measures the calls made to a lookup. Single lookups are recorded under {@code name + ".user"} and {@code name +
+     * ".player"}, and bulk lookups under {@code name + ".users"} and {@code name + ".players"}.
+     *
+     * @param name
+     *         The prefix of the names to record the calls under.
+     * @param lookup
+     *         The lookup to measure.
+     *
+     * @return lookup The measured lookup.
+     */
+    public PlayerUserLookup lookup(final @Nonnull String name, final @Nonnull PlayerUserLookup lookup) {
+        CallMetrics user = metrics(name + ".user");
+        CallMetrics player = metrics(name + ".player");
+        CallMetrics users = metrics(name + ".users");
+        CallMetrics players = metrics(name + ".players");
+        return new PlayerUserLookup() {
+            @Override
+            public void lookup(final long id, final FutureCallback<User> callback) {
+                measure(user, callback, timed -> lookup.lookup(id, timed));
+            }
+
+            @Override
+            public void lookup(final String id, final FutureCallback<MinecraftPlayer> callback) {
+                measure(player, callback, timed -> lookup.lookup(id, timed));
+            }
+
+            @Override
+            public void lookupUsers(final Collection<Long> ids, final FutureCallback<Map<Long, User>> callback) {
+                measure(users, callback, timed -> lookup.lookupUsers(ids, timed));
+            }
+
+            @Override
+            public void lookupPlayers(final Collection<String> ids,
+                                      final FutureCallback<Map<String, MinecraftPlayer>> callback) {
+                measure(players, callback, timed -> lookup.lookupPlayers(ids, timed));
+            }
+        };
+    }
+
+    /**
+     * Measures the calls made to a linker. Translations to channels are recorded under {@code name + ".channel"}, and
+     * translations to chats under {@code name + ".chat"}.
+     *
+     * @param name
+     *         The prefix of the names to record the calls under.
+     * @param linker
+     *         The linker to measure.
+     *
+     * @return linker The measured linker.
+     */
+    public ChatChannelLinker linker(final @Nonnull String name, final @Nonnull ChatChannelLinker linker) {
+        CallMetrics channel = metrics(name + ".channel");
+        CallMetrics chat = metrics(name + ".chat");
+        return new ChatChannelLinker() {
+            @Override
+            public void translate(final Chat original, final FutureCallback<TextChannel> callback) {
+                measure(channel, callback, timed -> linker.translate(original, timed));
+            }
+
+            @Override
+            public void translate(final TextChannel original, final FutureCallback<Chat> callback) {
+                measure(chat, callback, timed -> linker.translate(original, timed));
+            }
+        };
+    }
+
+    /**
+     * Measures the messages sent to a messageable.
+     *
+     * @param name
+     *         The name to record the messages under.
+     * @param messageable
+     *         The messageable to measure.
+     * @param <M>
+     *         The type of message to be sent.
+     * @param <R>
+     *         The result type of a message.
+     *
+     * @return messageable The measured messageable.
+     */
+    public <M, R> Messageable<M, R> messageable(final @Nonnull String name,
+                                                final @Nonnull Messageable<M, R> messageable) {
+        CallMetrics path = metrics(name);
+        return (message, callback) -> measure(path, callback, timed -> messageable.sendMessage(message, timed));
+    }
+
+    private <R> void measure(final CallMetrics path, final FutureCallback<R> callback, final Call<R> call) {
+        Timed<R> timed = new Timed<>(path, ticker.read(), callback);
+        try {
+            call.invoke(timed);
+        } catch (RuntimeException | Error e) {
+            if (!timed.completed) {
+                timed.completed = true;
+                path.failure(ticker.read() - timed.start);
+            }
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call<R> {
+
+        void invoke(FutureCallback<R> callback);
+
+    }
+
+    @ThreadSafe
+    private final class Timed<R> implements FutureCallback<R> {
+
+        private final CallMetrics path;
+        private final long start;
+        private final FutureCallback<R> callback;
+        private volatile boolean completed;
+
+        private Timed(final CallMetrics path, final long start, final FutureCallback<R> callback) {
+            this.path = path;
+            this.start = start;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(final @Nullable R result) {
+            completed = true;
+            path.success(ticker.read() - start, result == null);
+            callback.onSuccess(result);
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            completed = true;
+            path.failure(ticker.read() - start);
+            callback.onFailure(t);
+        }
+
+    }
+
+}
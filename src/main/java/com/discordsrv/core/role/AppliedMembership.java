@@ -0,0 +1,169 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The membership last applied for a single team and role pair, from player identifiers to the snowflakes of the
+ * users which were given the role.
+ * <p>
+ * Changes are recorded as soon as they are planned, so that overlapping syncs do not plan them twice, and are undone
+ * if Discord rejects them. Unlinked players are recorded as well, and only translated again once their link changes.
+ */
+@ThreadSafe
+final class AppliedMembership {
+
+    /**
+     * The snowflake recorded for a player whose user is still being translated.
+     */
+    static final long PENDING = 0L;
+
+    /**
+     * The snowflake recorded for a player which is not linked to a user.
+     */
+    static final long UNLINKED = -1L;
+
+    private final Map<String, Long> users = new HashMap<>();
+    /** The reverse of the users which were given the role, so that a relinked user is found without a scan. */
+    private final Map<Long, String> players = new HashMap<>();
+    private final Map<String, Long> relinked = new HashMap<>();
+
+    /**
+     * Records the given players as the membership, returning the players which left and marking those which joined as
+     * pending.
+     *
+     * @param current
+     *         The identifiers of the current members.
+     * @param joined
+     *         The list to add the identifiers of players which joined to.
+     *
+     * @return left The players which left or were relinked, along with the users which had been given the role.
+     */
+    synchronized Map<String, Long> update(final Set<String> current, final List<String> joined) {
+        Map<String, Long> left = new HashMap<>(relinked);
+        relinked.clear();
+        Iterator<Map.Entry<String, Long>> iterator = users.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (!current.contains(entry.getKey())) {
+                iterator.remove();
+                if (entry.getValue() > PENDING) {
+                    players.remove(entry.getValue(), entry.getKey());
+                    left.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (String player : current) {
+            if (users.putIfAbsent(player, PENDING) == null) {
+                joined.add(player);
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Records the user of a pending player.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user, {@link #UNLINKED} if the player is not linked, or {@link #PENDING} if the
+     *         translation failed.
+     *
+     * @return apply Whether the player is still a member and linked, so the role should be given to the user.
+     */
+    synchronized boolean resolve(final String player, final long user) {
+        @Nullable Long recorded = users.get(player);
+        if (recorded == null || recorded != PENDING) {
+            return false;
+        }
+        if (user == PENDING) {
+            // Failed translations are forgotten, so that they are tried again by the next sync.
+            users.remove(player);
+            return false;
+        }
+        users.put(player, user);
+        if (user != UNLINKED) {
+            players.put(user, player);
+        }
+        return user != UNLINKED;
+    }
+
+    /**
+     * Forgets the user of a player whose link changed, and of any player recorded for the user, so that the next sync
+     * takes the role from the previous user and translates the players again.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     */
+    synchronized void relink(final String player, final long user) {
+        @Nullable Long recorded = users.remove(player);
+        if (recorded != null && recorded > PENDING) {
+            players.remove(recorded, player);
+            relinked.putIfAbsent(player, recorded);
+        }
+        // Linking a user to a player implicitly unlinks any other player from it.
+        @Nullable String other = players.remove(user);
+        if (other != null) {
+            users.remove(other);
+            relinked.putIfAbsent(other, user);
+        }
+    }
+
+    /**
+     * Undoes the recording of a role given to a user, so that the next sync tries again.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     */
+    synchronized void revertAdd(final String player, final long user) {
+        if (users.remove(player, user)) {
+            players.remove(user, player);
+        }
+    }
+
+    /**
+     * Undoes the recording of a role taken from a user, so that the next sync tries again.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     */
+    synchronized void revertRemove(final String player, final long user) {
+        @Nullable Long recorded = users.putIfAbsent(player, user);
+        if (recorded == null) {
+            players.put(user, player);
+        } else if (recorded != user) {
+            // The player was relinked to another user since, so the role is still to be taken from this one.
+            relinked.putIfAbsent(player, user);
+        }
+    }
+
+}
@@ -0,0 +1,558 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of non-negative integers, compressed in the manner of a roaring bitmap.
+ * <p>
+ * The integers are split into chunks of 65,536 by their upper 16 bits. A chunk holding at most 4,096 integers keeps
+ * their lower 16 bits as a sorted array, and a fuller chunk keeps them as a bitmap of 1,024 longs, so a chunk never
+ * costs more than 8 KiB and a sparse chunk costs 2 bytes per integer. A bitmap only turns back into an array once it
+ * holds at most 2,048 integers, so that adding and removing around the limit does not convert the chunk every time.
+ * Set operations work chunk by chunk, picking the cheapest pairing of arrays and bitmaps.
+ */
+@NotThreadSafe
+public final class CompressedBitSet {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_RELEASE = ARRAY_LIMIT / 2;
+    private static final int BITMAP_WORDS = 1024;
+    private static final int CHUNK_BITS = 16;
+    private static final int WORD_BITS = 6;
+    private static final int LOW_MASK = 0xFFFF;
+    private static final int INITIAL_CHUNKS = 4;
+
+    private char[] keys;
+    private Object[] chunks;
+    private int[] cardinalities;
+    private int size;
+    private int cardinality;
+
+    /**
+     * Creates an empty set.
+     */
+    public CompressedBitSet() {
+        this(INITIAL_CHUNKS);
+    }
+
+    /**
+     * Creates a copy of the given set.
+     *
+     * @param other
+     *         The set to copy.
+     */
+    public CompressedBitSet(final @Nonnull CompressedBitSet other) {
+        this(Math.max(INITIAL_CHUNKS, other.size));
+        for (int i = 0; i < other.size; i++) {
+            append(other.keys[i], copy(other.chunks[i]), other.cardinalities[i]);
+        }
+    }
+
+    private CompressedBitSet(final int capacity) {
+        keys = new char[capacity];
+        chunks = new Object[capacity];
+        cardinalities = new int[capacity];
+    }
+
+    /**
+     * Adds an integer to this set.
+     *
+     * @param value
+     *         The integer to add.
+     *
+     * @return added Whether the integer was absent before.
+     */
+    public boolean add(final int value) {
+        checkValue(value);
+        char key = (char) (value >>> CHUNK_BITS);
+        char low = (char) (value & LOW_MASK);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, new char[]{low}, 1);
+            cardinality++;
+            return true;
+        }
+        Object chunk = chunks[index];
+        int count = cardinalities[index];
+        if (chunk instanceof long[]) {
+            long[] words = (long[]) chunk;
+            long bit = 1L << low;
+            if ((words[low >>> WORD_BITS] & bit) != 0) {
+                return false;
+            }
+            words[low >>> WORD_BITS] |= bit;
+        } else {
+            char[] values = (char[]) chunk;
+            int position = Arrays.binarySearch(values, 0, count, low);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (count == ARRAY_LIMIT) {
+                long[] words = toBitmap(values, count);
+                words[low >>> WORD_BITS] |= 1L << low;
+                chunks[index] = words;
+            } else {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, count * 2));
+                    chunks[index] = values;
+                }
+                System.arraycopy(values, position, values, position + 1, count - position);
+                values[position] = low;
+            }
+        }
+        cardinalities[index]++;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes an integer from this set.
+     *
+     * @param value
+     *         The integer to remove.
+     *
+     * @return removed Whether the integer was present before.
+     */
+    public boolean remove(final int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOf((char) (value >>> CHUNK_BITS));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) (value & LOW_MASK);
+        Object chunk = chunks[index];
+        int count = cardinalities[index];
+        if (chunk instanceof long[]) {
+            long[] words = (long[]) chunk;
+            long bit = 1L << low;
+            if ((words[low >>> WORD_BITS] & bit) == 0) {
+                return false;
+            }
+            words[low >>> WORD_BITS] &= ~bit;
+            if (count - 1 <= BITMAP_RELEASE) {
+                chunks[index] = toArray(words, count - 1);
+            }
+        } else {
+            char[] values = (char[]) chunk;
+            int position = Arrays.binarySearch(values, 0, count, low);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, count - position - 1);
+        }
+        cardinality--;
+        if (--cardinalities[index] == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+            System.arraycopy(cardinalities, index + 1, cardinalities, index, size - index - 1);
+            chunks[--size] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether this set contains an integer.
+     *
+     * @param value
+     *         The integer to check.
+     *
+     * @return contained Whether the integer is within this set.
+     */
+    public boolean contains(final int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOf((char) (value >>> CHUNK_BITS));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) (value & LOW_MASK);
+        Object chunk = chunks[index];
+        if (chunk instanceof long[]) {
+            return (((long[]) chunk)[low >>> WORD_BITS] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, 0, cardinalities[index], low) >= 0;
+    }
+
+    /**
+     * Fetches the number of integers within this set.
+     *
+     * @return cardinality The number of integers.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Checks whether this set is empty.
+     *
+     * @return empty Whether this set contains no integers.
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Passes every integer within this set to the given consumer, in ascending order.
+     *
+     * @param consumer
+     *         The consumer to pass the integers to.
+     */
+    public void forEach(final @Nonnull IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << CHUNK_BITS;
+            Object chunk = chunks[i];
+            if (chunk instanceof long[]) {
+                long[] words = (long[]) chunk;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        consumer.accept(high | (w << WORD_BITS) | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            } else {
+                char[] values = (char[]) chunk;
+                for (int j = 0, count = cardinalities[i]; j < count; j++) {
+                    consumer.accept(high | values[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the integers within this set to an array.
+     *
+     * @return array The integers within this set, in ascending order.
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] position = new int[1];
+        forEach(value -> result[position[0]++] = value);
+        return result;
+    }
+
+    /**
+     * Computes the integers which are within both of the given sets.
+     *
+     * @param first
+     *         The first set.
+     * @param second
+     *         The second set.
+     *
+     * @return intersection A new set of the integers within both sets.
+     */
+    public static CompressedBitSet and(final @Nonnull CompressedBitSet first, final @Nonnull CompressedBitSet second) {
+        CompressedBitSet result = new CompressedBitSet(Math.max(INITIAL_CHUNKS, Math.min(first.size, second.size)));
+        int i = 0;
+        int j = 0;
+        while (i < first.size && j < second.size) {
+            if (first.keys[i] < second.keys[j]) {
+                i++;
+            } else if (first.keys[i] > second.keys[j]) {
+                j++;
+            } else {
+                result.appendCombined(first.keys[i], and(first.chunks[i], first.cardinalities[i], second.chunks[j],
+                    second.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the integers which are within the first set but not within the second.
+     *
+     * @param first
+     *         The set to take integers from.
+     * @param second
+     *         The set of integers to leave out.
+     *
+     * @return difference A new set of the integers within only the first set.
+     */
+    public static CompressedBitSet andNot(final @Nonnull CompressedBitSet first,
+                                         final @Nonnull CompressedBitSet second) {
+        CompressedBitSet result = new CompressedBitSet(Math.max(INITIAL_CHUNKS, first.size));
+        int j = 0;
+        for (int i = 0; i < first.size; i++) {
+            while (j < second.size && second.keys[j] < first.keys[i]) {
+                j++;
+            }
+            if (j < second.size && second.keys[j] == first.keys[i]) {
+                result.appendCombined(first.keys[i], andNot(first.chunks[i], first.cardinalities[i],
+                    second.chunks[j], second.cardinalities[j]));
+            } else {
+                result.append(first.keys[i], copy(first.chunks[i]), first.cardinalities[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the integers which are within either of the given sets.
+     *
+     * @param first
+     *         The first set.
+     * @param second
+     *         The second set.
+     *
+     * @return union A new set of the integers within either set.
+     */
+    public static CompressedBitSet or(final @Nonnull CompressedBitSet first, final @Nonnull CompressedBitSet second) {
+        CompressedBitSet result = new CompressedBitSet(Math.max(INITIAL_CHUNKS, first.size + second.size));
+        int i = 0;
+        int j = 0;
+        while (i < first.size || j < second.size) {
+            if (j == second.size || (i < first.size && first.keys[i] < second.keys[j])) {
+                result.append(first.keys[i], copy(first.chunks[i]), first.cardinalities[i]);
+                i++;
+            } else if (i == first.size || first.keys[i] > second.keys[j]) {
+                result.append(second.keys[j], copy(second.chunks[j]), second.cardinalities[j]);
+                j++;
+            } else {
+                result.appendCombined(first.keys[i], or(first.chunks[i], first.cardinalities[i], second.chunks[j],
+                    second.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof CompressedBitSet && Arrays.equals(toArray(), ((CompressedBitSet) other).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private static Object and(final Object first, final int firstCount, final Object second, final int secondCount) {
+        if (first instanceof long[] && second instanceof long[]) {
+            long[] result = new long[BITMAP_WORDS];
+            long[] a = (long[]) first;
+            long[] b = (long[]) second;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result[w] = a[w] & b[w];
+            }
+            return result;
+        }
+        if (first instanceof long[]) {
+            return filter((char[]) second, secondCount, (long[]) first, true);
+        }
+        if (second instanceof long[]) {
+            return filter((char[]) first, firstCount, (long[]) second, true);
+        }
+        char[] a = (char[]) first;
+        char[] b = (char[]) second;
+        char[] result = new char[Math.min(firstCount, secondCount)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < firstCount && j < secondCount) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static Object andNot(final Object first, final int firstCount, final Object second,
+                                 final int secondCount) {
+        if (first instanceof long[]) {
+            long[] result = ((long[]) first).clone();
+            if (second instanceof long[]) {
+                long[] b = (long[]) second;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    result[w] &= ~b[w];
+                }
+            } else {
+                char[] b = (char[]) second;
+                for (int j = 0; j < secondCount; j++) {
+                    result[b[j] >>> WORD_BITS] &= ~(1L << b[j]);
+                }
+            }
+            return result;
+        }
+        if (second instanceof long[]) {
+            return filter((char[]) first, firstCount, (long[]) second, false);
+        }
+        char[] a = (char[]) first;
+        char[] b = (char[]) second;
+        char[] result = new char[firstCount];
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < firstCount; i++) {
+            while (j < secondCount && b[j] < a[i]) {
+                j++;
+            }
+            if (j == secondCount || b[j] != a[i]) {
+                result[count++] = a[i];
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static Object or(final Object first, final int firstCount, final Object second, final int secondCount) {
+        if (first instanceof long[] || second instanceof long[]) {
+            long[] result = first instanceof long[] ? ((long[]) first).clone() : toBitmap((char[]) first, firstCount);
+            if (second instanceof long[]) {
+                long[] b = (long[]) second;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    result[w] |= b[w];
+                }
+            } else {
+                char[] b = (char[]) second;
+                for (int j = 0; j < secondCount; j++) {
+                    result[b[j] >>> WORD_BITS] |= 1L << b[j];
+                }
+            }
+            return result;
+        }
+        char[] a = (char[]) first;
+        char[] b = (char[]) second;
+        char[] result = new char[firstCount + secondCount];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < firstCount || j < secondCount) {
+            if (j == secondCount || (i < firstCount && a[i] < b[j])) {
+                result[count++] = a[i++];
+            } else if (i == firstCount || a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        return count > ARRAY_LIMIT ? toBitmap(result, count) : Arrays.copyOf(result, count);
+    }
+
+    private static char[] filter(final char[] values, final int count, final long[] words, final boolean keep) {
+        char[] result = new char[count];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            char value = values[i];
+            if (((words[value >>> WORD_BITS] & (1L << value)) != 0) == keep) {
+                result[kept++] = value;
+            }
+        }
+        return Arrays.copyOf(result, kept);
+    }
+
+    private static long[] toBitmap(final char[] values, final int count) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < count; i++) {
+            words[values[i] >>> WORD_BITS] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toArray(final long[] words, final int count) {
+        char[] values = new char[count];
+        int position = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                values[position++] = (char) ((w << WORD_BITS) | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return values;
+    }
+
+    private static Object copy(final Object chunk) {
+        return chunk instanceof long[] ? ((long[]) chunk).clone() : ((char[]) chunk).clone();
+    }
+
+    private static void checkValue(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+    }
+
+    private int indexOf(final char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(final int index, final char key, final Object chunk, final int count) {
+        if (size == keys.length) {
+            grow();
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        cardinalities[index] = count;
+        size++;
+    }
+
+    private void append(final char key, final Object chunk, final int count) {
+        insert(size, key, chunk, count);
+        cardinality += count;
+    }
+
+    // Appends the result of combining two chunks, counting it and picking its cheapest form.
+    private void appendCombined(final char key, final Object chunk) {
+        if (chunk instanceof long[]) {
+            long[] words = (long[]) chunk;
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            if (count > ARRAY_LIMIT) {
+                append(key, words, count);
+            } else if (count > 0) {
+                append(key, toArray(words, count), count);
+            }
+        } else {
+            char[] values = (char[]) chunk;
+            if (values.length > 0) {
+                append(key, values, values.length);
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        chunks = Arrays.copyOf(chunks, capacity);
+        cardinalities = Arrays.copyOf(cardinalities, capacity);
+    }
+
+}
@@ -0,0 +1,410 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import com.discordsrv.core.api.role.Team;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Indexes the members of groups, such as teams or the players holding a role, as {@link CompressedBitSet}s over dense
+ * player ids.
+ * <p>
+ * Every player and every group is given the next free id when first seen. Groups keep their id for the life of the
+ * index, while players keep theirs only until they leave their last group, after which the id may be given to another
+ * player, so ids should not be held across changes to the index. The members of a group may then be combined with those
+ * of another through set operations, like the members of a team who do not yet hold its role, without building any
+ * collection of players. The groups of each player are also kept as a small sorted array, so finding them does not
+ * probe every group.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class MembershipIndex {
+
+    private static final int[] NO_GROUPS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    @GuardedBy("lock")
+    private final Map<String, Integer> playerIds = new HashMap<>();
+    @GuardedBy("lock")
+    private final List<String> players = new ArrayList<>();
+    @GuardedBy("lock")
+    private final Deque<Integer> freePlayerIds = new ArrayDeque<>();
+    @GuardedBy("lock")
+    private final Map<String, Integer> groupIds = new HashMap<>();
+    @GuardedBy("lock")
+    private final List<String> groups = new ArrayList<>();
+    @GuardedBy("lock")
+    private final List<CompressedBitSet> members = new ArrayList<>();
+    @GuardedBy("lock")
+    private final List<int[]> groupsByPlayer = new ArrayList<>();
+
+    /**
+     * Fetches the id of a player, giving it the next free id if it has none.
+     *
+     * @param player
+     *         The identifier of the player.
+     *
+     * @return id The id of the player.
+     */
+    public int playerId(final String player) {
+        lock.readLock().lock();
+        try {
+            @Nullable Integer id = playerIds.get(player);
+            if (id != null) {
+                return id;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return assignPlayer(player);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches the player with the given id.
+     *
+     * @param id
+     *         The id of the player.
+     *
+     * @return player The identifier of the player, or null if no player has the id.
+     */
+    @Nullable
+    public String player(final int id) {
+        lock.readLock().lock();
+        try {
+            return id >= 0 && id < players.size() ? players.get(id) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches the group with the given id.
+     *
+     * @param id
+     *         The id of the group.
+     *
+     * @return group The name of the group, or null if no group has the id.
+     */
+    @Nullable
+    public String group(final int id) {
+        lock.readLock().lock();
+        try {
+            return id >= 0 && id < groups.size() ? groups.get(id) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a player to a group.
+     *
+     * @param group
+     *         The name of the group.
+     * @param player
+     *         The identifier of the player.
+     *
+     * @return added Whether the player was not a member before.
+     */
+    public boolean add(final String group, final String player) {
+        lock.writeLock().lock();
+        try {
+            int groupId = assignGroup(group);
+            int playerId = assignPlayer(player);
+            if (!members.get(groupId).add(playerId)) {
+                return false;
+            }
+            groupsByPlayer.set(playerId, insert(groupsByPlayer.get(playerId), groupId));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a player from a group.
+     *
+     * @param group
+     *         The name of the group.
+     * @param player
+     *         The identifier of the player.
+     *
+     * @return removed Whether the player was a member before.
+     */
+    public boolean remove(final String group, final String player) {
+        lock.writeLock().lock();
+        try {
+            @Nullable Integer groupId = groupIds.get(group);
+            @Nullable Integer playerId = playerIds.get(player);
+            if (groupId == null || playerId == null || !members.get(groupId).remove(playerId)) {
+                return false;
+            }
+            leave(playerId, groupId);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the members of a group.
+     *
+     * @param group
+     *         The name of the group.
+     * @param players
+     *         The identifiers of the members.
+     */
+    public void setMembers(final String group, final Collection<String> players) {
+        lock.writeLock().lock();
+        try {
+            int groupId = assignGroup(group);
+            CompressedBitSet replacement = new CompressedBitSet();
+            for (String player : players) {
+                replacement.add(assignPlayer(player));
+            }
+            CompressedBitSet previous = members.set(groupId, replacement);
+            CompressedBitSet.andNot(replacement, previous).forEach(
+                playerId -> groupsByPlayer.set(playerId, insert(groupsByPlayer.get(playerId), groupId)));
+            CompressedBitSet.andNot(previous, replacement).forEach(playerId -> leave(playerId, groupId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the members of the group named by the identifier of a team with the current members of the team.
+     *
+     * @param team
+     *         The team to read.
+     * @param callback
+     *         The callback to invoke once the group is replaced.
+     */
+    public void update(final Team<MinecraftPlayer> team, final FutureCallback<Void> callback) {
+        team.getUniqueIdentifier(group -> team.getMembers(current -> {
+            if (current.isEmpty()) {
+                setMembers(group, Collections.emptyList());
+                callback.onSuccess(null);
+                return;
+            }
+            Collection<String> identifiers = ConcurrentHashMap.newKeySet(current.size());
+            AtomicInteger remaining = new AtomicInteger(current.size());
+            for (MinecraftPlayer player : current) {
+                player.getUniqueIdentifier(identifier -> {
+                    identifiers.add(identifier);
+                    if (remaining.decrementAndGet() == 0) {
+                        setMembers(group, identifiers);
+                        callback.onSuccess(null);
+                    }
+                });
+            }
+        }));
+    }
+
+    /**
+     * Fetches the members of a group.
+     *
+     * @param group
+     *         The name of the group.
+     *
+     * @return members A copy of the ids of the members, which is empty if the group is unknown.
+     */
+    public CompressedBitSet members(final String group) {
+        lock.readLock().lock();
+        try {
+            @Nullable Integer groupId = groupIds.get(group);
+            return groupId == null ? new CompressedBitSet() : new CompressedBitSet(members.get(groupId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches the members of one group which are not members of another, such as the members of a team who do not
+     * hold its role.
+     *
+     * @param group
+     *         The name of the group to take members from.
+     * @param excluded
+     *         The name of the group whose members are left out.
+     *
+     * @return members The ids of the members.
+     */
+    public CompressedBitSet difference(final String group, final String excluded) {
+        lock.readLock().lock();
+        try {
+            @Nullable Integer groupId = groupIds.get(group);
+            @Nullable Integer excludedId = groupIds.get(excluded);
+            if (groupId == null) {
+                return new CompressedBitSet();
+            }
+            if (excludedId == null) {
+                return new CompressedBitSet(members.get(groupId));
+            }
+            return CompressedBitSet.andNot(members.get(groupId), members.get(excludedId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches the players which are members of both groups.
+     *
+     * @param first
+     *         The name of the first group.
+     * @param second
+     *         The name of the second group.
+     *
+     * @return members The ids of the members.
+     */
+    public CompressedBitSet intersection(final String first, final String second) {
+        lock.readLock().lock();
+        try {
+            @Nullable Integer firstId = groupIds.get(first);
+            @Nullable Integer secondId = groupIds.get(second);
+            if (firstId == null || secondId == null) {
+                return new CompressedBitSet();
+            }
+            return CompressedBitSet.and(members.get(firstId), members.get(secondId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches the groups which a player is a member of.
+     *
+     * @param player
+     *         The identifier of the player.
+     *
+     * @return groups The ids of the groups.
+     */
+    public CompressedBitSet groupsOf(final String player) {
+        CompressedBitSet result = new CompressedBitSet();
+        lock.readLock().lock();
+        try {
+            @Nullable Integer playerId = playerIds.get(player);
+            if (playerId != null) {
+                for (int group : groupsByPlayer.get(playerId)) {
+                    result.add(group);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Passes the identifier of every member of a group to the given consumer, which must not change this index.
+     *
+     * @param group
+     *         The name of the group.
+     * @param consumer
+     *         The consumer to pass the identifiers to.
+     */
+    public void forEachMember(final String group, final Consumer<String> consumer) {
+        lock.readLock().lock();
+        try {
+            @Nullable Integer groupId = groupIds.get(group);
+            if (groupId != null) {
+                members.get(groupId).forEach(id -> consumer.accept(players.get(id)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private int assignPlayer(final String player) {
+        return playerIds.computeIfAbsent(player, key -> {
+            @Nullable Integer free = freePlayerIds.pollFirst();
+            if (free != null) {
+                players.set(free, key);
+                return free;
+            }
+            players.add(key);
+            groupsByPlayer.add(NO_GROUPS);
+            return players.size() - 1;
+        });
+    }
+
+    @GuardedBy("lock")
+    private void leave(final int playerId, final int groupId) {
+        int[] remaining = delete(groupsByPlayer.get(playerId), groupId);
+        groupsByPlayer.set(playerId, remaining);
+        if (remaining == NO_GROUPS) {
+            playerIds.remove(players.set(playerId, null));
+            freePlayerIds.addFirst(playerId);
+        }
+    }
+
+    @GuardedBy("lock")
+    private int assignGroup(final String group) {
+        return groupIds.computeIfAbsent(group, key -> {
+            groups.add(key);
+            members.add(new CompressedBitSet());
+            return groups.size() - 1;
+        });
+    }
+
+    private static int[] insert(final int[] groups, final int group) {
+        int position = -Arrays.binarySearch(groups, group) - 1;
+        int[] result = new int[groups.length + 1];
+        System.arraycopy(groups, 0, result, 0, position);
+        result[position] = group;
+        System.arraycopy(groups, position, result, position + 1, groups.length - position);
+        return result;
+    }
+
+    private static int[] delete(final int[] groups, final int group) {
+        int position = Arrays.binarySearch(groups, group);
+        if (groups.length == 1) {
+            return NO_GROUPS;
+        }
+        int[] result = new int[groups.length - 1];
+        System.arraycopy(groups, 0, result, 0, position);
+        System.arraycopy(groups, position + 1, result, position, groups.length - position - 1);
+        return result;
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import com.discordsrv.core.api.auth.AuthenticationStore;
+import com.discordsrv.core.api.role.Team;
+import com.discordsrv.core.api.role.TeamRoleLinker;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.api.user.PlayerUserLinker;
+import com.discordsrv.core.common.functional.CallbackFuture;
+import com.discordsrv.core.common.functional.Stages;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.User;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Synchronises the members of teams with the members of their linked roles, by sending only the changes since the
+ * last sync.
+ * <p>
+ * The engine remembers the membership it last applied for every team and role pair. A sync compares the identifiers
+ * of the current members against it, translates only the players which joined, and merges every change for a member
+ * of a guild into a single role update. A team of 50,000 members of which 10 changed thus costs 10 updates. Updates
+ * which Discord rejects are undone in the remembered membership, so the next sync tries them again.
+ * <p>
+ * Unlinked members are remembered too, and only translated again once the engine is told that their link changed, by
+ * passing it as the listener of the {@link com.discordsrv.core.user.LocalPlayerUserLinker}. A member which is relinked
+ * to another user has the role moved to the new user by the next sync.
+ * <p>
+ * The first sync after creation or {@link #reset()} gives the role to every current member, but cannot take it from
+ * users which were given it before.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class RoleSyncEngine implements AuthenticationStore<MinecraftPlayer, User> {
+
+    private final TeamRoleLinker roleLinker;
+    private final PlayerUserLinker userLinker;
+    private final ConcurrentMap<String, AppliedMembership> applied = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an engine.
+     *
+     * @param roleLinker
+     *         The linker to find the role of each team with.
+     * @param userLinker
+     *         The linker to find the user of each player with.
+     */
+    public RoleSyncEngine(final TeamRoleLinker roleLinker, final PlayerUserLinker userLinker) {
+        this.roleLinker = roleLinker;
+        this.userLinker = userLinker;
+    }
+
+    /**
+     * Synchronises the given teams with their roles.
+     *
+     * @param teams
+     *         The teams to synchronise.
+     * @param callback
+     *         The callback to invoke with the number of role updates which Discord accepted, or with the failure to
+     *         read a team once the changes of the other teams have been sent.
+     */
+    public void sync(final Collection<? extends Team<MinecraftPlayer>> teams, final FutureCallback<Integer> callback) {
+        List<CompletableFuture<List<Change>>> plans = new ArrayList<>(teams.size());
+        for (Team<MinecraftPlayer> team : teams) {
+            plans.add(plan(team));
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<List<Change>>> settled = new ArrayList<>(plans.size());
+        for (CompletableFuture<List<Change>> plan : plans) {
+            // A team which could not be read has not changed its applied membership, so the others may go ahead.
+            settled.add(plan.exceptionally(t -> {
+                failure.compareAndSet(null, t);
+                return Collections.emptyList();
+            }));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(settled.toArray(new CompletableFuture<?>[0]));
+        Stages.whenComplete(all.thenCompose(ignored -> {
+            List<Change> changes = new ArrayList<>();
+            settled.forEach(plan -> changes.addAll(plan.join()));
+            return apply(changes);
+        }).thenApply(count -> {
+            if (failure.get() != null) {
+                throw new CompletionException(failure.get());
+            }
+            return count;
+        }), callback);
+    }
+
+    @Override
+    public void push(final MinecraftPlayer first, final User last) {
+        relink(first, last);
+    }
+
+    @Override
+    public void remove(final MinecraftPlayer first, final User last) {
+        relink(first, last);
+    }
+
+    /**
+     * Forgets every applied membership, so that the next sync gives every role to every current member again.
+     */
+    public void reset() {
+        applied.clear();
+    }
+
+    /**
+     * Updates the roles of a member.
+     *
+     * @param guild
+     *         The guild of the member.
+     * @param user
+     *         The snowflake of the user.
+     * @param add
+     *         The roles to give to the member.
+     * @param remove
+     *         The roles to take from the member.
+     * @param callback
+     *         The callback to invoke once Discord accepts or rejects the update.
+     */
+    protected void modifyRoles(final Guild guild, final long user, final Collection<Role> add,
+                               final Collection<Role> remove, final FutureCallback<Void> callback) {
+        @Nullable Member member = guild.getMemberById(user);
+        if (member == null) {
+            callback.onFailure(new NoSuchElementException("User " + user + " is not a member of the guild"));
+            return;
+        }
+        guild.getController().modifyMemberRoles(member, add, remove).queue(callback::onSuccess, callback::onFailure);
+    }
+
+    private void relink(final MinecraftPlayer player, final User user) {
+        long id = user.getIdLong();
+        player.getUniqueIdentifier(
+            identifier -> applied.values().forEach(membership -> membership.relink(identifier, id)));
+    }
+
+    private CompletableFuture<List<Change>> plan(final Team<MinecraftPlayer> team) {
+        CallbackFuture<String> identifier = new CallbackFuture<>();
+        CallbackFuture<Role> role = new CallbackFuture<>();
+        CallbackFuture<Collection<MinecraftPlayer>> members = new CallbackFuture<>();
+        team.getUniqueIdentifier(identifier);
+        roleLinker.translate(team, role);
+        team.getMembers(members);
+        return role.thenCompose(linked -> linked == null ? CompletableFuture.completedFuture(Collections.emptyList())
+            : identifier.thenCompose(id -> members.thenCompose(current -> identify(current).thenCompose(
+                players -> diff(applied.computeIfAbsent(linked.getIdLong() + "/" + id, key -> new AppliedMembership()),
+                    linked, players)))));
+    }
+
+    private CompletableFuture<Map<String, MinecraftPlayer>> identify(final Collection<MinecraftPlayer> members) {
+        CallbackFuture<Map<String, MinecraftPlayer>> result = new CallbackFuture<>();
+        if (members.isEmpty()) {
+            result.complete(Collections.emptyMap());
+            return result;
+        }
+        Map<String, MinecraftPlayer> players = new ConcurrentHashMap<>(members.size() * 4 / 3 + 1);
+        AtomicInteger remaining = new AtomicInteger(members.size());
+        for (MinecraftPlayer member : members) {
+            member.getUniqueIdentifier(id -> {
+                players.put(id, member);
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete(players);
+                }
+            });
+        }
+        return result;
+    }
+
+    private CompletableFuture<List<Change>> diff(final AppliedMembership membership, final Role role,
+                                                 final Map<String, MinecraftPlayer> players) {
+        List<String> joined = new ArrayList<>();
+        // Relinked players which turn out to have the same user again cancel out, so the map is shared by the
+        // callbacks.
+        Map<String, Long> left = new ConcurrentHashMap<>(membership.update(players.keySet(), joined));
+        List<Change> added = Collections.synchronizedList(new ArrayList<>(joined.size()));
+        List<CompletableFuture<?>> translations = new ArrayList<>(joined.size());
+        for (String player : joined) {
+            CallbackFuture<User> user = new CallbackFuture<>();
+            userLinker.translate(players.get(player), user);
+            translations.add(user.handle((found, failure) -> {
+                long id = failure != null ? AppliedMembership.PENDING
+                    : found == null ? AppliedMembership.UNLINKED : found.getIdLong();
+                if (membership.resolve(player, id) && !left.remove(player, id)) {
+                    added.add(new Change(role, id, true, () -> membership.revertAdd(player, id)));
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(translations.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Change> changes = new ArrayList<>(left.size() + added.size());
+            left.forEach((player, user) -> changes.add(new Change(role, user, false,
+                () -> membership.revertRemove(player, user))));
+            changes.addAll(added);
+            return changes;
+        });
+    }
+
+    private CompletableFuture<Integer> apply(final List<Change> changes) {
+        Map<Long, Map<Long, Update>> guilds = new LinkedHashMap<>();
+        for (Change change : changes) {
+            Guild guild = change.role.getGuild();
+            guilds.computeIfAbsent(guild.getIdLong(), id -> new LinkedHashMap<>())
+                .computeIfAbsent(change.user, user -> new Update(guild, user)).add(change);
+        }
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (Map<Long, Update> updates : guilds.values()) {
+            for (Update update : updates.values()) {
+                CallbackFuture<Void> result = new CallbackFuture<>();
+                try {
+                    modifyRoles(update.guild, update.user, update.add, update.remove, result);
+                } catch (RuntimeException e) {
+                    result.onFailure(e);
+                }
+                results.add(result.handle((ignored, failure) -> {
+                    if (failure == null) {
+                        return 1;
+                    }
+                    update.undo.forEach(Runnable::run);
+                    return 0;
+                }));
+            }
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> results.stream().mapToInt(CompletableFuture::join).sum());
+    }
+
+    /**
+     * A role to give to or take from a user.
+     */
+    private static final class Change {
+
+        private final Role role;
+        private final long user;
+        private final boolean add;
+        private final Runnable undo;
+
+        Change(final Role role, final long user, final boolean add, final Runnable undo) {
+            this.role = role;
+            this.user = user;
+            this.add = add;
+            this.undo = undo;
+        }
+
+    }
+
+    /**
+     * Every change for a single member of a guild.
+     */
+    private static final class Update {
+
+        private final Guild guild;
+        private final long user;
+        private final List<Role> add = new ArrayList<>();
+        private final List<Role> remove = new ArrayList<>();
+        private final List<Runnable> undo = new ArrayList<>();
+
+        Update(final Guild guild, final long user) {
+            this.guild = guild;
+            this.user = user;
+        }
+
+        void add(final @Nonnull Change change) {
+            (change.add ? add : remove).add(change.role);
+            undo.add(change.undo);
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.collections4.BidiMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Leverages a {@link BidiMap} for storing links.
+ * <p>
+ * This storage is only as thread safe as the map it is backed by.
+ */
+@NotThreadSafe
+@RequiredArgsConstructor
+public class BidiMapLinkStorage implements LinkStorage {
+
+    private final BidiMap<String, Long> playerStorage;
+
+    @Override
+    public long getUser(final @Nonnull String player) {
+        @Nullable Long result = playerStorage.get(player);
+        return result == null ? NO_USER : result;
+    }
+
+    @Nullable
+    @Override
+    public String getPlayer(final long user) {
+        return playerStorage.getKey(user);
+    }
+
+    @Override
+    public void put(final @Nonnull String player, final long user) {
+        playerStorage.put(player, user);
+    }
+
+    @Override
+    public void remove(final @Nonnull String player, final long user) {
+        playerStorage.remove(player);
+        playerStorage.removeValue(user);
+    }
+
+    @Override
+    public int size() {
+        return playerStorage.size();
+    }
+
+    @Override
+    public void forEach(final @Nonnull LinkConsumer consumer) {
+        playerStorage.forEach(consumer::accept);
+    }
+
+}
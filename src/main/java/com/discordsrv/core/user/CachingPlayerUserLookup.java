@@ -0,0 +1,213 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import com.discordsrv.core.api.auth.AuthenticationStore;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.api.user.PlayerUserLookup;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.User;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Caches the players and users resolved by another lookup, including the absence of a player or user.
+ * <p>
+ * Pushing a pair to this lookup as an {@link AuthenticationStore} writes the pair through to the caches, and removing
+ * a pair discards both. Pass the lookup as the listener of a {@link LocalPlayerUserLinker} to keep it in step with the
+ * links, however the lookup given to the linker is wrapped.
+ */
+public class CachingPlayerUserLookup implements PlayerUserLookup, AuthenticationStore<MinecraftPlayer, User> {
+
+    /** The default maximum number of entries cached per direction. */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    /** The default number of minutes a player or user stays cached. */
+    public static final long DEFAULT_EXPIRY_MINUTES = 5;
+    /** The default number of seconds the absence of a player or user stays cached. */
+    public static final long DEFAULT_NEGATIVE_EXPIRY_SECONDS = 30;
+
+    private final PlayerUserLookup lookup;
+    private final Cache<Long, User> users;
+    private final Cache<String, MinecraftPlayer> players;
+    private final Cache<Long, Boolean> absentUsers;
+    private final Cache<String, Boolean> absentPlayers;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final BiConsumer<String, MinecraftPlayer> storer = this::store;
+    private final BiConsumer<String, MinecraftPlayer> evictor = this::evict;
+
+    /**
+     * Creates a lookup with the default cache bounds.
+     *
+     * @param lookup
+     *         The lookup to cache the results of.
+     */
+    public CachingPlayerUserLookup(final @Nonnull PlayerUserLookup lookup) {
+        this(lookup, CacheBuilder.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE)
+                .expireAfterWrite(DEFAULT_EXPIRY_MINUTES, TimeUnit.MINUTES).recordStats(),
+            CacheBuilder.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE)
+                .expireAfterWrite(DEFAULT_NEGATIVE_EXPIRY_SECONDS, TimeUnit.SECONDS).recordStats());
+    }
+
+    /**
+     * Creates a lookup whose caches are built by the given builders. The builders are used as given; enable
+     * {@link CacheBuilder#recordStats()} on them for {@link #getEvictionCount()} to count evictions.
+     *
+     * @param lookup
+     *         The lookup to cache the results of.
+     * @param cacheBuilder
+     *         The builder for the cache of each direction, which should bound its size and expire its entries.
+     * @param negativeCacheBuilder
+     *         The builder for the cache of absent players and users, which should expire its entries soon.
+     */
+    public CachingPlayerUserLookup(final @Nonnull PlayerUserLookup lookup,
+                                   final @Nonnull CacheBuilder<Object, Object> cacheBuilder,
+                                   final @Nonnull CacheBuilder<Object, Object> negativeCacheBuilder) {
+        this.lookup = lookup;
+        this.users = cacheBuilder.build();
+        this.players = cacheBuilder.build();
+        this.absentUsers = negativeCacheBuilder.build();
+        this.absentPlayers = negativeCacheBuilder.build();
+    }
+
+    @Override
+    public void lookup(final long id, final @Nonnull FutureCallback<User> callback) {
+        @Nullable User cached = users.getIfPresent(id);
+        if (cached != null || absentUsers.getIfPresent(id) != null) {
+            hits.increment();
+            callback.onSuccess(cached);
+            return;
+        }
+        misses.increment();
+        long expected = generation.get();
+        lookup.lookup(id, new FutureCallback<User>() {
+            @Override
+            public void onSuccess(final @Nullable User result) {
+                // A pair pushed or removed meanwhile may have made the result stale.
+                if (generation.get() == expected) {
+                    if (result == null) {
+                        absentUsers.put(id, Boolean.TRUE);
+                    } else {
+                        users.put(id, result);
+                    }
+                }
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                callback.onFailure(t);
+            }
+        });
+    }
+
+    @Override
+    public void lookup(final @Nonnull String id, final @Nonnull FutureCallback<MinecraftPlayer> callback) {
+        @Nullable MinecraftPlayer cached = players.getIfPresent(id);
+        if (cached != null || absentPlayers.getIfPresent(id) != null) {
+            hits.increment();
+            callback.onSuccess(cached);
+            return;
+        }
+        misses.increment();
+        long expected = generation.get();
+        lookup.lookup(id, new FutureCallback<MinecraftPlayer>() {
+            @Override
+            public void onSuccess(final @Nullable MinecraftPlayer result) {
+                if (generation.get() == expected) {
+                    if (result == null) {
+                        absentPlayers.put(id, Boolean.TRUE);
+                    } else {
+                        players.put(id, result);
+                    }
+                }
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                callback.onFailure(t);
+            }
+        });
+    }
+
+    @Override
+    public void push(final @Nonnull MinecraftPlayer first, final @Nonnull User last) {
+        generation.incrementAndGet();
+        DirectlyIdentifiable.identify(first, first, storer);
+        users.put(last.getIdLong(), last);
+        absentUsers.invalidate(last.getIdLong());
+    }
+
+    @Override
+    public void remove(final @Nonnull MinecraftPlayer first, final @Nonnull User last) {
+        generation.incrementAndGet();
+        DirectlyIdentifiable.identify(first, first, evictor);
+        users.invalidate(last.getIdLong());
+        absentUsers.invalidate(last.getIdLong());
+    }
+
+    private void store(final @Nonnull String ident, final @Nonnull MinecraftPlayer player) {
+        players.put(ident, player);
+        absentPlayers.invalidate(ident);
+    }
+
+    private void evict(final @Nonnull String ident, final @Nonnull MinecraftPlayer player) {
+        players.invalidate(ident);
+        absentPlayers.invalidate(ident);
+    }
+
+    /**
+     * Fetches the number of lookups answered from the caches, including cached absences.
+     *
+     * @return hits The number of cache hits.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Fetches the number of lookups passed on to the underlying lookup.
+     *
+     * @return misses The number of cache misses.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Fetches the number of entries evicted because of the size bound or their age. Evictions are only counted by
+     * caches whose builders record stats, as the default ones do.
+     *
+     * @return evictions The number of evictions.
+     */
+    public long getEvictionCount() {
+        return users.stats().evictionCount() + players.stats().evictionCount()
+            + absentUsers.stats().evictionCount() + absentPlayers.stats().evictionCount();
+    }
+
+}
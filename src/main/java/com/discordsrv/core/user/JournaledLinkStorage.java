@@ -0,0 +1,376 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Leverages a {@link SnapshotLinkStorage} backed by a write-ahead log for durably storing links.
+ * <p>
+ * Every change is applied in memory and appended to the log by a background writer, which batches all changes that
+ * arrived since its previous write into a single write and fsync. Once the log grows past a threshold, the writer
+ * compacts it into a new {@link LinkSnapshot} and starts a new log. Opening a directory maps the latest snapshot into
+ * memory and replays its log on top of it; a record torn by a crash is discarded together with everything after it.
+ * <p>
+ * Changes never wait for the disk. Use {@link #flush()} to wait until they are durable.
+ */
+@ThreadSafe
+public class JournaledLinkStorage implements LinkStorage, Closeable {
+
+    /** The default size, in bytes, past which the log is compacted into a snapshot. */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 16L << 20;
+
+    private static final String PREFIX = "links.";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int RECORD_HEADER = Integer.BYTES * 2;
+    private static final int RECORD_FIXED = 1 + Long.BYTES;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private final SnapshotLinkStorage index;
+    private final Path directory;
+    private final long compactionThreshold;
+    private final Thread writer;
+    @GuardedBy("this")
+    private final CRC32 checksum = new CRC32();
+    @GuardedBy("this")
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    @GuardedBy("this")
+    private long appended;
+    @GuardedBy("this")
+    private long durable;
+    @GuardedBy("this")
+    private boolean closed;
+    @GuardedBy("this")
+    private IOException failure;
+    private long generation;
+    private FileChannel log;
+
+    private JournaledLinkStorage(final Path directory, final long compactionThreshold, final SnapshotLinkStorage index,
+                                 final long generation, final FileChannel log) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.index = index;
+        this.generation = generation;
+        this.log = log;
+        this.writer = new Thread(this::write, "DiscordSRV link journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens the storage within the given directory with the default compaction threshold.
+     *
+     * @param directory
+     *         The directory to keep the snapshot and the log within.
+     *
+     * @return storage The opened storage.
+     *
+     * @throws IOException
+     *         If the directory could not be read.
+     */
+    @Nonnull
+    public static JournaledLinkStorage open(final @Nonnull Path directory) throws IOException {
+        return open(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the storage within the given directory.
+     *
+     * @param directory
+     *         The directory to keep the snapshot and the log within.
+     * @param compactionThreshold
+     *         The size, in bytes, past which the log is compacted into a snapshot.
+     *
+     * @return storage The opened storage.
+     *
+     * @throws IOException
+     *         If the directory could not be read.
+     */
+    @Nonnull
+    public static JournaledLinkStorage open(final @Nonnull Path directory, final long compactionThreshold)
+        throws IOException {
+        Files.createDirectories(directory);
+        long generation = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                generation = Math.max(generation, generationOf(file));
+            }
+        }
+        SnapshotLinkStorage index = new SnapshotLinkStorage(generation > 0
+            ? LinkSnapshot.open(directory.resolve(PREFIX + generation + SNAPSHOT_SUFFIX)) : LinkSnapshot.empty());
+        Path logFile = directory.resolve(PREFIX + generation + LOG_SUFFIX);
+        long length = Files.exists(logFile) ? replay(logFile, index) : 0;
+        FileChannel log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(length);
+        log.position(length);
+        deleteGenerationsBefore(directory, generation);
+        return new JournaledLinkStorage(directory, compactionThreshold, index, generation, log);
+    }
+
+    @Override
+    public long getUser(final @Nonnull String player) {
+        return index.getUser(player);
+    }
+
+    @Nullable
+    @Override
+    public String getPlayer(final long user) {
+        return index.getPlayer(user);
+    }
+
+    @Override
+    public synchronized void put(final @Nonnull String player, final long user) {
+        ensureOpen();
+        index.put(player, user);
+        append(PUT, player, user);
+    }
+
+    @Override
+    public synchronized void remove(final @Nonnull String player, final long user) {
+        ensureOpen();
+        index.remove(player, user);
+        append(REMOVE, player, user);
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void forEach(final @Nonnull LinkConsumer consumer) {
+        index.forEach(consumer);
+    }
+
+    /**
+     * Waits until every change made so far is durable.
+     *
+     * @throws IOException
+     *         If the log could not be written, or if the wait was interrupted.
+     */
+    public synchronized void flush() throws IOException {
+        long target = appended;
+        try {
+            while (durable < target && failure == null && writer.isAlive()) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Makes every change durable and closes the log.
+     *
+     * @throws IOException
+     *         If the log could not be written, or if closing was interrupted.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        log.close();
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The link storage has been closed");
+        } else if (failure != null) {
+            throw new UncheckedIOException("The link log could not be written", failure);
+        }
+    }
+
+    private void append(final byte operation, final String player, final long user) {
+        byte[] identifier = player.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_FIXED + identifier.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.putInt(length).putInt(0).put(operation).putLong(user).put(identifier);
+        checksum.reset();
+        checksum.update(record.array(), RECORD_HEADER, length);
+        record.putInt(Integer.BYTES, (int) checksum.getValue());
+        pending.write(record.array(), 0, record.capacity());
+        appended++;
+        notifyAll();
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                ByteArrayOutputStream batch;
+                long target;
+                @Nullable LinkStorage compacted = null;
+                synchronized (this) {
+                    while (pending.size() == 0 && !closed) {
+                        wait();
+                    }
+                    if (pending.size() == 0) {
+                        return;
+                    }
+                    batch = pending;
+                    pending = new ByteArrayOutputStream();
+                    target = appended;
+                    if (log.position() + batch.size() >= compactionThreshold) {
+                        // Every change within the batch, and none after it, is part of this view.
+                        compacted = index.beginCompaction();
+                    }
+                }
+                batch.writeTo(Channels.newOutputStream(log));
+                log.force(false);
+                synchronized (this) {
+                    durable = target;
+                    notifyAll();
+                }
+                if (compacted != null) {
+                    compact(compacted);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void compact(final LinkStorage compacted) throws IOException {
+        long next = generation + 1;
+        Path snapshot = directory.resolve(PREFIX + next + SNAPSHOT_SUFFIX);
+        Path temporary = directory.resolve(PREFIX + next + SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX);
+        LinkSnapshot.write(temporary, compacted);
+        FileChannel nextLog = FileChannel.open(directory.resolve(PREFIX + next + LOG_SUFFIX), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory);
+        index.finishCompaction(LinkSnapshot.open(snapshot));
+        log.close();
+        log = nextLog;
+        generation = next;
+        deleteGenerationsBefore(directory, next);
+    }
+
+    private static long replay(final Path file, final LinkStorage index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 checksum = new CRC32();
+            long valid = 0;
+            while (buffer.remaining() >= RECORD_HEADER) {
+                int length = buffer.getInt();
+                int expected = buffer.getInt();
+                if (length < RECORD_FIXED || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                buffer.get(record);
+                checksum.reset();
+                checksum.update(record, 0, length);
+                if ((int) checksum.getValue() != expected) {
+                    break;
+                }
+                long user = ByteBuffer.wrap(record, 1, Long.BYTES).getLong();
+                String player = new String(record, RECORD_FIXED, length - RECORD_FIXED, StandardCharsets.UTF_8);
+                if (record[0] == PUT) {
+                    index.put(player, user);
+                } else if (record[0] == REMOVE) {
+                    index.remove(player, user);
+                } else {
+                    throw new IOException("Unrecognized link record in " + file);
+                }
+                valid = buffer.position();
+            }
+            return valid;
+        }
+    }
+
+    private static void deleteGenerationsBefore(final Path directory, final long generation) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_SUFFIX) || generationOf(file) < generation) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ignored) {
+                        // Some platforms refuse to delete files which are still mapped; the next open retries.
+                    }
+                }
+            }
+        }
+    }
+
+    private static long generationOf(final Path file) {
+        String name = file.getFileName().toString();
+        int end = name.indexOf('.', PREFIX.length());
+        try {
+            return end < 0 ? -1 : Long.parseLong(name.substring(PREFIX.length(), end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void syncDirectory(final Path directory) {
+        // Makes the rename durable where the platform allows directories to be opened.
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A message between the nodes of a {@link ReplicatedLinkStorage}, carrying versioned writes of player links.
+ * <p>
+ * Each write sets the user linked to a player, or {@link LinkStorage#NO_USER} to unlink it, and carries the version of
+ * the change. A node applies a write only if it is newer than what the node holds for the player, so applying a
+ * message twice or out of order has no further effect.
+ */
+@Immutable
+public final class LinkDelta {
+
+    /**
+     * The kind of a message.
+     */
+    public enum Kind {
+
+        /** Changes made on the sending node. */
+        CHANGE,
+        /** The full state of a joining node, which every receiver answers with its own state. */
+        SYNC,
+        /** The full state of a node, in answer to a {@link #SYNC}. */
+        SYNC_REPLY
+
+    }
+
+    private final Kind kind;
+    private final int origin;
+    private final String[] players;
+    private final long[] users;
+    private final long[] versions;
+
+    /**
+     * Creates a message.
+     *
+     * @param kind
+     *         The kind of message.
+     * @param origin
+     *         The identifier of the sending node.
+     * @param players
+     *         The identifier of the player of each write.
+     * @param users
+     *         The snowflake of the user of each write, or {@link LinkStorage#NO_USER} to unlink the player.
+     * @param versions
+     *         The version of each write.
+     */
+    LinkDelta(final Kind kind, final int origin, final String[] players, final long[] users, final long[] versions) {
+        if (players.length != users.length || players.length != versions.length) {
+            throw new IllegalArgumentException("Writes are of unequal lengths");
+        }
+        this.kind = kind;
+        this.origin = origin;
+        this.players = players;
+        this.users = users;
+        this.versions = versions;
+    }
+
+    /**
+     * Fetches the kind of this message.
+     *
+     * @return kind The kind.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Fetches the node which sent this message.
+     *
+     * @return origin The identifier of the node.
+     */
+    public int getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Fetches the number of writes within this message.
+     *
+     * @return size The number of writes.
+     */
+    public int size() {
+        return players.length;
+    }
+
+    /**
+     * Fetches the player of a write.
+     *
+     * @param index
+     *         The index of the write.
+     *
+     * @return player The identifier of the player.
+     */
+    public String getPlayer(final int index) {
+        return players[index];
+    }
+
+    /**
+     * Fetches the user of a write.
+     *
+     * @param index
+     *         The index of the write.
+     *
+     * @return user The snowflake of the user, or {@link LinkStorage#NO_USER} if the player is unlinked.
+     */
+    public long getUser(final int index) {
+        return users[index];
+    }
+
+    /**
+     * Fetches the version of a write.
+     *
+     * @param index
+     *         The index of the write.
+     *
+     * @return version The version.
+     */
+    public long getVersion(final int index) {
+        return versions[index];
+    }
+
+    /**
+     * Writes this message for a transport which carries bytes.
+     *
+     * @param output
+     *         The output to write to.
+     *
+     * @throws IOException
+     *         If the output fails.
+     */
+    public void write(final @Nonnull DataOutput output) throws IOException {
+        output.writeByte(kind.ordinal());
+        output.writeInt(origin);
+        output.writeInt(players.length);
+        for (int i = 0; i < players.length; i++) {
+            output.writeUTF(players[i]);
+            output.writeLong(users[i]);
+            output.writeLong(versions[i]);
+        }
+    }
+
+    /**
+     * Reads a message written by {@link #write(DataOutput)}.
+     *
+     * @param input
+     *         The input to read from.
+     *
+     * @return delta The message.
+     *
+     * @throws IOException
+     *         If the input fails or does not hold a message.
+     */
+    public static LinkDelta read(final @Nonnull DataInput input) throws IOException {
+        int ordinal = input.readUnsignedByte();
+        if (ordinal >= Kind.values().length) {
+            throw new IOException("Unknown message kind " + ordinal);
+        }
+        int origin = input.readInt();
+        int size = input.readInt();
+        if (size < 0) {
+            throw new IOException("Negative write count " + size);
+        }
+        String[] players = new String[size];
+        long[] users = new long[size];
+        long[] versions = new long[size];
+        for (int i = 0; i < size; i++) {
+            players[i] = input.readUTF();
+            users[i] = input.readLong();
+            versions[i] = input.readLong();
+        }
+        return new LinkDelta(Kind.values()[ordinal], origin, players, users, versions);
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, memory-mapped snapshot of a link table, which serves lookups straight from the file.
+ * <p>
+ * A snapshot starts with a header of four ints: a magic number, the format version, the number of packed links and
+ * the number of named links. Two sections of fixed-width, 24 byte records follow: the packed links sorted by player
+ * (most significant bits, least significant bits, user) and the same links sorted by user (user, most significant
+ * bits, least significant bits). Both are searched with a binary search, so opening a snapshot reads nothing but its
+ * header. Links whose player identifier is not a canonical UUID are appended as (user, length, UTF-8 identifier) and
+ * are loaded onto the heap when the snapshot is opened.
+ */
+@Immutable
+public final class LinkSnapshot {
+
+    private static final int MAGIC = 0x4453524C;
+    private static final int VERSION = 2;
+    private static final int HEADER = Integer.BYTES * 4;
+    private static final int RECORD = Long.BYTES * 3;
+    private static final int STRIDE = 3;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final Map<String, Long> namedPlayers;
+    private final Map<Long, String> namedUsers;
+
+    private LinkSnapshot(final ByteBuffer buffer, final int count, final Map<String, Long> namedPlayers,
+                         final Map<Long, String> namedUsers) {
+        this.buffer = buffer;
+        this.count = count;
+        this.namedPlayers = namedPlayers;
+        this.namedUsers = namedUsers;
+    }
+
+    /**
+     * Fetches a snapshot without any links.
+     *
+     * @return snapshot The empty snapshot.
+     */
+    @Nonnull
+    public static LinkSnapshot empty() {
+        return new LinkSnapshot(ByteBuffer.allocate(0), 0, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Maps a snapshot file into memory.
+     *
+     * @param file
+     *         The snapshot file.
+     *
+     * @return snapshot The mapped snapshot.
+     *
+     * @throws IOException
+     *         If the file could not be mapped or is not a snapshot.
+     */
+    @Nonnull
+    public static LinkSnapshot open(final @Nonnull Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Unrecognized link snapshot: " + file);
+        }
+        int count = buffer.getInt();
+        int named = buffer.getInt();
+        if (count < 0 || named < 0 || (long) HEADER + 2L * RECORD * count > buffer.limit()) {
+            throw new IOException("Truncated link snapshot: " + file);
+        }
+        buffer.position(HEADER + 2 * RECORD * count);
+        Map<String, Long> namedPlayers = new HashMap<>();
+        Map<Long, String> namedUsers = new HashMap<>();
+        for (int i = 0; i < named; i++) {
+            long user = buffer.getLong();
+            byte[] identifier = new byte[buffer.getInt()];
+            buffer.get(identifier);
+            String player = new String(identifier, StandardCharsets.UTF_8);
+            namedPlayers.put(player, user);
+            namedUsers.put(user, player);
+        }
+        return new LinkSnapshot(buffer, count, namedPlayers, namedUsers);
+    }
+
+    /**
+     * Writes a snapshot of every link within a storage. The storage should not be modified while it is written.
+     *
+     * @param file
+     *         The file to write the snapshot to.
+     * @param links
+     *         The storage to take a snapshot of.
+     *
+     * @throws IOException
+     *         If the file could not be written.
+     */
+    public static void write(final @Nonnull Path file, final @Nonnull LinkStorage links) throws IOException {
+        Collector collector = new Collector(links.size());
+        links.forEach(collector);
+        int count = collector.count;
+        long[] byPlayer = collector.records;
+        sort(byPlayer, count);
+        long[] byUser = new long[count * STRIDE];
+        for (int offset = 0; offset < count * STRIDE; offset += STRIDE) {
+            byUser[offset] = byPlayer[offset + 2];
+            byUser[offset + 1] = byPlayer[offset];
+            byUser[offset + 2] = byPlayer[offset + 1];
+        }
+        sort(byUser, count);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(count);
+            output.writeInt(collector.named.size());
+            for (int i = 0; i < count * STRIDE; i++) {
+                output.writeLong(byPlayer[i]);
+            }
+            for (int i = 0; i < count * STRIDE; i++) {
+                output.writeLong(byUser[i]);
+            }
+            for (Map.Entry<String, Long> entry : collector.named.entrySet()) {
+                byte[] identifier = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                output.writeLong(entry.getValue());
+                output.writeInt(identifier.length);
+                output.write(identifier);
+            }
+            output.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Fetches the user linked to the given player.
+     *
+     * @param player
+     *         The identifier of the player.
+     *
+     * @return user The snowflake of the linked user, or {@link LinkStorage#NO_USER} if the player is not linked.
+     */
+    public long getUser(final @Nonnull String player) {
+        if (!PlayerKeys.isPackable(player)) {
+            @Nullable Long result = namedPlayers.get(player);
+            return result == null ? LinkStorage.NO_USER : result;
+        }
+        int index = search(HEADER, PlayerKeys.mostSignificantBits(player), PlayerKeys.leastSignificantBits(player),
+            true);
+        return index < 0 ? LinkStorage.NO_USER : buffer.getLong(index + Long.BYTES * 2);
+    }
+
+    /**
+     * Fetches the player linked to the given user.
+     *
+     * @param user
+     *         The snowflake of the user.
+     *
+     * @return player The identifier of the linked player, or null if the user is not linked.
+     */
+    @Nullable
+    public String getPlayer(final long user) {
+        int index = search(HEADER + RECORD * count, user, 0, false);
+        if (index < 0) {
+            return namedUsers.get(user);
+        }
+        return PlayerKeys.toIdentifier(buffer.getLong(index + Long.BYTES), buffer.getLong(index + Long.BYTES * 2));
+    }
+
+    /**
+     * Fetches the number of links within this snapshot.
+     *
+     * @return size The number of links.
+     */
+    public int size() {
+        return count + namedPlayers.size();
+    }
+
+    /**
+     * Visits every link within this snapshot.
+     *
+     * @param consumer
+     *         The consumer to visit the links with.
+     */
+    public void forEach(final @Nonnull LinkConsumer consumer) {
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER + RECORD * i;
+            consumer.accept(PlayerKeys.toIdentifier(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES)),
+                buffer.getLong(offset + Long.BYTES * 2));
+        }
+        namedPlayers.forEach(consumer::accept);
+    }
+
+    /**
+     * Searches a section for the offset of a record. The user section is unique by its first key alone, so its second
+     * key is not compared.
+     */
+    private int search(final int section, final long first, final long second, final boolean compareSecond) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = section + RECORD * middle;
+            int comparison = Long.compare(buffer.getLong(offset), first);
+            if (comparison == 0 && compareSecond) {
+                comparison = Long.compare(buffer.getLong(offset + Long.BYTES), second);
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorts records of three longs by their first two longs, in place and without allocating.
+     */
+    private static void sort(final long[] records, final int count) {
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(records, i, count);
+        }
+        for (int end = count - 1; end > 0; end--) {
+            swap(records, 0, end);
+            siftDown(records, 0, end);
+        }
+    }
+
+    private static void siftDown(final long[] records, final int from, final int count) {
+        int root = from;
+        while (true) {
+            int child = root * 2 + 1;
+            if (child >= count) {
+                return;
+            }
+            if (child + 1 < count && compare(records, child, child + 1) < 0) {
+                child++;
+            }
+            if (compare(records, root, child) >= 0) {
+                return;
+            }
+            swap(records, root, child);
+            root = child;
+        }
+    }
+
+    private static int compare(final long[] records, final int first, final int second) {
+        int comparison = Long.compare(records[first * STRIDE], records[second * STRIDE]);
+        return comparison != 0 ? comparison : Long.compare(records[first * STRIDE + 1], records[second * STRIDE + 1]);
+    }
+
+    private static void swap(final long[] records, final int first, final int second) {
+        for (int i = 0; i < STRIDE; i++) {
+            long temporary = records[first * STRIDE + i];
+            records[first * STRIDE + i] = records[second * STRIDE + i];
+            records[second * STRIDE + i] = temporary;
+        }
+    }
+
+    /**
+     * Collects the links of a storage into packed records.
+     */
+    private static final class Collector implements LinkConsumer {
+
+        private final Map<String, Long> named = new HashMap<>();
+        private long[] records;
+        private int count;
+
+        private Collector(final int expected) {
+            records = new long[Math.max(expected, 1) * STRIDE];
+        }
+
+        @Override
+        public void accept(final @Nonnull String player, final long user) {
+            if (!PlayerKeys.isPackable(player)) {
+                named.put(player, user);
+                return;
+            }
+            if ((count + 1) * STRIDE > records.length) {
+                records = Arrays.copyOf(records, records.length * 2);
+            }
+            int offset = count++ * STRIDE;
+            records[offset] = PlayerKeys.mostSignificantBits(player);
+            records[offset + 1] = PlayerKeys.leastSignificantBits(player);
+            records[offset + 2] = user;
+        }
+
+    }
+
+}
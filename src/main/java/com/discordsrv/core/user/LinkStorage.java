@@ -0,0 +1,94 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * LinkStorage type, for storing the links between player identifiers and user snowflakes.
+ * <p>
+ * Every player may be linked to at most one user and every user to at most one player.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public interface LinkStorage {
+
+    /**
+     * The snowflake which represents the absence of a user. Discord never issues this snowflake.
+     */
+    long NO_USER = 0L;
+
+    /**
+     * Fetches the user linked to the given player.
+     *
+     * @param player
+     *         The identifier of the player.
+     *
+     * @return user The snowflake of the linked user, or {@link #NO_USER} if the player is not linked.
+     */
+    long getUser(String player);
+
+    /**
+     * Fetches the player linked to the given user.
+     *
+     * @param user
+     *         The snowflake of the user.
+     *
+     * @return player The identifier of the linked player, or null if the user is not linked.
+     */
+    @Nullable
+    String getPlayer(long user);
+
+    /**
+     * Links the given player and user, replacing any link that either of them had before.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     */
+    void put(String player, long user);
+
+    /**
+     * Removes any link which has either the given player or the given user.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     */
+    void remove(String player, long user);
+
+    /**
+     * Fetches the number of links within this storage.
+     *
+     * @return size The number of links.
+     */
+    int size();
+
+    /**
+     * Visits every link within this storage.
+     *
+     * @param consumer
+     *         The consumer to visit the links with.
+     */
+    void forEach(LinkConsumer consumer);
+
+}
@@ -18,41 +18,98 @@
 package com.discordsrv.core.user;
 
 import com.discordsrv.core.api.auth.AuthenticationStore;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
 import com.discordsrv.core.api.user.MinecraftPlayer;
 import com.discordsrv.core.api.user.PlayerUserLinker;
 import com.discordsrv.core.api.user.PlayerUserLookup;
 import com.google.common.util.concurrent.FutureCallback;
-import lombok.RequiredArgsConstructor;
 import net.dv8tion.jda.core.entities.User;
 import org.apache.commons.collections4.BidiMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.function.BiConsumer;
 
 /**
  * Leverages a local storage for player/user linking.
+ * <p>
+ * Players which are {@link DirectlyIdentifiable} have their identifiers read directly, without a callback.
+ * <p>
+ * Every pair pushed to or removed from the linker is passed on to its listener, if it has one, such as the {@link
+ * CachingPlayerUserLookup} it resolves players and users with.
  */
-@RequiredArgsConstructor
 public class LocalPlayerUserLinker implements PlayerUserLinker, AuthenticationStore<MinecraftPlayer, User> {
 
-    private final BidiMap<String, Long> playerStorage;
+    private final LinkStorage playerStorage;
     private final PlayerUserLookup lookup;
+    private final @Nullable AuthenticationStore<? super MinecraftPlayer, ? super User> listener;
+    private final BiConsumer<String, FutureCallback<User>> translator = this::translate;
+    private final BiConsumer<String, User> linker = this::link;
+    private final BiConsumer<String, User> unlinker = this::unlink;
+
+    /**
+     * Creates a linker without a listener.
+     *
+     * @param playerStorage
+     *         The storage of the links.
+     * @param lookup
+     *         The lookup to resolve linked players and users with.
+     */
+    public LocalPlayerUserLinker(final @Nonnull LinkStorage playerStorage, final @Nonnull PlayerUserLookup lookup) {
+        this(playerStorage, lookup, null);
+    }
+
+    /**
+     * Creates a linker.
+     *
+     * @param playerStorage
+     *         The storage of the links.
+     * @param lookup
+     *         The lookup to resolve linked players and users with.
+     * @param listener
+     *         The store to pass every pushed and removed pair on to, or null if there is none. Combine several stores
+     *         with {@link AuthenticationStore#andThen(AuthenticationStore)}.
+     */
+    public LocalPlayerUserLinker(final @Nonnull LinkStorage playerStorage, final @Nonnull PlayerUserLookup lookup,
+                                 final @Nullable AuthenticationStore<? super MinecraftPlayer, ? super User> listener) {
+        this.playerStorage = playerStorage;
+        this.lookup = lookup;
+        this.listener = listener;
+    }
+
+    /**
+     * Creates a linker which stores its links within a new {@link StripedLinkStorage}.
+     *
+     * @param lookup
+     *         The lookup to resolve linked players and users with.
+     */
+    public LocalPlayerUserLinker(final @Nonnull PlayerUserLookup lookup) {
+        this(new StripedLinkStorage(), lookup);
+    }
+
+    /**
+     * Creates a linker which stores its links within the given map.
+     * <p>
+     * The linker is only as thread safe as the map; prefer {@link #LocalPlayerUserLinker(PlayerUserLookup)}.
+     *
+     * @param playerStorage
+     *         The map from player identifiers to user snowflakes.
+     * @param lookup
+     *         The lookup to resolve linked players and users with.
+     */
+    public LocalPlayerUserLinker(final @Nonnull BidiMap<String, Long> playerStorage,
+                                 final @Nonnull PlayerUserLookup lookup) {
+        this(new BidiMapLinkStorage(playerStorage), lookup);
+    }
 
     @Override
     public void translate(final @Nonnull MinecraftPlayer player, final @Nonnull FutureCallback<User> callback) {
-        player.getUniqueIdentifier(ident -> {
-            @Nullable Long result = playerStorage.get(ident);
-            if (result == null) {
-                callback.onSuccess(null);
-            } else {
-                lookup.lookup(result, callback);
-            }
-        });
+        DirectlyIdentifiable.identify(player, callback, translator);
     }
 
     @Override
     public void translate(final @Nonnull User user, final @Nonnull FutureCallback<MinecraftPlayer> callback) {
-        @Nullable String result = playerStorage.getKey(user.getIdLong());
+        @Nullable String result = playerStorage.getPlayer(user.getIdLong());
         if (result == null) {
             callback.onSuccess(null);
         } else {
@@ -62,14 +119,34 @@ public class LocalPlayerUserLinker implements PlayerUserLinker, AuthenticationSt
 
     @Override
     public void push(final @Nonnull MinecraftPlayer first, final @Nonnull User last) {
-        first.getUniqueIdentifier(ident -> playerStorage.put(ident, last.getIdLong()));
+        DirectlyIdentifiable.identify(first, last, linker);
+        if (listener != null) {
+            listener.push(first, last);
+        }
     }
 
     @Override
     public void remove(final @Nonnull MinecraftPlayer first, final @Nonnull User last) {
-        first.getUniqueIdentifier(ident -> {
-            playerStorage.remove(ident);
-            playerStorage.removeValue(last.getIdLong());
-        });
+        DirectlyIdentifiable.identify(first, last, unlinker);
+        if (listener != null) {
+            listener.remove(first, last);
+        }
+    }
+
+    private void link(final String ident, final User user) {
+        playerStorage.put(ident, user.getIdLong());
+    }
+
+    private void unlink(final String ident, final User user) {
+        playerStorage.remove(ident, user.getIdLong());
+    }
+
+    private void translate(final @Nullable String ident, final FutureCallback<User> callback) {
+        long result = playerStorage.getUser(ident);
+        if (result == LinkStorage.NO_USER) {
+            callback.onSuccess(null);
+        } else {
+            lookup.lookup(result, callback);
+        }
     }
 }
@@ -0,0 +1,194 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Open-addressed table from packed player identifiers to user snowflakes.
+ * <p>
+ * Each slot occupies three consecutive longs (most significant bits, least significant bits, user) so that a probe
+ * touches a single cache line. Slots whose user is {@link LinkStorage#NO_USER} are empty. Collisions are resolved by
+ * linear probing and removals shift the following cluster backwards, so no tombstones are ever left behind.
+ */
+@NotThreadSafe
+final class PlayerKeyTable {
+
+    private static final int STRIDE = 3;
+    private static final int USER = 2;
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    /**
+     * Creates an empty table.
+     */
+    PlayerKeyTable() {
+        allocate(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Creates a copy of another table.
+     *
+     * @param other
+     *         The table to copy.
+     */
+    PlayerKeyTable(final PlayerKeyTable other) {
+        slots = other.slots.clone();
+        mask = other.mask;
+        size = other.size;
+        threshold = other.threshold;
+    }
+
+    /**
+     * Fetches the user stored for the given player.
+     *
+     * @param most
+     *         The most significant bits of the player.
+     * @param least
+     *         The least significant bits of the player.
+     *
+     * @return user The stored user, or {@link LinkStorage#NO_USER}.
+     */
+    long get(final long most, final long least) {
+        for (int i = PlayerKeys.hash(most, least) & mask; ; i = (i + 1) & mask) {
+            int offset = i * STRIDE;
+            long user = slots[offset + USER];
+            if (user == LinkStorage.NO_USER || (slots[offset] == most && slots[offset + 1] == least)) {
+                return user;
+            }
+        }
+    }
+
+    /**
+     * Stores the user for the given player.
+     *
+     * @param most
+     *         The most significant bits of the player.
+     * @param least
+     *         The least significant bits of the player.
+     * @param user
+     *         The user to store, which must not be {@link LinkStorage#NO_USER}.
+     *
+     * @return previous The previously stored user, or {@link LinkStorage#NO_USER}.
+     */
+    long put(final long most, final long least, final long user) {
+        for (int i = PlayerKeys.hash(most, least) & mask; ; i = (i + 1) & mask) {
+            int offset = i * STRIDE;
+            long previous = slots[offset + USER];
+            if (previous == LinkStorage.NO_USER) {
+                slots[offset] = most;
+                slots[offset + 1] = least;
+                slots[offset + USER] = user;
+                if (++size > threshold) {
+                    allocate((mask + 1) << 1);
+                }
+                return LinkStorage.NO_USER;
+            } else if (slots[offset] == most && slots[offset + 1] == least) {
+                slots[offset + USER] = user;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Removes the given player.
+     *
+     * @param most
+     *         The most significant bits of the player.
+     * @param least
+     *         The least significant bits of the player.
+     *
+     * @return previous The previously stored user, or {@link LinkStorage#NO_USER}.
+     */
+    long remove(final long most, final long least) {
+        for (int i = PlayerKeys.hash(most, least) & mask; ; i = (i + 1) & mask) {
+            int offset = i * STRIDE;
+            long previous = slots[offset + USER];
+            if (previous == LinkStorage.NO_USER) {
+                return previous;
+            } else if (slots[offset] == most && slots[offset + 1] == least) {
+                shiftBackwards(i);
+                size--;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Fetches the number of players within this table.
+     *
+     * @return size The number of players.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Visits every entry within this table.
+     *
+     * @param consumer
+     *         The consumer to visit the entries with.
+     */
+    void forEach(final PackedLinkConsumer consumer) {
+        for (int offset = 0; offset < slots.length; offset += STRIDE) {
+            long user = slots[offset + USER];
+            if (user != LinkStorage.NO_USER) {
+                consumer.accept(slots[offset], slots[offset + 1], user);
+            }
+        }
+    }
+
+    private void shiftBackwards(final int removed) {
+        int hole = removed;
+        for (int i = (hole + 1) & mask; ; i = (i + 1) & mask) {
+            int offset = i * STRIDE;
+            if (slots[offset + USER] == LinkStorage.NO_USER) {
+                break;
+            }
+            int home = PlayerKeys.hash(slots[offset], slots[offset + 1]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                System.arraycopy(slots, offset, slots, hole * STRIDE, STRIDE);
+                hole = i;
+            }
+        }
+        slots[hole * STRIDE + USER] = LinkStorage.NO_USER;
+    }
+
+    private void allocate(final int capacity) {
+        long[] old = slots;
+        slots = new long[capacity * STRIDE];
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+        if (old != null) {
+            for (int offset = 0; offset < old.length; offset += STRIDE) {
+                if (old[offset + USER] != LinkStorage.NO_USER) {
+                    int i = PlayerKeys.hash(old[offset], old[offset + 1]) & mask;
+                    while (slots[i * STRIDE + USER] != LinkStorage.NO_USER) {
+                        i = (i + 1) & mask;
+                    }
+                    System.arraycopy(old, offset, slots, i * STRIDE, STRIDE);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+
+/**
+ * Packs player identifiers which are canonical UUIDs into two longs and back.
+ */
+final class PlayerKeys {
+
+    private static final int UUID_LENGTH = 36;
+    private static final int NIBBLE_BITS = 4;
+    private static final int HEX_LETTER_OFFSET = 10;
+
+    private PlayerKeys() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Determines whether the given identifier is a lowercase, hyphenated UUID which survives a round trip through
+     * {@link #toIdentifier(long, long)}.
+     *
+     * @param identifier
+     *         The identifier of the player.
+     *
+     * @return packable Whether the identifier may be packed into two longs.
+     */
+    static boolean isPackable(final @Nonnull String identifier) {
+        if (identifier.length() != UUID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = identifier.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the most significant bits of a packable identifier.
+     *
+     * @param identifier
+     *         The packable identifier.
+     *
+     * @return bits The most significant 64 bits of the UUID.
+     */
+    static long mostSignificantBits(final @Nonnull String identifier) {
+        return parseHex(identifier, 0, 8) << 32 | parseHex(identifier, 9, 13) << 16
+            | parseHex(identifier, 14, 18);
+    }
+
+    /**
+     * Extracts the least significant bits of a packable identifier.
+     *
+     * @param identifier
+     *         The packable identifier.
+     *
+     * @return bits The least significant 64 bits of the UUID.
+     */
+    static long leastSignificantBits(final @Nonnull String identifier) {
+        return parseHex(identifier, 19, 23) << 48 | parseHex(identifier, 24, 36);
+    }
+
+    /**
+     * Unpacks an identifier from its two halves.
+     *
+     * @param mostSignificantBits
+     *         The most significant 64 bits of the UUID.
+     * @param leastSignificantBits
+     *         The least significant 64 bits of the UUID.
+     *
+     * @return identifier The canonical form of the identifier.
+     */
+    @Nonnull
+    static String toIdentifier(final long mostSignificantBits, final long leastSignificantBits) {
+        return new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+
+    /**
+     * Spreads the bits of a packed identifier for use as a hash table index.
+     *
+     * @param mostSignificantBits
+     *         The most significant 64 bits of the UUID.
+     * @param leastSignificantBits
+     *         The least significant 64 bits of the UUID.
+     *
+     * @return hash The spread hash.
+     */
+    static int hash(final long mostSignificantBits, final long leastSignificantBits) {
+        return hash(mostSignificantBits * 31 + leastSignificantBits);
+    }
+
+    /**
+     * Spreads the bits of a snowflake for use as a hash table index.
+     *
+     * @param value
+     *         The value to spread.
+     *
+     * @return hash The spread hash.
+     */
+    static int hash(final long value) {
+        // MurmurHash3 finalizer
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static long parseHex(final String identifier, final int from, final int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = identifier.charAt(i);
+            result = result << NIBBLE_BITS | (c <= '9' ? c - '0' : c - 'a' + HEX_LETTER_OFFSET);
+        }
+        return result;
+    }
+
+}
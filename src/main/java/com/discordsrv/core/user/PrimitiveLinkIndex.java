@@ -0,0 +1,144 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Leverages a pair of primitive, open-addressed tables for storing links.
+ * <p>
+ * Player identifiers which are canonical UUIDs are packed into two longs and user snowflakes are kept as raw longs,
+ * so a link costs no objects at all. The rare identifiers which are not canonical UUIDs are kept in ordinary maps.
+ */
+@ThreadSafe
+public class PrimitiveLinkIndex implements LinkStorage {
+
+    private final PlayerKeyTable players;
+    private final UserKeyTable users;
+    private final Map<String, Long> namedPlayers;
+    private final Map<Long, String> namedUsers;
+
+    /**
+     * Creates an empty index.
+     */
+    public PrimitiveLinkIndex() {
+        players = new PlayerKeyTable();
+        users = new UserKeyTable();
+        namedPlayers = new HashMap<>();
+        namedUsers = new HashMap<>();
+    }
+
+    private PrimitiveLinkIndex(final PrimitiveLinkIndex other) {
+        players = new PlayerKeyTable(other.players);
+        users = new UserKeyTable(other.users);
+        namedPlayers = new HashMap<>(other.namedPlayers);
+        namedUsers = new HashMap<>(other.namedUsers);
+    }
+
+    @Override
+    public synchronized long getUser(final @Nonnull String player) {
+        if (PlayerKeys.isPackable(player)) {
+            return players.get(PlayerKeys.mostSignificantBits(player), PlayerKeys.leastSignificantBits(player));
+        }
+        @Nullable Long result = namedPlayers.get(player);
+        return result == null ? NO_USER : result;
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getPlayer(final long user) {
+        int slot = users.find(user);
+        if (slot < 0) {
+            return namedUsers.isEmpty() ? null : namedUsers.get(user);
+        }
+        return PlayerKeys.toIdentifier(users.mostSignificantBits(slot), users.leastSignificantBits(slot));
+    }
+
+    @Override
+    public synchronized void put(final @Nonnull String player, final long user) {
+        if (user == NO_USER) {
+            throw new IllegalArgumentException("Cannot link a player to the absent user");
+        }
+        unlinkPlayer(player);
+        unlinkUser(user);
+        if (PlayerKeys.isPackable(player)) {
+            long most = PlayerKeys.mostSignificantBits(player);
+            long least = PlayerKeys.leastSignificantBits(player);
+            players.put(most, least, user);
+            users.put(user, most, least);
+        } else {
+            namedPlayers.put(player, user);
+            namedUsers.put(user, player);
+        }
+    }
+
+    @Override
+    public synchronized void remove(final @Nonnull String player, final long user) {
+        unlinkPlayer(player);
+        unlinkUser(user);
+    }
+
+    @Override
+    public synchronized int size() {
+        return players.size() + namedPlayers.size();
+    }
+
+    @Override
+    public void forEach(final @Nonnull LinkConsumer consumer) {
+        // Copying costs little more than copying the arrays of the tables, and lets the consumer run without the lock.
+        PrimitiveLinkIndex copy;
+        synchronized (this) {
+            copy = new PrimitiveLinkIndex(this);
+        }
+        copy.players.forEach((most, least, user) -> consumer.accept(PlayerKeys.toIdentifier(most, least), user));
+        copy.namedPlayers.forEach(consumer::accept);
+    }
+
+    private void unlinkPlayer(final String player) {
+        if (PlayerKeys.isPackable(player)) {
+            long previous = players.remove(PlayerKeys.mostSignificantBits(player),
+                PlayerKeys.leastSignificantBits(player));
+            if (previous != NO_USER) {
+                users.remove(previous);
+            }
+        } else {
+            @Nullable Long previous = namedPlayers.remove(player);
+            if (previous != null) {
+                namedUsers.remove(previous);
+            }
+        }
+    }
+
+    private void unlinkUser(final long user) {
+        int slot = users.find(user);
+        if (slot >= 0) {
+            players.remove(users.mostSignificantBits(slot), users.leastSignificantBits(slot));
+            users.removeAt(slot);
+        } else if (!namedUsers.isEmpty()) {
+            @Nullable String previous = namedUsers.remove(user);
+            if (previous != null) {
+                namedPlayers.remove(previous);
+            }
+        }
+    }
+
+}
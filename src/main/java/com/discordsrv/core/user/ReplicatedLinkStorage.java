@@ -0,0 +1,267 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares the links of a local storage with the other nodes of a network, such as the backend servers behind a proxy.
+ * <p>
+ * Every change is broadcast as a {@link LinkDelta} of versioned writes, one per player whose link changed. Versions
+ * are Lamport clocks with the identifier of the node in their low bits, so they are unique across the network, and
+ * only the newest write of each player counts. Unlinked players keep their version as a tombstone, so a late write
+ * cannot bring back a link which was removed after it. When nodes link the same user to different players
+ * concurrently, the user is linked to the player with the newest write; the others stay unlinked unless that player
+ * moves on. The links are thus a function of the writes received alone, so every node converges on the same links
+ * once it has received the same writes, in whichever order and however often they arrived.
+ * <p>
+ * A node which starts after the others, or which missed messages, calls {@link #join()} to exchange its full state
+ * with every other node. Tombstones are never discarded, so the state grows with the number of players ever linked.
+ * Use this with {@link LocalPlayerUserLinker} to replicate its pushes and removals.
+ */
+@ThreadSafe
+public class ReplicatedLinkStorage implements LinkStorage {
+
+    /** The number of low bits of a version which hold the identifier of its node. */
+    static final int NODE_BITS = 16;
+    /** The highest identifier a node may have. */
+    public static final int MAXIMUM_NODE = (1 << NODE_BITS) - 1;
+
+    private final int node;
+    private final LinkStorage local;
+    private final ReplicationTransport transport;
+    @GuardedBy("this")
+    private final Map<String, Stamp> stamps = new HashMap<>();
+    @GuardedBy("this")
+    private final Map<Long, Set<String>> claimants = new HashMap<>();
+    @GuardedBy("this")
+    private long clock;
+
+    /**
+     * Creates a replicated storage. Links already within the local storage are adopted as the oldest changes of this
+     * node.
+     *
+     * @param node
+     *         The identifier of this node, unique within the network.
+     * @param local
+     *         The storage to keep the links of this node in.
+     * @param transport
+     *         The transport to reach the other nodes through.
+     */
+    public ReplicatedLinkStorage(final int node, final @Nonnull LinkStorage local,
+                                 final @Nonnull ReplicationTransport transport) {
+        if (node < 0 || node > MAXIMUM_NODE) {
+            throw new IllegalArgumentException("Node identifier out of range: " + node);
+        }
+        this.node = node;
+        this.local = local;
+        this.transport = transport;
+        local.forEach((player, user) -> {
+            stamps.put(player, new Stamp(user, node));
+            claimants.computeIfAbsent(user, ignored -> new HashSet<>()).add(player);
+        });
+    }
+
+    @Override
+    public long getUser(final @Nonnull String player) {
+        return local.getUser(player);
+    }
+
+    @Nullable
+    @Override
+    public String getPlayer(final long user) {
+        return local.getPlayer(user);
+    }
+
+    @Override
+    public void put(final @Nonnull String player, final long user) {
+        if (user == NO_USER) {
+            throw new IllegalArgumentException("Cannot link a player to the absent user");
+        }
+        LinkDelta delta;
+        synchronized (this) {
+            List<String> players = unclaim(user, player);
+            players.add(player);
+            long[] users = new long[players.size()];
+            Arrays.fill(users, NO_USER);
+            users[users.length - 1] = user;
+            delta = change(players, users);
+        }
+        transport.broadcast(delta);
+    }
+
+    @Override
+    public void remove(final @Nonnull String player, final long user) {
+        LinkDelta delta;
+        synchronized (this) {
+            List<String> players = unclaim(user, player);
+            players.add(player);
+            long[] users = new long[players.size()];
+            Arrays.fill(users, NO_USER);
+            delta = change(players, users);
+        }
+        transport.broadcast(delta);
+    }
+
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    @Override
+    public void forEach(final @Nonnull LinkConsumer consumer) {
+        local.forEach(consumer);
+    }
+
+    /**
+     * Applies a message received from another node. Writes which are not newer than what this node holds are
+     * ignored, and a {@link LinkDelta.Kind#SYNC} is answered with the full state of this node.
+     *
+     * @param delta
+     *         The message.
+     */
+    public void receive(final @Nonnull LinkDelta delta) {
+        @Nullable LinkDelta reply = null;
+        synchronized (this) {
+            for (int i = 0; i < delta.size(); i++) {
+                clock = Math.max(clock, delta.getVersion(i) >>> NODE_BITS);
+                apply(delta.getPlayer(i), delta.getUser(i), delta.getVersion(i));
+            }
+            if (delta.getKind() == LinkDelta.Kind.SYNC) {
+                reply = state(LinkDelta.Kind.SYNC_REPLY);
+            }
+        }
+        if (reply != null) {
+            transport.send(delta.getOrigin(), reply);
+        }
+    }
+
+    /**
+     * Exchanges the full state of this node with every other node, so that each ends up with the newest writes of
+     * both.
+     */
+    public void join() {
+        LinkDelta delta;
+        synchronized (this) {
+            delta = state(LinkDelta.Kind.SYNC);
+        }
+        transport.broadcast(delta);
+    }
+
+    @GuardedBy("this")
+    private List<String> unclaim(final long user, final String player) {
+        List<String> others = new ArrayList<>(claimants.getOrDefault(user, Collections.emptySet()));
+        others.remove(player);
+        return others;
+    }
+
+    @GuardedBy("this")
+    private LinkDelta change(final List<String> players, final long[] users) {
+        long version = (++clock << NODE_BITS) | node;
+        long[] versions = new long[users.length];
+        for (int i = 0; i < users.length; i++) {
+            versions[i] = version;
+            apply(players.get(i), users[i], version);
+        }
+        return new LinkDelta(LinkDelta.Kind.CHANGE, node, players.toArray(new String[0]), users, versions);
+    }
+
+    @GuardedBy("this")
+    private LinkDelta state(final LinkDelta.Kind kind) {
+        String[] players = new String[stamps.size()];
+        long[] users = new long[players.length];
+        long[] versions = new long[players.length];
+        int i = 0;
+        for (Map.Entry<String, Stamp> entry : stamps.entrySet()) {
+            players[i] = entry.getKey();
+            users[i] = entry.getValue().user;
+            versions[i] = entry.getValue().version;
+            i++;
+        }
+        return new LinkDelta(kind, node, players, users, versions);
+    }
+
+    @GuardedBy("this")
+    private void apply(final String player, final long user, final long version) {
+        @Nullable Stamp current = stamps.put(player, new Stamp(user, version));
+        if (current != null && current.version >= version) {
+            stamps.put(player, current);
+            return;
+        }
+        if (current != null && current.user != NO_USER && current.user != user) {
+            Set<String> players = claimants.get(current.user);
+            players.remove(player);
+            if (players.isEmpty()) {
+                claimants.remove(current.user);
+            }
+            settle(current.user);
+        }
+        if (user != NO_USER) {
+            claimants.computeIfAbsent(user, ignored -> new HashSet<>()).add(player);
+            settle(user);
+        }
+    }
+
+    @GuardedBy("this")
+    private void settle(final long user) {
+        @Nullable String winner = null;
+        long newest = Long.MIN_VALUE;
+        for (String player : claimants.getOrDefault(user, Collections.emptySet())) {
+            long version = stamps.get(player).version;
+            if (version > newest) {
+                winner = player;
+                newest = version;
+            }
+        }
+        @Nullable String linked = local.getPlayer(user);
+        if (winner == null) {
+            if (linked != null) {
+                local.remove(linked, user);
+            }
+        } else if (!winner.equals(linked)) {
+            local.put(winner, user);
+        }
+    }
+
+    /**
+     * The user last claimed by a player, and the version of that claim.
+     */
+    private static final class Stamp {
+
+        private final long user;
+        private final long version;
+
+        private Stamp(final long user, final long version) {
+            this.user = user;
+            this.version = version;
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * ReplicationTransport type, for carrying {@link LinkDelta} messages between the nodes of a network.
+ * <p>
+ * Messages may be delivered late, out of order or more than once. The receiving side hands every message it receives
+ * to {@link ReplicatedLinkStorage#receive(LinkDelta)}.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public interface ReplicationTransport {
+
+    /**
+     * Sends a message to every other node.
+     *
+     * @param delta
+     *         The message to send.
+     */
+    void broadcast(LinkDelta delta);
+
+    /**
+     * Sends a message to a single node.
+     *
+     * @param node
+     *         The identifier of the node.
+     * @param delta
+     *         The message to send.
+     */
+    void send(int node, LinkDelta delta);
+
+}
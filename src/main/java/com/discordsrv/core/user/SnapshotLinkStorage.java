@@ -0,0 +1,222 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Leverages a {@link LinkSnapshot} for storing links, keeping the changes made since the snapshot was taken on the
+ * heap.
+ * <p>
+ * Lookups consult the changes first and fall back to a binary search of the snapshot, so the bulk of the links never
+ * needs to be loaded onto the heap.
+ */
+@ThreadSafe
+public class SnapshotLinkStorage implements LinkStorage {
+
+    @GuardedBy("this")
+    private LinkSnapshot snapshot;
+    @GuardedBy("this")
+    private Changes changes;
+    @GuardedBy("this")
+    @Nullable
+    private Changes compacting;
+    @GuardedBy("this")
+    private int size;
+    private final boolean readOnly;
+
+    /**
+     * Creates a storage which starts out with the links of the given snapshot.
+     *
+     * @param snapshot
+     *         The snapshot to serve links from.
+     */
+    public SnapshotLinkStorage(final @Nonnull LinkSnapshot snapshot) {
+        this(snapshot, new Changes(), snapshot.size(), false);
+    }
+
+    private SnapshotLinkStorage(final LinkSnapshot snapshot, final Changes changes, final int size,
+                                final boolean readOnly) {
+        this.snapshot = snapshot;
+        this.changes = changes;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public synchronized long getUser(final @Nonnull String player) {
+        @Nullable Long result = changes.users.get(player);
+        if (result == null && compacting != null) {
+            result = compacting.users.get(player);
+        }
+        return result == null ? snapshot.getUser(player) : result;
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getPlayer(final long user) {
+        @Nullable String result = changes.players.get(user);
+        if (result == null && compacting != null) {
+            result = compacting.players.get(user);
+        }
+        if (result == null) {
+            return snapshot.getPlayer(user);
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    @Override
+    public synchronized void put(final @Nonnull String player, final long user) {
+        if (user == NO_USER) {
+            throw new IllegalArgumentException("Cannot link a player to the absent user");
+        }
+        ensureWritable();
+        long previousUser = getUser(player);
+        @Nullable String previousPlayer = getPlayer(user);
+        if (previousUser == user) {
+            return;
+        }
+        unlink(player, previousUser, previousPlayer);
+        changes.users.put(player, user);
+        changes.players.put(user, player);
+        size++;
+    }
+
+    @Override
+    public synchronized void remove(final @Nonnull String player, final long user) {
+        ensureWritable();
+        unlink(player, getUser(player), getPlayer(user));
+        changes.players.put(user, Changes.UNLINKED_PLAYER);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(final @Nonnull LinkConsumer consumer) {
+        LinkSnapshot base;
+        @Nullable Changes older;
+        Changes newer;
+        synchronized (this) {
+            base = snapshot;
+            older = compacting;
+            newer = new Changes(changes);
+        }
+        base.forEach((player, user) -> {
+            if (!newer.users.containsKey(player) && (older == null || !older.users.containsKey(player))) {
+                consumer.accept(player, user);
+            }
+        });
+        if (older != null) {
+            older.forEach((player, user) -> {
+                if (!newer.users.containsKey(player)) {
+                    consumer.accept(player, user);
+                }
+            });
+        }
+        newer.forEach(consumer);
+    }
+
+    /**
+     * Starts compacting the changes into a new snapshot. Changes made from now on are kept apart until the compaction
+     * is finished.
+     *
+     * @return view A read only view of the links to write the new snapshot from, which is never modified.
+     */
+    @Nonnull
+    synchronized LinkStorage beginCompaction() {
+        if (compacting != null) {
+            throw new IllegalStateException("A compaction is already in progress");
+        }
+        SnapshotLinkStorage view = new SnapshotLinkStorage(snapshot, changes, size, true);
+        compacting = changes;
+        changes = new Changes();
+        return view;
+    }
+
+    /**
+     * Finishes a compaction by replacing the snapshot and the changes it was taken from.
+     *
+     * @param compacted
+     *         The snapshot written from the view of {@link #beginCompaction()}.
+     */
+    synchronized void finishCompaction(final @Nonnull LinkSnapshot compacted) {
+        if (compacting == null) {
+            throw new IllegalStateException("No compaction is in progress");
+        }
+        snapshot = compacted;
+        compacting = null;
+    }
+
+    private void unlink(final String player, final long previousUser, final @Nullable String previousPlayer) {
+        if (previousUser != NO_USER) {
+            changes.users.put(player, NO_USER);
+            changes.players.put(previousUser, Changes.UNLINKED_PLAYER);
+            size--;
+        }
+        if (previousPlayer != null && !previousPlayer.equals(player)) {
+            changes.users.put(previousPlayer, NO_USER);
+            size--;
+        }
+    }
+
+    private void ensureWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("This view of the links is read only");
+        }
+    }
+
+    /**
+     * The links changed since a snapshot, where unlinked players map to {@link LinkStorage#NO_USER} and unlinked users
+     * map to an empty identifier.
+     */
+    private static final class Changes {
+
+        private static final String UNLINKED_PLAYER = "";
+
+        private final Map<String, Long> users;
+        private final Map<Long, String> players;
+
+        private Changes() {
+            users = new HashMap<>();
+            players = new HashMap<>();
+        }
+
+        private Changes(final Changes other) {
+            users = new HashMap<>(other.users);
+            players = new HashMap<>(other.players);
+        }
+
+        private void forEach(final LinkConsumer consumer) {
+            users.forEach((player, user) -> {
+                if (user != NO_USER) {
+                    consumer.accept(player, user);
+                }
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,321 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Leverages a set of independently locked stripes for storing links, so that lookups and changes of unrelated links
+ * do not contend with each other.
+ * <p>
+ * A player is kept within the stripe chosen by its hash, and so is a user, so a link touches at most two stripes and
+ * replacing a link at most four. Changes lock every stripe they touch in ascending order and validate what they read
+ * beforehand once the locks are held, so both directions of every link change together even when changes for the same
+ * player or user race. Lookups only take the read lock of a single stripe.
+ * <p>
+ * {@link #size()} and {@link #forEach(LinkConsumer)} visit the stripes one at a time, and thus only reflect the links
+ * which did not change while they ran.
+ */
+@ThreadSafe
+public class StripedLinkStorage implements LinkStorage {
+
+    /**
+     * The number of stripes used when none is specified.
+     */
+    public static final int DEFAULT_CONCURRENCY = 64;
+
+    private static final int MAXIMUM_CONCURRENCY = 1 << 16;
+    private static final int MAXIMUM_STRIPES_PER_CHANGE = 4;
+
+    private final Stripe[] stripes;
+    private final int shift;
+    private final int mask;
+
+    /**
+     * Creates an empty storage with {@link #DEFAULT_CONCURRENCY} stripes.
+     */
+    public StripedLinkStorage() {
+        this(DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param concurrency
+     *         The number of stripes, which is rounded up to a power of two.
+     */
+    public StripedLinkStorage(final int concurrency) {
+        if (concurrency < 1 || concurrency > MAXIMUM_CONCURRENCY) {
+            throw new IllegalArgumentException("Concurrency out of range: " + concurrency);
+        }
+        int bits = Integer.SIZE - Integer.numberOfLeadingZeros(concurrency - 1);
+        stripes = new Stripe[1 << bits];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        // The tables index by the low bits of the same hashes, so the stripe is chosen by the high bits.
+        shift = Integer.SIZE - bits;
+        mask = stripes.length - 1;
+    }
+
+    @Override
+    public long getUser(final @Nonnull String player) {
+        boolean packed = PlayerKeys.isPackable(player);
+        long most = packed ? PlayerKeys.mostSignificantBits(player) : 0;
+        long least = packed ? PlayerKeys.leastSignificantBits(player) : 0;
+        Stripe stripe = stripes[playerStripe(player, packed, most, least)];
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.getUser(player, packed, most, least);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getPlayer(final long user) {
+        Stripe stripe = stripes[userStripe(user)];
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.getPlayer(user);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(final @Nonnull String player, final long user) {
+        if (user == NO_USER) {
+            throw new IllegalArgumentException("Cannot link a player to the absent user");
+        }
+        change(player, user, true);
+    }
+
+    @Override
+    public void remove(final @Nonnull String player, final long user) {
+        change(player, user, false);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                size += stripe.players.size() + stripe.namedPlayers.size();
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void forEach(final @Nonnull LinkConsumer consumer) {
+        for (Stripe stripe : stripes) {
+            PlayerKeyTable players;
+            Map<String, Long> namedPlayers;
+            stripe.lock.readLock().lock();
+            try {
+                players = new PlayerKeyTable(stripe.players);
+                namedPlayers = stripe.namedPlayers.isEmpty() ? null : new HashMap<>(stripe.namedPlayers);
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+            players.forEach((most, least, user) -> consumer.accept(PlayerKeys.toIdentifier(most, least), user));
+            if (namedPlayers != null) {
+                namedPlayers.forEach(consumer::accept);
+            }
+        }
+    }
+
+    /**
+     * Unlinks the given player and user from whatever they are linked to, then optionally links them to each other.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     * @param link
+     *         Whether to link the player and the user afterwards.
+     */
+    private void change(final String player, final long user, final boolean link) {
+        boolean packed = PlayerKeys.isPackable(player);
+        long most = packed ? PlayerKeys.mostSignificantBits(player) : 0;
+        long least = packed ? PlayerKeys.leastSignificantBits(player) : 0;
+        int playerStripe = playerStripe(player, packed, most, least);
+        int userStripe = userStripe(user);
+        int[] locked = new int[MAXIMUM_STRIPES_PER_CHANGE];
+        while (true) {
+            // Find out which other stripes the change touches, then confirm nothing moved once they are all locked.
+            long previousUser = getUser(player);
+            @Nullable String previousPlayer = getPlayer(user);
+            locked[0] = playerStripe;
+            locked[1] = userStripe;
+            locked[2] = previousUser == NO_USER ? playerStripe : userStripe(previousUser);
+            locked[3] = previousPlayer == null ? userStripe : playerStripe(previousPlayer);
+            int count = lock(locked);
+            try {
+                if (stripes[playerStripe].getUser(player, packed, most, least) != previousUser
+                    || !Objects.equals(stripes[userStripe].getPlayer(user), previousPlayer)) {
+                    continue;
+                }
+                if (previousUser != NO_USER) {
+                    stripes[playerStripe].removePlayer(player, packed, most, least);
+                    stripes[userStripe(previousUser)].removeUser(previousUser);
+                }
+                if (previousPlayer != null) {
+                    stripes[userStripe].removeUser(user);
+                    removePlayer(previousPlayer);
+                }
+                if (link) {
+                    stripes[playerStripe].putPlayer(player, packed, most, least, user);
+                    stripes[userStripe].putUser(user, player, packed, most, least);
+                }
+                return;
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    stripes[locked[i]].lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Locks the given stripes in ascending order, skipping duplicates.
+     *
+     * @param indices
+     *         The stripes to lock, which are sorted and compacted to the locked stripes in place.
+     *
+     * @return count The number of distinct stripes which were locked.
+     */
+    private int lock(final int[] indices) {
+        for (int i = 1; i < indices.length; i++) {
+            int current = indices[i];
+            int j = i - 1;
+            for (; j >= 0 && indices[j] > current; j--) {
+                indices[j + 1] = indices[j];
+            }
+            indices[j + 1] = current;
+        }
+        int count = 0;
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                indices[count++] = indices[i];
+                stripes[indices[i]].lock.writeLock().lock();
+            }
+        }
+        return count;
+    }
+
+    private void removePlayer(final String player) {
+        boolean packed = PlayerKeys.isPackable(player);
+        long most = packed ? PlayerKeys.mostSignificantBits(player) : 0;
+        long least = packed ? PlayerKeys.leastSignificantBits(player) : 0;
+        stripes[playerStripe(player, packed, most, least)].removePlayer(player, packed, most, least);
+    }
+
+    private int playerStripe(final String player) {
+        boolean packed = PlayerKeys.isPackable(player);
+        return playerStripe(player, packed, packed ? PlayerKeys.mostSignificantBits(player) : 0,
+            packed ? PlayerKeys.leastSignificantBits(player) : 0);
+    }
+
+    private int playerStripe(final String player, final boolean packed, final long most, final long least) {
+        int hash = packed ? PlayerKeys.hash(most, least) : PlayerKeys.hash(player.hashCode());
+        return (hash >>> shift) & mask;
+    }
+
+    private int userStripe(final long user) {
+        return (PlayerKeys.hash(user) >>> shift) & mask;
+    }
+
+    /**
+     * One stripe of the storage, holding the players and users whose hashes select it.
+     * <p>
+     * A player and its user are kept within the stripes chosen by their own hashes, so the two halves of a link are
+     * usually found in different stripes.
+     */
+    private static final class Stripe {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final PlayerKeyTable players = new PlayerKeyTable();
+        private final UserKeyTable users = new UserKeyTable();
+        private final Map<String, Long> namedPlayers = new HashMap<>();
+        private final Map<Long, String> namedUsers = new HashMap<>();
+
+        long getUser(final String player, final boolean packed, final long most, final long least) {
+            if (packed) {
+                return players.get(most, least);
+            }
+            @Nullable Long result = namedPlayers.get(player);
+            return result == null ? NO_USER : result;
+        }
+
+        @Nullable
+        String getPlayer(final long user) {
+            int slot = users.find(user);
+            if (slot < 0) {
+                return namedUsers.isEmpty() ? null : namedUsers.get(user);
+            }
+            return PlayerKeys.toIdentifier(users.mostSignificantBits(slot), users.leastSignificantBits(slot));
+        }
+
+        void putPlayer(final String player, final boolean packed, final long most, final long least,
+                       final long user) {
+            if (packed) {
+                players.put(most, least, user);
+            } else {
+                namedPlayers.put(player, user);
+            }
+        }
+
+        void putUser(final long user, final String player, final boolean packed, final long most,
+                     final long least) {
+            if (packed) {
+                users.put(user, most, least);
+            } else {
+                namedUsers.put(user, player);
+            }
+        }
+
+        void removePlayer(final String player, final boolean packed, final long most, final long least) {
+            if (packed) {
+                players.remove(most, least);
+            } else {
+                namedPlayers.remove(player);
+            }
+        }
+
+        void removeUser(final long user) {
+            if (!users.remove(user)) {
+                namedUsers.remove(user);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * UplinkTransport type, for fetching links from an upstream link service.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public interface UplinkTransport {
+
+    /**
+     * Fetches the snowflake of the user linked to the given player.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param callback
+     *         The callback to invoke with the snowflake, or with null if the player is not linked.
+     */
+    void fetchUser(String player, FutureCallback<Long> callback);
+
+    /**
+     * Fetches the identifier of the player linked to the given user.
+     *
+     * @param user
+     *         The snowflake of the user.
+     * @param callback
+     *         The callback to invoke with the identifier, or with null if the user is not linked.
+     */
+    void fetchPlayer(long user, FutureCallback<String> callback);
+
+}
@@ -17,38 +17,218 @@
  */
 package com.discordsrv.core.user;
 
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
 import com.discordsrv.core.api.user.MinecraftPlayer;
 import com.discordsrv.core.api.user.PlayerUserLinker;
 import com.discordsrv.core.api.user.PlayerUserLookup;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.FutureCallback;
-import lombok.RequiredArgsConstructor;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import net.dv8tion.jda.core.entities.User;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
- * Leverages link.scarsz.me to perform lookups of player/user links.
+ * Leverages an upstream link service, such as link.scarsz.me, to perform lookups of player/user links.
  * <p>
- * TODO Finish link.scarsz.me
+ * Resolved links are cached in both directions, including the absence of a link. Concurrent misses for the same
+ * player or user share a single upstream request.
  */
-@RequiredArgsConstructor
 public class UplinkedPlayerUserLinker implements PlayerUserLinker {
 
-    private final ConcurrentMap<String, User> playerCache = new ConcurrentHashMap<>();
+    /** The default maximum number of entries cached per direction. */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    /** The default number of minutes a link stays cached. */
+    public static final long DEFAULT_EXPIRY_MINUTES = 5;
+
+    private static final String NO_PLAYER = "";
+
+    private final Cache<String, Long> userCache;
+    private final Cache<Long, String> playerCache;
+    private final ConcurrentMap<String, ListenableFuture<Long>> pendingUsers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ListenableFuture<String>> pendingPlayers = new ConcurrentHashMap<>();
+    private final UplinkTransport transport;
     private final PlayerUserLookup lookup;
+    private final BiConsumer<String, FutureCallback<User>> translator = this::translate;
+
+    /**
+     * Creates a linker with the default cache bounds.
+     *
+     * @param transport
+     *         The transport to reach the upstream link service through.
+     * @param lookup
+     *         The lookup to resolve linked players and users with.
+     */
+    public UplinkedPlayerUserLinker(final @Nonnull UplinkTransport transport, final @Nonnull PlayerUserLookup lookup) {
+        this(transport, lookup, CacheBuilder.newBuilder().maximumSize(DEFAULT_MAXIMUM_SIZE)
+            .expireAfterWrite(DEFAULT_EXPIRY_MINUTES, TimeUnit.MINUTES));
+    }
+
+    /**
+     * Creates a linker whose caches are built by the given builder.
+     *
+     * @param transport
+     *         The transport to reach the upstream link service through.
+     * @param lookup
+     *         The lookup to resolve linked players and users with.
+     * @param cacheBuilder
+     *         The builder for the cache of each direction, which should bound its size and expire its entries.
+     */
+    public UplinkedPlayerUserLinker(final @Nonnull UplinkTransport transport, final @Nonnull PlayerUserLookup lookup,
+                                    final @Nonnull CacheBuilder<Object, Object> cacheBuilder) {
+        this.transport = transport;
+        this.lookup = lookup;
+        this.userCache = cacheBuilder.build();
+        this.playerCache = cacheBuilder.build();
+    }
 
     @Override
     public void translate(final @Nonnull MinecraftPlayer player, final @Nonnull FutureCallback<User> callback) {
-        // TODO
-        throw new UnsupportedOperationException();
+        DirectlyIdentifiable.identify(player, callback, translator);
+    }
+
+    private void translate(final @Nonnull String ident, final @Nonnull FutureCallback<User> callback) {
+        @Nullable Long cached = userCache.getIfPresent(ident);
+        if (cached != null) {
+            resolveUser(cached, callback);
+            return;
+        }
+        Futures.addCallback(fetchUser(ident), new FutureCallback<Long>() {
+            @Override
+            public void onSuccess(final @Nullable Long result) {
+                //noinspection ConstantConditions
+                resolveUser(result, callback);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                callback.onFailure(t);
+            }
+        }, MoreExecutors.directExecutor());
     }
 
     @Override
     public void translate(final @Nonnull User user, final @Nonnull FutureCallback<MinecraftPlayer> callback) {
-        // TODO
-        throw new UnsupportedOperationException();
+        long id = user.getIdLong();
+        @Nullable String cached = playerCache.getIfPresent(id);
+        if (cached != null) {
+            resolvePlayer(cached, callback);
+            return;
+        }
+        Futures.addCallback(fetchPlayer(id), new FutureCallback<String>() {
+            @Override
+            public void onSuccess(final @Nullable String result) {
+                //noinspection ConstantConditions
+                resolvePlayer(result, callback);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                callback.onFailure(t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Discards any cached link of the given player or user, so that the next translation asks upstream again.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     */
+    public void invalidate(final @Nonnull String player, final long user) {
+        userCache.invalidate(player);
+        playerCache.invalidate(user);
+    }
+
+    private void resolveUser(final long user, final FutureCallback<User> callback) {
+        if (user == LinkStorage.NO_USER) {
+            callback.onSuccess(null);
+        } else {
+            lookup.lookup(user, callback);
+        }
+    }
+
+    private void resolvePlayer(final String player, final FutureCallback<MinecraftPlayer> callback) {
+        if (player.isEmpty()) {
+            callback.onSuccess(null);
+        } else {
+            lookup.lookup(player, callback);
+        }
+    }
+
+    private ListenableFuture<Long> fetchUser(final String player) {
+        SettableFuture<Long> created = SettableFuture.create();
+        @Nullable ListenableFuture<Long> existing = pendingUsers.putIfAbsent(player, created);
+        if (existing != null) {
+            return existing;
+        }
+        FutureCallback<Long> upstream = new FutureCallback<Long>() {
+            @Override
+            public void onSuccess(final @Nullable Long result) {
+                long user = result == null ? LinkStorage.NO_USER : result;
+                userCache.put(player, user);
+                if (user != LinkStorage.NO_USER) {
+                    playerCache.put(user, player);
+                }
+                pendingUsers.remove(player);
+                created.set(user);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                pendingUsers.remove(player);
+                created.setException(t);
+            }
+        };
+        try {
+            transport.fetchUser(player, upstream);
+        } catch (RuntimeException e) {
+            upstream.onFailure(e);
+        }
+        return created;
+    }
+
+    private ListenableFuture<String> fetchPlayer(final long user) {
+        SettableFuture<String> created = SettableFuture.create();
+        @Nullable ListenableFuture<String> existing = pendingPlayers.putIfAbsent(user, created);
+        if (existing != null) {
+            return existing;
+        }
+        FutureCallback<String> upstream = new FutureCallback<String>() {
+            @Override
+            public void onSuccess(final @Nullable String result) {
+                String player = result == null ? NO_PLAYER : result;
+                playerCache.put(user, player);
+                if (result != null) {
+                    userCache.put(player, user);
+                }
+                pendingPlayers.remove(user);
+                created.set(player);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                pendingPlayers.remove(user);
+                created.setException(t);
+            }
+        };
+        try {
+            transport.fetchPlayer(user, upstream);
+        } catch (RuntimeException e) {
+            upstream.onFailure(e);
+        }
+        return created;
     }
 
 }
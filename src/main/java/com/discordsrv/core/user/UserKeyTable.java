@@ -0,0 +1,198 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Open-addressed table from user snowflakes to packed player identifiers.
+ * <p>
+ * Each slot occupies three consecutive longs (user, most significant bits, least significant bits). Slots whose user
+ * is {@link LinkStorage#NO_USER} are empty. Collisions are resolved by linear probing and removals shift the following
+ * cluster backwards, so no tombstones are ever left behind.
+ */
+@NotThreadSafe
+final class UserKeyTable {
+
+    private static final int STRIDE = 3;
+    private static final int LEAST = 2;
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    /**
+     * Creates an empty table.
+     */
+    UserKeyTable() {
+        allocate(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Creates a copy of another table.
+     *
+     * @param other
+     *         The table to copy.
+     */
+    UserKeyTable(final UserKeyTable other) {
+        slots = other.slots.clone();
+        mask = other.mask;
+        size = other.size;
+        threshold = other.threshold;
+    }
+
+    /**
+     * Finds the slot of the given user.
+     *
+     * @param user
+     *         The user to find.
+     *
+     * @return slot The slot of the user, or -1 if the user is not present.
+     */
+    int find(final long user) {
+        for (int i = PlayerKeys.hash(user) & mask; ; i = (i + 1) & mask) {
+            long current = slots[i * STRIDE];
+            if (current == user) {
+                return i;
+            } else if (current == LinkStorage.NO_USER) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Fetches the most significant bits of the player within a slot.
+     *
+     * @param slot
+     *         A slot returned by {@link #find(long)}.
+     *
+     * @return most The most significant bits of the player.
+     */
+    long mostSignificantBits(final int slot) {
+        return slots[slot * STRIDE + 1];
+    }
+
+    /**
+     * Fetches the least significant bits of the player within a slot.
+     *
+     * @param slot
+     *         A slot returned by {@link #find(long)}.
+     *
+     * @return least The least significant bits of the player.
+     */
+    long leastSignificantBits(final int slot) {
+        return slots[slot * STRIDE + LEAST];
+    }
+
+    /**
+     * Stores the player for the given user, replacing any player stored before.
+     *
+     * @param user
+     *         The user, which must not be {@link LinkStorage#NO_USER}.
+     * @param most
+     *         The most significant bits of the player.
+     * @param least
+     *         The least significant bits of the player.
+     */
+    void put(final long user, final long most, final long least) {
+        for (int i = PlayerKeys.hash(user) & mask; ; i = (i + 1) & mask) {
+            int offset = i * STRIDE;
+            long current = slots[offset];
+            if (current == user || current == LinkStorage.NO_USER) {
+                slots[offset] = user;
+                slots[offset + 1] = most;
+                slots[offset + LEAST] = least;
+                if (current == LinkStorage.NO_USER && ++size > threshold) {
+                    allocate((mask + 1) << 1);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the given user.
+     *
+     * @param user
+     *         The user to remove.
+     *
+     * @return removed Whether the user was present.
+     */
+    boolean remove(final long user) {
+        int slot = find(user);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Removes the user within a slot.
+     *
+     * @param slot
+     *         A slot returned by {@link #find(long)}.
+     */
+    void removeAt(final int slot) {
+        int hole = slot;
+        for (int i = (hole + 1) & mask; ; i = (i + 1) & mask) {
+            int offset = i * STRIDE;
+            long current = slots[offset];
+            if (current == LinkStorage.NO_USER) {
+                break;
+            }
+            int home = PlayerKeys.hash(current) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                System.arraycopy(slots, offset, slots, hole * STRIDE, STRIDE);
+                hole = i;
+            }
+        }
+        slots[hole * STRIDE] = LinkStorage.NO_USER;
+        size--;
+    }
+
+    /**
+     * Fetches the number of users within this table.
+     *
+     * @return size The number of users.
+     */
+    int size() {
+        return size;
+    }
+
+    private void allocate(final int capacity) {
+        long[] old = slots;
+        slots = new long[capacity * STRIDE];
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+        if (old != null) {
+            for (int offset = 0; offset < old.length; offset += STRIDE) {
+                if (old[offset] != LinkStorage.NO_USER) {
+                    int i = PlayerKeys.hash(old[offset]) & mask;
+                    while (slots[i * STRIDE] != LinkStorage.NO_USER) {
+                        i = (i + 1) & mask;
+                    }
+                    System.arraycopy(old, offset, slots, i * STRIDE, STRIDE);
+                }
+            }
+        }
+    }
+
+}
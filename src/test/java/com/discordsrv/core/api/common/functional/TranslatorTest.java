@@ -0,0 +1,120 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.api.common.functional;
+
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.test.user.TestPlayerUserLookup;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.User;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Translator} type.
+ */
+public class TranslatorTest {
+
+    /**
+     * Ensure that every translation is collected and missing translations are left out.
+     */
+    @Test
+    public void translateAll() {
+        Translator<Integer, String> translator = (original, callback) -> callback
+            .onSuccess(original % 2 == 0 ? Integer.toString(original) : null);
+        AtomicReference<Map<Integer, String>> results = new AtomicReference<>();
+        translator.translateAll(Arrays.asList(1, 2, 3, 4), new FutureCallback<Map<Integer, String>>() {
+            @Override
+            public void onSuccess(@Nullable final Map<Integer, String> result) {
+                results.set(result);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                fail();
+            }
+        });
+        assertNotNull(results.get());
+        assertEquals(2, results.get().size());
+        assertEquals("2", results.get().get(2));
+        assertEquals("4", results.get().get(4));
+    }
+
+    /**
+     * Ensure that only the first failure is reported.
+     */
+    @Test
+    public void translateAllFailure() {
+        Translator<Integer, String> translator =
+            (original, callback) -> callback.onFailure(new IllegalStateException());
+        AtomicInteger failures = new AtomicInteger();
+        translator.translateAll(Arrays.asList(1, 2, 3), new FutureCallback<Map<Integer, String>>() {
+            @Override
+            public void onSuccess(@Nullable final Map<Integer, String> result) {
+                fail();
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                failures.incrementAndGet();
+            }
+        });
+        assertEquals(1, failures.get());
+    }
+
+    /**
+     * Ensure that the batch lookups fan out to the single lookups by default.
+     */
+    @Test
+    public void batchLookup() {
+        TestPlayerUserLookup lookup = new TestPlayerUserLookup();
+        lookup.lookupUsers(Arrays.asList(1L, 2L), new FutureCallback<Map<Long, User>>() {
+            @Override
+            public void onSuccess(@Nullable final Map<Long, User> result) {
+                assertNotNull(result);
+                assertEquals(2, result.size());
+                assertEquals(2L, result.get(2L).getIdLong());
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                fail();
+            }
+        });
+        lookup.lookupPlayers(Collections.emptyList(), new FutureCallback<Map<String, MinecraftPlayer>>() {
+            @Override
+            public void onSuccess(@Nullable final Map<String, MinecraftPlayer> result) {
+                assertNotNull(result);
+                assertTrue(result.isEmpty());
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                fail();
+            }
+        });
+    }
+
+}
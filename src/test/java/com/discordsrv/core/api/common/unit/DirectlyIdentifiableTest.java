@@ -0,0 +1,59 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.api.common.unit;
+
+import com.discordsrv.core.test.user.CallbackMinecraftPlayer;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link DirectlyIdentifiable} type.
+ */
+public class DirectlyIdentifiableTest {
+
+    /**
+     * Ensure that the callback getter answers with the identifier held in memory.
+     */
+    @Test
+    public void callback() {
+        List<String> identifiers = new ArrayList<>();
+        new TestMinecraftPlayer("Test", "steve").getUniqueIdentifier(identifiers::add);
+        assertEquals(Arrays.asList("steve"), identifiers);
+    }
+
+    /**
+     * Ensure that the helper passes the identifier and the argument to the action, whether the identifiable answers
+     * directly or through a callback.
+     */
+    @Test
+    public void identify() {
+        List<String> identified = new ArrayList<>();
+        DirectlyIdentifiable.identify(new TestMinecraftPlayer("Test", "steve"), "direct",
+            (identifier, argument) -> identified.add(identifier + "/" + argument));
+        DirectlyIdentifiable.identify(new CallbackMinecraftPlayer("Test", "alex"), "callback",
+            (identifier, argument) -> identified.add(identifier + "/" + argument));
+        assertEquals(Arrays.asList("steve/direct", "alex/callback"), identified);
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.api.common.unit;
+
+import com.discordsrv.core.test.user.CallbackMinecraftPlayer;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link DirectlyNamed} type.
+ */
+public class DirectlyNamedTest {
+
+    /**
+     * Ensure that the callback getter answers with the name held in memory.
+     */
+    @Test
+    public void callback() {
+        List<CharSequence> names = new ArrayList<>();
+        new TestMinecraftPlayer("Steve", "steve").getName(names::add);
+        assertEquals(Arrays.asList("Steve"), names);
+    }
+
+    /**
+     * Ensure that the helper passes the name and the argument to the action, whether the named instance answers
+     * directly or through a callback.
+     */
+    @Test
+    public void name() {
+        List<String> named = new ArrayList<>();
+        DirectlyNamed.name(new TestMinecraftPlayer("Steve", "steve"), "direct",
+            (name, argument) -> named.add(name + "/" + argument));
+        DirectlyNamed.name(new CallbackMinecraftPlayer("Alex", "alex"), "callback",
+            (name, argument) -> named.add(name + "/" + argument));
+        assertEquals(Arrays.asList("Steve/direct", "Alex/callback"), named);
+    }
+
+}
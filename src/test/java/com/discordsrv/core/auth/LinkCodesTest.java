@@ -0,0 +1,70 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link LinkCodes} class.
+ */
+public class LinkCodesTest {
+
+    /**
+     * Ensure that every drawn code renders to eight characters and parses back to itself.
+     */
+    @Test
+    public void roundTrip() {
+        Random random = new Random(0);
+        for (int i = 0; i < 10_000; i++) {
+            long code = LinkCodes.next(random);
+            String text = LinkCodes.render(code);
+            assertEquals(LinkCodes.LENGTH, text.length());
+            assertEquals(code, LinkCodes.parse(text));
+        }
+        assertEquals("00000001", LinkCodes.render(1));
+        assertEquals("ZZZZZZZZ", LinkCodes.render((1L << 40) - 1));
+    }
+
+    /**
+     * Ensure that codes typed in lower case, with separators or with confusable letters are read as intended.
+     */
+    @Test
+    public void lenient() {
+        long code = LinkCodes.parse("10ABCDEF");
+        assertEquals(code, LinkCodes.parse("10abcdef"));
+        assertEquals(code, LinkCodes.parse("lOAB-CDEF"));
+        assertEquals(code, LinkCodes.parse("IoAB CDEF"));
+    }
+
+    /**
+     * Ensure that text which is not a code is rejected.
+     */
+    @Test
+    public void invalid() {
+        assertEquals(LinkCodes.INVALID, LinkCodes.parse(""));
+        assertEquals(LinkCodes.INVALID, LinkCodes.parse("1234567"));
+        assertEquals(LinkCodes.INVALID, LinkCodes.parse("123456789"));
+        assertEquals(LinkCodes.INVALID, LinkCodes.parse("1234567U"));
+        assertEquals(LinkCodes.INVALID, LinkCodes.parse("1234567é"));
+    }
+
+}
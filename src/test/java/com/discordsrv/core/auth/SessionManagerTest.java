@@ -0,0 +1,256 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import com.discordsrv.core.api.auth.AuthenticationStore;
+import com.discordsrv.core.api.auth.State;
+import com.discordsrv.core.api.auth.Token;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.test.Callbacks;
+import com.discordsrv.core.test.FakeTicker;
+import com.discordsrv.core.test.mocker.Mocker;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import net.dv8tion.jda.core.entities.User;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.discordsrv.core.test.Callbacks.get;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link SessionManager} class.
+ */
+public class SessionManagerTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final Map<String, Long> links = new HashMap<>();
+    private final AuthenticationStore<MinecraftPlayer, User> store = new AuthenticationStore<MinecraftPlayer, User>() {
+        @Override
+        public void push(final @Nonnull MinecraftPlayer first, final @Nonnull User last) {
+            first.getUniqueIdentifier(id -> links.put(id, last.getIdLong()));
+        }
+
+        @Override
+        public void remove(final @Nonnull MinecraftPlayer first, final @Nonnull User last) {
+            first.getUniqueIdentifier(links::remove);
+        }
+    };
+    private final SessionManager<MinecraftPlayer, User> manager = new SessionManager<>(store, 5, TimeUnit.MINUTES,
+        ticker, new Random(0), 3);
+    private final User user = new Mocker().getMockedUser(1234);
+
+    /**
+     * Ensure that presenting a token authenticates its player and pushes the pair to the store, only once.
+     */
+    @Test
+    public void complete() {
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Steve", "steve");
+        String code = begin(player);
+        assertEquals(State.AUTHENTICATING, state(player));
+        assertEquals(1, manager.getPending());
+        MinecraftPlayer completed = get(callback -> manager.complete(code, user, callback));
+        assertSame(player, completed);
+        assertEquals(State.AUTHENTICATED, state(player));
+        assertEquals(Long.valueOf(1234), links.get("steve"));
+        MinecraftPlayer again = get(callback -> manager.complete(code, user, callback));
+        assertNull(again);
+        assertEquals(0, manager.getPending());
+
+        Throwable failure = Callbacks.<Token>failure(callback -> manager.begin(player, callback));
+        assertTrue(failure instanceof IllegalStateException);
+        Callbacks.<Void>get(callback -> manager.revoke(player, user, callback));
+        assertEquals(State.UNAUTHENTICATED, state(player));
+        assertTrue(links.isEmpty());
+        failure = Callbacks.<Void>failure(callback -> manager.revoke(player, user, callback));
+        assertTrue(failure instanceof IllegalStateException);
+    }
+
+    /**
+     * Ensure that a token which is not presented in time expires and returns its player to the start.
+     */
+    @Test
+    public void expired() {
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Steve", "steve");
+        String code = begin(player);
+        ticker.advance(4, TimeUnit.MINUTES);
+        assertEquals(0, manager.expire());
+        ticker.advance(2, TimeUnit.MINUTES);
+        MinecraftPlayer completed = get(callback -> manager.complete(code, user, callback));
+        assertNull(completed);
+        assertEquals(State.UNAUTHENTICATED, state(player));
+        assertTrue(links.isEmpty());
+    }
+
+    /**
+     * Ensure that beginning again revokes the previous token, and that cancelling returns the player to the start.
+     */
+    @Test
+    public void reissue() {
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Steve", "steve");
+        String first = begin(player);
+        String second = begin(player);
+        assertNotEquals(first, second);
+        assertEquals(1, manager.getPending());
+        MinecraftPlayer completed = get(callback -> manager.complete(first, user, callback));
+        assertNull(completed);
+        assertTrue(manager.cancel(second));
+        assertFalse(manager.cancel(second));
+        assertEquals(State.UNAUTHENTICATED, state(player));
+    }
+
+    /**
+     * Ensure that codes are accepted however they are typed, and that guessing blocks the presenter until the window
+     * ends.
+     */
+    @Test
+    public void throttled() {
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Steve", "steve");
+        String code = begin(player);
+        assertEquals(LinkCodes.LENGTH, code.length());
+        for (int i = 0; i < 3; i++) {
+            MinecraftPlayer guessed = get(callback -> manager.complete("guesser", "00000000", user, callback));
+            assertNull(guessed);
+        }
+        assertTrue(manager.isBlocked("guesser"));
+        Throwable failure = Callbacks.<MinecraftPlayer>failure(callback -> manager.complete("guesser", code, user,
+            callback));
+        assertTrue(failure instanceof IllegalStateException);
+        assertEquals(1, manager.getPending());
+
+        ticker.advance(6, TimeUnit.MINUTES);
+        assertFalse(manager.isBlocked("guesser"));
+        String again = begin(player);
+        String typed = again.substring(0, 4).toLowerCase() + "-" + again.substring(4);
+        MinecraftPlayer completed = get(callback -> manager.complete("guesser", typed, user, callback));
+        assertSame(player, completed);
+    }
+
+    /**
+     * Ensure that a hundred thousand pending sessions expire together in one sweep.
+     */
+    @Test
+    public void manyPending() {
+        int count = 100_000;
+        List<TestMinecraftPlayer> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TestMinecraftPlayer player = new TestMinecraftPlayer("Player", "player-" + i);
+            players.add(player);
+            begin(player);
+            if (i % 10_000 == 0) {
+                ticker.advance(1, TimeUnit.SECONDS);
+            }
+        }
+        assertEquals(count, manager.getPending());
+        ticker.advance(4, TimeUnit.MINUTES);
+        assertEquals(0, manager.expire());
+        ticker.advance(2, TimeUnit.MINUTES);
+        assertEquals(count, manager.expire());
+        assertEquals(0, manager.getPending());
+        players.forEach(player -> assertEquals(State.UNAUTHENTICATED, state(player)));
+    }
+
+    /**
+     * Ensure that the states of players are set without holding the lock of the manager.
+     */
+    @Test
+    public void unlocked() {
+        List<State> states = new ArrayList<>();
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Steve", "steve") {
+            @Override
+            public synchronized void setAuthenticationStage(final @Nonnull State state) {
+                assertFalse(Thread.holdsLock(manager));
+                states.add(state);
+                super.setAuthenticationStage(state);
+            }
+        };
+        manager.cancel(begin(player));
+        begin(player);
+        ticker.advance(6, TimeUnit.MINUTES);
+        assertEquals(1, manager.expire());
+        String code = begin(player);
+        MinecraftPlayer completed = get(callback -> manager.complete(code, user, callback));
+        assertSame(player, completed);
+        assertEquals(Arrays.asList(State.AUTHENTICATING, State.UNAUTHENTICATED, State.AUTHENTICATING,
+            State.UNAUTHENTICATED, State.AUTHENTICATING, State.AUTHENTICATED), states);
+    }
+
+    /**
+     * Ensure that a sweep which expired a token does not move its player back once they were issued a newer one.
+     */
+    @Test
+    public void expiredThenReissued() {
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Steve", "steve");
+        List<String> codes = new ArrayList<>();
+        // The sweep expires the first token, and sets the state of this earlier player before that of the second.
+        TestMinecraftPlayer earlier = new TestMinecraftPlayer("Alex", "alex") {
+            @Override
+            public synchronized void setAuthenticationStage(final @Nonnull State state) {
+                super.setAuthenticationStage(state);
+                if (state == State.UNAUTHENTICATED && codes.isEmpty()) {
+                    codes.add(begin(player));
+                }
+            }
+        };
+        begin(earlier);
+        ticker.advance(1, TimeUnit.MINUTES);
+        begin(player);
+        ticker.advance(6, TimeUnit.MINUTES);
+        assertEquals(2, manager.expire());
+        assertEquals(1, codes.size());
+        assertEquals(State.UNAUTHENTICATED, state(earlier));
+        assertEquals(State.AUTHENTICATING, state(player));
+        MinecraftPlayer completed = get(callback -> manager.complete(codes.get(0), user, callback));
+        assertSame(player, completed);
+    }
+
+    /**
+     * Ensure that only the documented transitions between states are valid.
+     */
+    @Test
+    public void transitions() {
+        assertTrue(SessionManager.canTransition(State.UNAUTHENTICATED, State.AUTHENTICATING));
+        assertFalse(SessionManager.canTransition(State.UNAUTHENTICATED, State.AUTHENTICATED));
+        assertTrue(SessionManager.canTransition(State.AUTHENTICATING, State.AUTHENTICATED));
+        assertTrue(SessionManager.canTransition(State.AUTHENTICATING, State.UNAUTHENTICATED));
+        assertTrue(SessionManager.canTransition(State.AUTHENTICATED, State.UNAUTHENTICATED));
+        assertFalse(SessionManager.canTransition(State.AUTHENTICATED, State.AUTHENTICATING));
+    }
+
+    private String begin(final MinecraftPlayer player) {
+        Token token = get(callback -> manager.begin(player, callback));
+        AtomicReference<String> code = new AtomicReference<>();
+        token.getUniqueIdentifier(code::set);
+        return code.get();
+    }
+
+    private static State state(final MinecraftPlayer player) {
+        AtomicReference<State> state = new AtomicReference<>();
+        player.getAuthenticationStage(state::set);
+        return state.get();
+    }
+
+}
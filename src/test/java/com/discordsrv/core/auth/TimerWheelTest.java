@@ -0,0 +1,87 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.auth;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link TimerWheel} class.
+ */
+public class TimerWheelTest {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final List<String> expired = new ArrayList<>();
+
+    /**
+     * Ensure that entries expire on the first advance at or after their deadline, and never before it.
+     */
+    @Test
+    public void deadlines() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 16 * TICK, 1_000);
+        wheel.schedule("a", 1_000 + TICK);
+        wheel.schedule("b", 1_000 + TICK + 1);
+        wheel.schedule("c", 1_000 + 5 * TICK);
+        assertEquals(0, wheel.advance(1_000 + TICK - 1, expired::add));
+        assertEquals(1, wheel.advance(1_000 + TICK, expired::add));
+        assertEquals(Arrays.asList("a"), expired);
+        assertEquals(1, wheel.advance(1_000 + 2 * TICK, expired::add));
+        assertEquals(Arrays.asList("a", "b"), expired);
+        assertEquals(1, wheel.size());
+    }
+
+    /**
+     * Ensure that entries beyond one turn of the wheel wait for their turn, and that a long pause expires everything
+     * which is due.
+     */
+    @Test
+    public void turns() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 4 * TICK, 0);
+        wheel.schedule("near", 3 * TICK);
+        wheel.schedule("far", 11 * TICK);
+        wheel.schedule("farther", 100 * TICK);
+        assertEquals(1, wheel.advance(8 * TICK, expired::add));
+        assertEquals(1, wheel.advance(50 * TICK, expired::add));
+        assertEquals(Arrays.asList("near", "far"), expired);
+        assertEquals(1, wheel.advance(100 * TICK, expired::add));
+    }
+
+    /**
+     * Ensure that cancelled entries never expire, and that entries due in the past expire on the next tick.
+     */
+    @Test
+    public void cancel() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 16 * TICK, 0);
+        TimerWheel.Entry<String> entry = wheel.schedule("cancelled", 2 * TICK);
+        wheel.advance(3 * TICK / 2, expired::add);
+        wheel.schedule("late", 0);
+        assertTrue(wheel.cancel(entry));
+        assertFalse(wheel.cancel(entry));
+        assertEquals(1, wheel.advance(3 * TICK, expired::add));
+        assertEquals(Arrays.asList("late"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+}
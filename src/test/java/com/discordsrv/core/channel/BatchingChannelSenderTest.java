@@ -0,0 +1,226 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.common.unit.Named;
+import com.discordsrv.core.test.channel.TestChat;
+import com.discordsrv.core.test.channel.TestChatChannelLinker;
+import com.discordsrv.core.test.channel.TestChatMessage;
+import com.discordsrv.core.test.mocker.Mocker;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.TextChannel;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link BatchingChannelSender} class.
+ */
+public class BatchingChannelSenderTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final TextChannel channel = new Mocker().getSimpleMockedTextChannel(1234);
+    private final List<String> dispatched = new CopyOnWriteArrayList<>();
+    private final List<Object> results = new CopyOnWriteArrayList<>();
+    private final FutureCallback<Void> recorder = new FutureCallback<Void>() {
+        @Override
+        public void onSuccess(final @Nullable Void result) {
+            results.add("sent");
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            results.add(t);
+        }
+    };
+    private volatile RuntimeException failure;
+
+    /**
+     * Stops the scheduler.
+     */
+    @After
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Ensure that chat messages are merged into one Discord message in order.
+     */
+    @Test
+    public void coalesced() {
+        TestChat chat = new TestChat("chat");
+        TestChatChannelLinker linker = new TestChatChannelLinker();
+        linker.link(chat, channel);
+        BatchingChannelSender sender = sender(linker, 1, TimeUnit.HOURS);
+        sender.send(chat, new TestChatMessage(1, "Steve", "one"), recorder);
+        sender.send(chat, new TestChatMessage(2, "Alex", "two"), recorder);
+        sender.send(chat, new TestChatMessage(3, "Steve", "three"), recorder);
+        assertTrue(dispatched.isEmpty());
+        sender.flush();
+        assertEquals(1, dispatched.size());
+        assertEquals("Steve: one\nAlex: two\nSteve: three", dispatched.get(0));
+        assertEquals(3, results.size());
+        results.forEach(result -> assertEquals("sent", result));
+    }
+
+    /**
+     * Ensure that the names of senders are read alike whether they answer directly or through a callback.
+     */
+    @Test
+    public void directSenders() {
+        TestChat chat = new TestChat("chat");
+        TestChatChannelLinker linker = new TestChatChannelLinker();
+        linker.link(chat, channel);
+        BatchingChannelSender sender = sender(linker, 1, TimeUnit.HOURS);
+        sender.send(chat, new TestChatMessage(1, "Steve", "one"), recorder);
+        sender.send(chat, new TestChatMessage(2, "Alex", "two") {
+            @Nonnull
+            @Override
+            public Named getSender() {
+                return new TestMinecraftPlayer("Alex", "alex");
+            }
+        }, recorder);
+        sender.flush();
+        assertEquals(Arrays.asList("Steve: one\nAlex: two"), dispatched);
+        assertEquals(Arrays.asList("sent", "sent"), results);
+    }
+
+    /**
+     * Ensure that a batch is sent as soon as the next line would not fit.
+     */
+    @Test
+    public void limit() {
+        BatchingChannelSender sender = sender(new TestChatChannelLinker(), 1, TimeUnit.HOURS);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lines.add(Strings.repeat(Integer.toString(i), 900));
+            sender.send(channel, lines.get(i), recorder);
+        }
+        assertEquals(2, dispatched.size());
+        assertEquals(lines.get(0) + "\n" + lines.get(1), dispatched.get(0));
+        assertEquals(lines.get(2) + "\n" + lines.get(3), dispatched.get(1));
+        sender.flush();
+        assertEquals(lines.get(4), dispatched.get(2));
+        assertEquals(5, results.size());
+    }
+
+    /**
+     * Ensure that a line longer than a Discord message is split, and its callback is completed once.
+     */
+    @Test
+    public void oversized() {
+        BatchingChannelSender sender = sender(new TestChatChannelLinker(), 1, TimeUnit.HOURS);
+        sender.send(channel, "before", recorder);
+        sender.send(channel, Strings.repeat("x", 4500), recorder);
+        assertEquals(4, dispatched.size());
+        assertEquals("before", dispatched.get(0));
+        assertEquals(BatchingChannelSender.MESSAGE_LIMIT, dispatched.get(1).length());
+        assertEquals(500, dispatched.get(3).length());
+        assertEquals(2, results.size());
+    }
+
+    /**
+     * Ensure that a batch is sent once its window closes.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting.
+     */
+    @Test
+    public void window() throws InterruptedException {
+        BatchingChannelSender sender = sender(new TestChatChannelLinker(), 10, TimeUnit.MILLISECONDS);
+        CountDownLatch latch = new CountDownLatch(1);
+        sender.send(channel, "late", new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(final @Nullable Void result) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                fail(t.getMessage());
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("late", dispatched.get(0));
+    }
+
+    /**
+     * Ensure that a batch is discarded once it has been sent, and that the channel gets a new one for later lines.
+     */
+    @Test
+    public void discarded() {
+        BatchingChannelSender sender = sender(new TestChatChannelLinker(), 1, TimeUnit.HOURS);
+        sender.send(channel, "one", recorder);
+        assertEquals(1, sender.size());
+        sender.flush();
+        assertEquals(0, sender.size());
+        sender.send(channel, "two", recorder);
+        assertEquals(1, sender.size());
+        sender.send(channel, Strings.repeat("x", BatchingChannelSender.MESSAGE_LIMIT), recorder);
+        assertEquals(0, sender.size());
+        assertEquals(Arrays.asList("one", "two", Strings.repeat("x", BatchingChannelSender.MESSAGE_LIMIT)), dispatched);
+        assertEquals(3, results.size());
+    }
+
+    /**
+     * Ensure that every message of a failed batch, and messages of unlinked chats, are reported as failed.
+     */
+    @Test
+    public void failed() {
+        BatchingChannelSender sender = sender(new TestChatChannelLinker(), 1, TimeUnit.HOURS);
+        failure = new IllegalStateException("Missing permission");
+        sender.send(channel, "one", recorder);
+        sender.send(channel, "two", recorder);
+        sender.flush();
+        assertEquals(2, results.size());
+        results.forEach(result -> assertSame(failure, result));
+        results.clear();
+        sender.send(new TestChat("unlinked"), new TestChatMessage(1, "Steve", "lost"), recorder);
+        assertTrue(results.get(0) instanceof IllegalStateException);
+    }
+
+    private BatchingChannelSender sender(final TestChatChannelLinker linker, final long window, final TimeUnit unit) {
+        return new BatchingChannelSender(linker, scheduler, window, unit) {
+            @Override
+            protected void dispatch(final @Nonnull TextChannel channel, final @Nonnull String content,
+                                    final @Nonnull FutureCallback<Message> callback) {
+                dispatched.add(content);
+                if (failure != null) {
+                    throw failure;
+                }
+                callback.onSuccess(null);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLinker;
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.discordsrv.core.test.channel.TestChat;
+import com.discordsrv.core.test.channel.TestChatChannelLinker;
+import com.discordsrv.core.test.mocker.Mocker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static com.discordsrv.core.test.mocker.Values.TIMEOUT;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link InboundMessageRouter} class.
+ */
+public class InboundMessageRouterTest {
+
+    private final Mocker mocker = new Mocker();
+    private final TextChannel channel = mocker.getMockedTextChannel(1234, mocker.getMockedGuild(), content -> null);
+    private final TestChat chat = new TestChat("chat");
+    private final ExecutorService executor = InboundMessageRouter.newBoundedExecutor(4, 16);
+    private final LinkedBlockingQueue<Object> results = new LinkedBlockingQueue<>();
+    private final FutureCallback<Integer> recorder = new FutureCallback<Integer>() {
+        @Override
+        public void onSuccess(final @Nullable Integer result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            results.add(t);
+        }
+    };
+
+    /**
+     * Stops the executor.
+     */
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ensure that a slow recipient does not hold up the others, and that the line is formatted once for all of them.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for deliveries.
+     */
+    @Test
+    public void fanOut() throws InterruptedException {
+        CountDownLatch slow = new CountDownLatch(1);
+        CountDownLatch fast = new CountDownLatch(3);
+        List<String> received = new CopyOnWriteArrayList<>();
+        Messageable<String, Void> blocked = (line, callback) -> {
+            try {
+                slow.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(line);
+            callback.onSuccess(null);
+        };
+        Messageable<String, Void> quick = (line, callback) -> {
+            received.add(line);
+            fast.countDown();
+            callback.onSuccess(null);
+        };
+        AtomicInteger formatted = new AtomicInteger();
+        InboundMessageRouter router = router(linked(), ignored -> Arrays.asList(blocked, quick, quick, quick),
+            (name, message) -> {
+                formatted.incrementAndGet();
+                return name + " > " + message;
+            });
+        router.route(event("hello"), recorder);
+        assertTrue(fast.await(TIMEOUT, TimeUnit.SECONDS));
+        assertNull(results.poll());
+        slow.countDown();
+        assertEquals(4, results.poll(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(1, formatted.get());
+        assertEquals(Collections.nCopies(4, "User42 > hello"), received);
+    }
+
+    /**
+     * Ensure that the chat of a channel, or its absence, is resolved once until the router is invalidated.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for deliveries.
+     */
+    @Test
+    public void cached() throws InterruptedException {
+        TestChatChannelLinker links = linked();
+        AtomicInteger lookups = new AtomicInteger();
+        ChatChannelLinker linker = new ChatChannelLinker() {
+            @Override
+            public void translate(final @Nonnull Chat original, final @Nonnull FutureCallback<TextChannel> callback) {
+                links.translate(original, callback);
+            }
+
+            @Override
+            public void translate(final @Nonnull TextChannel original, final @Nonnull FutureCallback<Chat> callback) {
+                lookups.incrementAndGet();
+                links.translate(original, callback);
+            }
+        };
+        InboundMessageRouter router = router(linker, target -> Collections.singleton(sink()),
+            (name, message) -> message);
+        router.route(event("one"), recorder);
+        router.route(event("two"), recorder);
+        assertEquals(1, results.poll(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(1, results.poll(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(1, lookups.get());
+        router.invalidate();
+        router.route(event("three"), recorder);
+        assertEquals(1, results.poll(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(2, lookups.get());
+
+        InboundMessageRouter unlinked = router(new TestChatChannelLinker(), target -> Collections.singleton(sink()),
+            (name, message) -> message);
+        unlinked.route(event("four"), recorder);
+        assertEquals(0, results.poll(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Ensure that recipients which fail or are rejected by the executor are not counted as delivered.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for deliveries.
+     */
+    @Test
+    public void failures() throws InterruptedException {
+        Messageable<String, Void> failing = (line, callback) -> callback.onFailure(new IllegalStateException());
+        Messageable<String, Void> throwing = (line, callback) -> {
+            throw new IllegalStateException();
+        };
+        InboundMessageRouter router = router(linked(), ignored -> Arrays.asList(failing, throwing, sink()),
+            (name, message) -> message);
+        router.route(event("hello"), recorder);
+        assertEquals(1, results.poll(TIMEOUT, TimeUnit.SECONDS));
+
+        InboundMessageRouter rejecting = new InboundMessageRouter(linked(), ignored -> Arrays.asList(sink(), sink()),
+            task -> {
+                throw new RejectedExecutionException();
+            });
+        rejecting.route(event("hello"), recorder);
+        assertEquals(0, results.poll(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    private TestChatChannelLinker linked() {
+        TestChatChannelLinker linker = new TestChatChannelLinker();
+        linker.link(chat, channel);
+        return linker;
+    }
+
+    private InboundMessageRouter router(final ChatChannelLinker linker,
+                                        final Function<Chat, Collection<? extends Messageable<String, ?>>> recipients,
+                                        final BiFunction<CharSequence, String, String> formatter) {
+        return new InboundMessageRouter(linker, recipients, executor, formatter, CacheBuilder.newBuilder());
+    }
+
+    private GuildMessageReceivedEvent event(final String content) {
+        return new GuildMessageReceivedEvent(null, 0, mocker.getMockedMessage(content, 1, channel,
+            mocker.getMockedUser(42)));
+    }
+
+    private static Messageable<String, Void> sink() {
+        return (line, callback) -> callback.onSuccess(null);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.test.FakeTicker;
+import com.discordsrv.core.test.channel.TestChat;
+import com.discordsrv.core.test.channel.TestChatMessage;
+import com.google.common.util.concurrent.FutureCallback;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link MessageDeduplicator} class.
+ */
+public class MessageDeduplicatorTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    /**
+     * Ensure that echoes of a message never reach the chat, and that their callbacks still succeed.
+     */
+    @Test
+    public void echoes() {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(1000, 0.001, 1, TimeUnit.MINUTES, ticker);
+        TestChat chat = new TestChat("chat");
+        Chat deduplicated = deduplicator.deduplicate(chat);
+        AtomicInteger completed = new AtomicInteger();
+        FutureCallback<Void> callback = new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(final @Nullable Void result) {
+                completed.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                fail();
+            }
+        };
+        deduplicated.sendMessage(new TestChatMessage(1, "Steve", "hello"), callback);
+        deduplicated.sendMessage(new TestChatMessage(1, "Steve", "hello"), callback);
+        deduplicated.sendMessage(new TestChatMessage(2, "Alex", "hi"), callback);
+        deduplicated.sendMessage(new TestChatMessage(1, "Steve", "hello"), callback);
+        assertEquals(2, chat.getReceived().size());
+        assertEquals(4, completed.get());
+        assertEquals(2, deduplicator.getDroppedCount());
+    }
+
+    /**
+     * Ensure that an identifier is remembered for at least one window and forgotten after two quiet ones.
+     */
+    @Test
+    public void window() {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(1000, 0.001, 10, TimeUnit.SECONDS, ticker);
+        assertTrue(deduplicator.markSeen(1L));
+        ticker.advance(9, TimeUnit.SECONDS);
+        assertTrue(deduplicator.markSeen(2L));
+        ticker.advance(9, TimeUnit.SECONDS);
+        assertFalse(deduplicator.markSeen(1L));
+        assertFalse(deduplicator.markSeen(2L));
+        ticker.advance(21, TimeUnit.SECONDS);
+        assertTrue(deduplicator.markSeen(1L));
+        assertTrue(deduplicator.markSeen("text"));
+        assertFalse(deduplicator.markSeen("text"));
+    }
+
+    /**
+     * Ensure that the share of new messages dropped stays near the configured rate, even once the filters rotate.
+     */
+    @Test
+    public void falsePositives() {
+        int expected = 10_000;
+        double rate = 0.01;
+        MessageDeduplicator deduplicator = new MessageDeduplicator(expected, rate, 1, TimeUnit.HOURS, ticker);
+        int dropped = 0;
+        for (long id = 0; id < expected * 3; id++) {
+            if (!deduplicator.markSeen(id * 7919)) {
+                dropped++;
+            }
+        }
+        assertTrue("Dropped " + dropped, dropped < expected * 3 * rate * 1.5);
+    }
+
+    /**
+     * Ensure that the capacity within a budget shrinks as the false-positive rate is tightened.
+     */
+    @Test
+    public void budget() {
+        long loose = MessageDeduplicator.capacity(1 << 20, 0.01);
+        long tight = MessageDeduplicator.capacity(1 << 20, 0.0001);
+        assertTrue(loose > tight);
+        // An optimal filter at 1% spends about 9.6 bits per element, or 10.9 bits at half the rate.
+        assertEquals((1 << 20) * 8 / 2 / 10.9, loose, loose * 0.05);
+        assertNotNull(MessageDeduplicator.withMemoryBudget(1 << 20, 0.01, 1, TimeUnit.MINUTES));
+    }
+
+}
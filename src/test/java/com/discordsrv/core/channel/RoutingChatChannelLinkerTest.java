@@ -0,0 +1,201 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.discordsrv.core.test.channel.TestChat;
+import com.discordsrv.core.test.mocker.Mocker;
+import net.dv8tion.jda.core.entities.TextChannel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.discordsrv.core.test.Callbacks.get;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link RoutingChatChannelLinker} class.
+ */
+public class RoutingChatChannelLinkerTest {
+
+    private final Mocker mocker = new Mocker();
+    private final Map<String, Chat> chats = new HashMap<>();
+    private final Map<String, TextChannel> links = new HashMap<>();
+
+    /**
+     * Ensure that every chat and linked channel is found in both directions, and nothing else is.
+     */
+    @Test
+    public void routes() {
+        for (int i = 0; i < 100; i++) {
+            chats.put("chat-" + i, new TestChat("chat-" + i));
+            if (i % 2 == 0) {
+                links.put("chat-" + i, mocker.getSimpleMockedTextChannel(1000 + i));
+            }
+        }
+        RoutingChatChannelLinker linker = new RoutingChatChannelLinker();
+        linker.reload(chats, links);
+        assertEquals(50, linker.getTable().size());
+        for (int i = 0; i < 100; i++) {
+            String id = "chat-" + i;
+            long channelId = 1000L + i;
+            Chat chat = get(callback -> linker.lookup(id, callback));
+            assertSame(chats.get(id), chat);
+            TextChannel channel = get(callback -> linker.translate(chat, callback));
+            if (i % 2 == 0) {
+                assertEquals(1000 + i, channel.getIdLong());
+                TextChannel found = get(callback -> linker.lookup(channelId, callback));
+                Chat back = get(callback -> linker.translate(channel, callback));
+                assertSame(channel, found);
+                assertSame(chat, back);
+            } else {
+                assertNull(channel);
+                TextChannel found = get(callback -> linker.lookup(channelId, callback));
+                assertNull(found);
+            }
+        }
+        Chat unknown = get(callback -> linker.lookup("unknown", callback));
+        TextChannel unlinked = get(callback -> linker.translate(new TestChat("unknown"), callback));
+        assertNull(unknown);
+        assertNull(unlinked);
+        Map<String, Chat> found = get(callback -> linker.lookupChats(Arrays.asList("chat-1", "unknown"), callback));
+        assertEquals(1, found.size());
+        Map<Long, TextChannel> channels = get(callback -> linker.lookupChannels(Arrays.asList(1000L, 1001L), callback));
+        assertEquals(1, channels.size());
+    }
+
+    /**
+     * Ensure that chats are translated alike whether they answer their identifier directly or through a callback.
+     */
+    @Test
+    public void directChats() {
+        chats.put("callback", new TestChat("callback"));
+        chats.put("direct", new DirectChat("direct"));
+        links.put("callback", mocker.getSimpleMockedTextChannel(1));
+        links.put("direct", mocker.getSimpleMockedTextChannel(2));
+        RoutingChatChannelLinker linker = new RoutingChatChannelLinker();
+        linker.reload(chats, links);
+        TextChannel byCallback = get(result -> linker.translate(new TestChat("direct"), result));
+        TextChannel byDirect = get(result -> linker.translate(new DirectChat("callback"), result));
+        TextChannel unlinked = get(result -> linker.translate(new DirectChat("unknown"), result));
+        assertEquals(2, byCallback.getIdLong());
+        assertEquals(1, byDirect.getIdLong());
+        assertNull(unlinked);
+    }
+
+    /**
+     * Ensure that an invalid reload is rejected and leaves the current routes in place.
+     */
+    @Test
+    public void invalid() {
+        TestChat chat = new TestChat("chat");
+        chats.put("chat", chat);
+        chats.put("other", new TestChat("other"));
+        links.put("chat", mocker.getSimpleMockedTextChannel(1));
+        RoutingChatChannelLinker linker = new RoutingChatChannelLinker();
+        linker.reload(chats, links);
+        ChannelRoutingTable table = linker.getTable();
+
+        links.put("other", mocker.getSimpleMockedTextChannel(1));
+        try {
+            linker.reload(chats, links);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        links.remove("other");
+        links.put("missing", mocker.getSimpleMockedTextChannel(2));
+        try {
+            linker.reload(chats, links);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        assertSame(table, linker.getTable());
+        Chat found = get(callback -> linker.lookup("chat", callback));
+        assertSame(chat, found);
+    }
+
+    /**
+     * Ensure that readers racing a reload always see either the old table or the new one.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for the reader.
+     */
+    @Test
+    public void swapped() throws InterruptedException {
+        Map<String, Chat> before = new HashMap<>();
+        Map<String, TextChannel> beforeLinks = new HashMap<>();
+        Map<String, Chat> after = new HashMap<>();
+        Map<String, TextChannel> afterLinks = new HashMap<>();
+        for (int i = 0; i < 64; i++) {
+            before.put("chat-" + i, new TestChat("chat-" + i));
+            beforeLinks.put("chat-" + i, mocker.getSimpleMockedTextChannel(i + 1));
+            after.put("chat-" + i, new TestChat("chat-" + i));
+            afterLinks.put("chat-" + i, mocker.getSimpleMockedTextChannel(i + 1));
+        }
+        ChannelRoutingTable first = new ChannelRoutingTable(before, beforeLinks);
+        ChannelRoutingTable second = new ChannelRoutingTable(after, afterLinks);
+        RoutingChatChannelLinker linker = new RoutingChatChannelLinker(first);
+        AtomicBoolean torn = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                ChannelRoutingTable table = linker.getTable();
+                Map<String, Chat> expected = table == first ? before : after;
+                for (int i = 0; i < 64; i++) {
+                    if (table.getChat("chat-" + i) != expected.get("chat-" + i)
+                        || table.getChatOf(i + 1) != expected.get("chat-" + i)) {
+                        torn.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 1000; i++) {
+            linker.reload(i % 2 == 0 ? second : first);
+        }
+        done.set(true);
+        reader.join();
+        assertFalse(torn.get());
+    }
+
+    /**
+     * A chat which holds its identifier in memory.
+     */
+    private static final class DirectChat extends TestChat implements DirectlyIdentifiable<String> {
+
+        private final String identifier;
+
+        private DirectChat(final String identifier) {
+            super(identifier);
+            this.identifier = identifier;
+        }
+
+        @Override
+        public String getUniqueIdentifier() {
+            return identifier;
+        }
+
+    }
+
+}
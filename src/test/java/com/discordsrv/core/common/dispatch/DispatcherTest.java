@@ -0,0 +1,135 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.dispatch;
+
+import com.discordsrv.core.api.user.PlayerUserLookup;
+import com.discordsrv.core.common.functional.CallbackFuture;
+import com.discordsrv.core.test.user.TestPlayerUserLookup;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Dispatcher} class.
+ */
+public class DispatcherTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final Executor recording = tasks::add;
+
+    /**
+     * Ensure that a dispatched callback runs on its executor, and that the caller executor does not wrap callbacks.
+     */
+    @Test
+    public void on() {
+        CallbackFuture<String> future = new CallbackFuture<>();
+        Dispatcher.on(recording, future).onSuccess("result");
+        assertFalse(future.isDone());
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals("result", future.join());
+        assertSame(future, Dispatcher.on(Dispatcher.CALLER, future));
+    }
+
+    /**
+     * Ensure that a lookup dispatches the callbacks of every call.
+     */
+    @Test
+    public void lookup() {
+        PlayerUserLookup lookup = Dispatcher.lookup(recording, new TestPlayerUserLookup());
+        CallbackFuture<User> future = new CallbackFuture<>();
+        lookup.lookup(1234, future);
+        assertFalse(future.isDone());
+        tasks.forEach(Runnable::run);
+        assertEquals(1234, future.join().getIdLong());
+    }
+
+    /**
+     * Ensure that a callback the executor rejects fails with the rejection.
+     */
+    @Test
+    public void rejected() {
+        RejectedExecutionException rejection = new RejectedExecutionException();
+        CallbackFuture<String> future = new CallbackFuture<>();
+        Dispatcher.on(command -> {
+            throw rejection;
+        }, future).onSuccess("result");
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+            fail();
+        } catch (CompletionException e) {
+            assertSame(rejection, e.getCause());
+        }
+    }
+
+    /**
+     * Ensure that callbacks dispatched to the main thread queue wait for a drain, unless dispatched from the main
+     * thread itself.
+     */
+    @Test
+    public void mainThread() {
+        MainThreadQueue queue = new MainThreadQueue();
+        CallbackFuture<String> outer = new CallbackFuture<>();
+        CallbackFuture<String> inner = new CallbackFuture<>();
+        FutureCallback<String> callback = Dispatcher.on(queue, new FutureCallback<String>() {
+            @Override
+            public void onSuccess(final String result) {
+                outer.complete(result);
+                Dispatcher.on(queue, inner).onSuccess(result);
+                assertTrue(inner.isDone());
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                fail();
+            }
+        });
+        callback.onSuccess("result");
+        assertFalse(outer.isDone());
+        assertEquals(1, queue.drain(1, TimeUnit.MILLISECONDS));
+        assertEquals("result", inner.join());
+    }
+
+    /**
+     * Ensure that the default executor runs tasks on either kind of thread.
+     *
+     * @throws Exception
+     *         If the executor is interrupted.
+     */
+    @Test
+    public void newExecutor() throws Exception {
+        ExecutorService executor = Dispatcher.newExecutor(1, 1);
+        try {
+            assertEquals("ran", executor.submit(() -> "ran").get(1, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
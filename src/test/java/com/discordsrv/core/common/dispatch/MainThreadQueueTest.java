@@ -0,0 +1,187 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.dispatch;
+
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.discordsrv.core.common.functional.CallbackFuture;
+import com.discordsrv.core.test.FakeTicker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link MainThreadQueue} class.
+ */
+public class MainThreadQueueTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final MainThreadQueue queue = new MainThreadQueue(ticker);
+
+    /**
+     * Ensure that a drain stops once its budget is spent and that the remaining tasks run on later drains.
+     */
+    @Test
+    public void budget() {
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            queue.execute(() -> {
+                ran.incrementAndGet();
+                ticker.advance(1, TimeUnit.MILLISECONDS);
+            });
+        }
+        assertEquals(3, queue.drain(3, TimeUnit.MILLISECONDS));
+        assertTrue(queue.hasPending());
+        assertEquals(1, queue.drain(0, TimeUnit.MILLISECONDS));
+        assertEquals(6, queue.drain(1, TimeUnit.SECONDS));
+        assertEquals(10, ran.get());
+        assertFalse(queue.hasPending());
+        assertEquals(0, queue.drain(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Ensure that a task which throws does not stop the drain.
+     */
+    @Test
+    public void failure() {
+        AtomicInteger ran = new AtomicInteger();
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler previous = current.getUncaughtExceptionHandler();
+        AtomicInteger uncaught = new AtomicInteger();
+        current.setUncaughtExceptionHandler((thread, t) -> uncaught.incrementAndGet());
+        try {
+            queue.execute(() -> {
+                throw new IllegalStateException();
+            });
+            queue.execute(ran::incrementAndGet);
+            assertEquals(2, queue.drain(1, TimeUnit.SECONDS));
+        } finally {
+            current.setUncaughtExceptionHandler(previous);
+        }
+        assertEquals(1, uncaught.get());
+        assertEquals(1, ran.get());
+        assertTrue(queue.isMainThread());
+    }
+
+    /**
+     * Ensure that higher lanes drain first, and that a full lane rejects further tasks.
+     */
+    @Test
+    public void lanes() {
+        MainThreadQueue bounded = new MainThreadQueue(ticker, 2);
+        StringBuilder order = new StringBuilder();
+        bounded.execute(() -> order.append('l'), Lane.LOW);
+        bounded.execute(() -> order.append('n'));
+        bounded.execute(() -> order.append('h'), Lane.HIGH);
+        bounded.execute(() -> order.append('H'), Lane.HIGH);
+        try {
+            bounded.execute(() -> order.append('!'), Lane.HIGH);
+            fail();
+        } catch (RejectedExecutionException ignored) {
+        }
+        assertEquals(1, bounded.getRejectedCount());
+        assertEquals(2, bounded.getPending(Lane.HIGH));
+        assertEquals(4, bounded.drain(1_000));
+        assertEquals("hHnl", order.toString());
+        assertEquals(0, bounded.getPending(Lane.HIGH));
+    }
+
+    /**
+     * Ensure that drains which run over their budget are counted along with the time beyond it.
+     */
+    @Test
+    public void overrun() {
+        queue.execute(() -> ticker.advance(3, TimeUnit.MILLISECONDS));
+        queue.execute(() -> ticker.advance(1, TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.drain(TimeUnit.MILLISECONDS.toNanos(2)));
+        assertEquals(1, queue.getOverrunCount());
+        assertEquals(1, queue.getOverrunTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.drain(TimeUnit.MILLISECONDS.toNanos(2)));
+        assertEquals(1, queue.getOverrunCount());
+    }
+
+    /**
+     * Ensure that tasks queued from many threads at once all run, in the order each thread queued them.
+     *
+     * @throws InterruptedException
+     *         If interrupted while waiting for the producers.
+     */
+    @Test
+    public void producers() throws InterruptedException {
+        int threads = 4;
+        int tasks = 10_000;
+        int[] last = new int[threads];
+        AtomicInteger misordered = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int producer = t;
+            producers.add(new Thread(() -> {
+                for (int i = 1; i <= tasks; i++) {
+                    int sequence = i;
+                    queue.execute(() -> {
+                        if (last[producer] + 1 != sequence) {
+                            misordered.incrementAndGet();
+                        }
+                        last[producer] = sequence;
+                    }, Lane.values()[producer % 2]);
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        int ran = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ran < threads * tasks && System.nanoTime() < deadline) {
+            ran += queue.drain(1, TimeUnit.SECONDS);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(threads * tasks, ran);
+        assertFalse(queue.hasPending());
+        assertEquals(0, misordered.get());
+    }
+
+    /**
+     * Ensure that messages to a wrapped messageable are sent once the queue drains, and fail once its lane is full.
+     */
+    @Test
+    public void messageable() {
+        MainThreadQueue bounded = new MainThreadQueue(ticker, 1);
+        List<String> sent = new ArrayList<>();
+        Messageable<String, Void> player = bounded.messageable((message, callback) -> {
+            sent.add(message);
+            callback.onSuccess(null);
+        }, Lane.LOW);
+        CallbackFuture<Void> first = new CallbackFuture<>();
+        CallbackFuture<Void> second = new CallbackFuture<>();
+        player.sendMessage("first", first);
+        player.sendMessage("second", second);
+        assertTrue(sent.isEmpty());
+        assertTrue(second.isCompletedExceptionally());
+        bounded.drain(1, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList("first"), sent);
+        assertTrue(first.isDone());
+    }
+
+}
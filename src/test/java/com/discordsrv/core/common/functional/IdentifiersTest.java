@@ -0,0 +1,105 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.unit.UniquelyIdentifiable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Identifiers} class.
+ */
+public class IdentifiersTest {
+
+    private final List<Runnable> pending = new ArrayList<>();
+
+    /**
+     * Ensure that both identifiers of a comparison are requested before either arrives.
+     */
+    @Test
+    public void concurrent() {
+        CallbackFuture<Boolean> matching = new CallbackFuture<>();
+        deferred("a").hasMatchingIdentifier(deferred("a"), matching);
+        assertEquals(2, pending.size());
+        pending.get(1).run();
+        assertFalse(matching.isDone());
+        pending.get(0).run();
+        assertTrue(matching.join());
+
+        pending.clear();
+        CallbackFuture<Boolean> different = new CallbackFuture<>();
+        deferred("a").hasMatchingIdentifier(deferred("b"), different);
+        pending.forEach(Runnable::run);
+        assertFalse(different.join());
+    }
+
+    /**
+     * Ensure that a bulk comparison requests every identifier at once and yields the matching candidates in order.
+     */
+    @Test
+    public void matching() {
+        UniquelyIdentifiable<String> first = deferred("a");
+        UniquelyIdentifiable<String> second = deferred("b");
+        UniquelyIdentifiable<String> third = deferred("a");
+        CallbackFuture<Set<UniquelyIdentifiable<String>>> result = new CallbackFuture<>();
+        Identifiers.matching(deferred("a"), Arrays.asList(first, second, third), result);
+        assertEquals(4, pending.size());
+        Collections.reverse(pending);
+        pending.forEach(Runnable::run);
+        assertEquals(Arrays.asList(first, third), new ArrayList<>(result.join()));
+
+        CallbackFuture<Set<UniquelyIdentifiable<String>>> empty = new CallbackFuture<>();
+        Identifiers.matching(callback -> callback.accept("a"), Collections.emptyList(), empty);
+        assertTrue(empty.join().isEmpty());
+    }
+
+    /**
+     * Ensure that an identifiable which throws fails the bulk comparison once.
+     */
+    @Test
+    public void failure() {
+        IllegalStateException failure = new IllegalStateException();
+        UniquelyIdentifiable<String> broken = callback -> {
+            throw failure;
+        };
+        CallbackFuture<Set<UniquelyIdentifiable<String>>> result = new CallbackFuture<>();
+        Identifiers.matching(deferred("a"), Arrays.asList(deferred("a"), broken), result);
+        pending.forEach(Runnable::run);
+        assertTrue(result.isCompletedExceptionally());
+        try {
+            result.join();
+            fail();
+        } catch (CompletionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    private UniquelyIdentifiable<String> deferred(final String identifier) {
+        return (Consumer<String> callback) -> pending.add(() -> callback.accept(identifier));
+    }
+
+}
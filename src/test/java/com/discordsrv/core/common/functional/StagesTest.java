@@ -0,0 +1,129 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.functional.AsyncTranslator;
+import com.discordsrv.core.api.common.functional.Translator;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import com.google.common.util.concurrent.FutureCallback;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Stages} class.
+ */
+public class StagesTest {
+
+    /**
+     * Ensure that a callback style translator which answers immediately yields a completed stage.
+     */
+    @Test
+    public void async() {
+        Translator<String, Integer> translator = (original, callback) -> callback.onSuccess(original.length());
+        CompletionStage<Integer> stage = Stages.async(translator).translate("1234");
+        assertTrue(stage.toCompletableFuture().isDone());
+        assertEquals(4, (int) stage.toCompletableFuture().join());
+    }
+
+    /**
+     * Ensure that failures of a callback style translator fail the stage.
+     */
+    @Test
+    public void asyncFailure() {
+        IllegalStateException failure = new IllegalStateException();
+        Translator<String, Integer> translator = (original, callback) -> callback.onFailure(failure);
+        CompletableFuture<Integer> future = Stages.async(translator).translate("1234").toCompletableFuture();
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+            fail();
+        } catch (CompletionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    /**
+     * Ensure that a stage returning translator notifies callbacks both when complete and once completed.
+     */
+    @Test
+    public void callback() {
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        AsyncTranslator<String, Integer> translator = original -> original.isEmpty() ? pending
+            : CompletableFuture.completedFuture(original.length());
+        AtomicReference<Integer> result = new AtomicReference<>();
+        FutureCallback<Integer> callback = new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(@Nullable final Integer value) {
+                result.set(value);
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                fail();
+            }
+        };
+        Stages.callback(translator).translate("1234", callback);
+        assertEquals(4, (int) result.get());
+        Stages.callback(translator).translate("", callback);
+        assertEquals(4, (int) result.get());
+        pending.complete(0);
+        assertEquals(0, (int) result.get());
+    }
+
+    /**
+     * Ensure that failed stages pass their original cause to the callback.
+     */
+    @Test
+    public void callbackFailure() {
+        IllegalStateException failure = new IllegalStateException();
+        CompletableFuture<Integer> failed = new CompletableFuture<>();
+        failed.completeExceptionally(failure);
+        AtomicReference<Throwable> result = new AtomicReference<>();
+        Stages.whenComplete(failed.thenApply(value -> value + 1), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(@Nullable final Integer value) {
+                fail();
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                result.set(t);
+            }
+        });
+        assertSame(failure, result.get());
+    }
+
+    /**
+     * Ensure that getters may be fetched as stages.
+     */
+    @Test
+    public void getters() {
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Test", "1234");
+        assertEquals("1234", Stages.identifier(player).toCompletableFuture().join());
+        assertEquals("Test", Stages.name(player).toCompletableFuture().join());
+        assertNull(Stages.send(player, "Hello").toCompletableFuture().join());
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.functional;
+
+import com.discordsrv.core.api.common.functional.Translator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Translators} class.
+ */
+public class TranslatorsTest {
+
+    private final List<Runnable> pending = new ArrayList<>();
+    private final Translator<String, Integer> length = Translators.of(text -> text.isEmpty() ? null : text.length());
+    private final Translator<Integer, String> stars = Translators.of(count -> count > 3 ? null : repeat(count));
+
+    /**
+     * Ensure that chained functions fuse into a synchronous translator which stops at the first null.
+     */
+    @Test
+    public void fused() {
+        AtomicInteger calls = new AtomicInteger();
+        Translator<String, String> counted = Translators.andThen(length, Translators.of(count -> {
+            calls.incrementAndGet();
+            return repeat(count);
+        }));
+        assertTrue(Translators.isSynchronous(counted));
+        assertEquals("**", translate(counted, "ab").join());
+        assertNull(translate(counted, "").join());
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * Ensure that asynchronous stages chain with synchronous ones, and that a null skips every later stage.
+     */
+    @Test
+    public void andThen() {
+        Translator<String, Integer> deferred = deferred(length);
+        Translator<String, String> chained =
+            Translators.mapNullable(Translators.andThen(deferred, stars), String::toUpperCase);
+        assertFalse(Translators.isSynchronous(chained));
+        CallbackFuture<String> result = translate(chained, "abc");
+        assertFalse(result.isDone());
+        pending.forEach(Runnable::run);
+        assertEquals("***", result.join());
+
+        pending.clear();
+        Translator<String, String> head = Translators.andThen(length, deferred(stars));
+        CallbackFuture<String> absent = translate(head, "");
+        assertTrue(pending.isEmpty());
+        assertNull(absent.join());
+    }
+
+    /**
+     * Ensure that the secondary translator is only asked when the primary has no translation.
+     */
+    @Test
+    public void fallback() {
+        Translator<String, Integer> constant = Translators.of(text -> -1);
+        assertTrue(Translators.isSynchronous(Translators.fallback(length, constant)));
+        assertEquals(3, (int) translate(Translators.fallback(length, constant), "abc").join());
+        assertEquals(-1, (int) translate(Translators.fallback(length, constant), "").join());
+
+        Translator<String, Integer> asynchronous = Translators.fallback(deferred(length), constant);
+        CallbackFuture<Integer> result = translate(asynchronous, "");
+        pending.forEach(Runnable::run);
+        assertEquals(-1, (int) result.join());
+    }
+
+    /**
+     * Ensure that zipped translators both run before either answers, and that a null answers at once.
+     */
+    @Test
+    public void zip() {
+        Translator<String, String> zipped = Translators.zip(deferred(length),
+            deferred(Translators.of(String::toUpperCase)), (count, upper) -> upper + count);
+        CallbackFuture<String> result = translate(zipped, "ab");
+        assertEquals(2, pending.size());
+        pending.get(1).run();
+        assertFalse(result.isDone());
+        pending.get(0).run();
+        assertEquals("AB2", result.join());
+
+        pending.clear();
+        CallbackFuture<String> absent = translate(zipped, "");
+        pending.get(0).run();
+        assertTrue(absent.isDone());
+        assertNull(absent.join());
+        pending.get(1).run();
+        assertNull(absent.join());
+
+        assertEquals("AB2", translate(Translators.zip(length, Translators.of(String::toUpperCase),
+            (count, upper) -> upper + count), "ab").join());
+    }
+
+    /**
+     * Ensure that an exception thrown by any stage fails the composed translator once.
+     */
+    @Test
+    public void failure() {
+        IllegalStateException failure = new IllegalStateException();
+        Translator<Integer, String> broken = Translators.of(count -> {
+            throw failure;
+        });
+        Translator<String, String> chained = Translators.andThen(deferred(length), broken);
+        CallbackFuture<String> result = translate(chained, "ab");
+        pending.forEach(Runnable::run);
+        assertFailed(failure, result);
+        assertFailed(failure, translate(Translators.andThen(length, broken), "ab"));
+
+        pending.clear();
+        Translator<String, String> zipped = Translators.zip(deferred(Translators.andThen(length, broken)),
+            deferred(Translators.andThen(length, broken)), (first, second) -> first + second);
+        CallbackFuture<String> zippedResult = translate(zipped, "ab");
+        pending.forEach(Runnable::run);
+        assertFailed(failure, zippedResult);
+    }
+
+    private <T, R> Translator<T, R> deferred(final Translator<T, R> translator) {
+        return (original, callback) -> pending.add(() -> translator.translate(original, callback));
+    }
+
+    private static <T, R> CallbackFuture<R> translate(final Translator<T, R> translator, final T original) {
+        CallbackFuture<R> future = new CallbackFuture<>();
+        translator.translate(original, future);
+        return future;
+    }
+
+    private static void assertFailed(final Throwable failure, final CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+            fail();
+        } catch (CompletionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    private static String repeat(final int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append('*');
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.common.unit;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.discordsrv.core.test.FakeTicker;
+import com.discordsrv.core.test.channel.TestChat;
+import com.discordsrv.core.test.channel.TestChatMessage;
+import com.google.common.util.concurrent.FutureCallback;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link RateLimiter} class.
+ */
+public class RateLimiterTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final List<String> delivered = new ArrayList<>();
+    private final List<Object> results = new ArrayList<>();
+    private final FutureCallback<String> recorder = new FutureCallback<String>() {
+        @Override
+        public void onSuccess(final @Nullable String result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            results.add(t);
+        }
+    };
+    private int rateLimits;
+    private final Messageable<String, String> sender = (message, callback) -> {
+        if (rateLimits > 0) {
+            rateLimits--;
+            callback.onFailure(new IllegalStateException("429"));
+        } else {
+            delivered.add(message);
+            callback.onSuccess(message);
+        }
+    };
+
+    /**
+     * Ensure that a key may burst up to its limit, after which messages are sent in order as tokens become available.
+     */
+    @Test
+    public void burst() {
+        RateLimiter limiter = limiter(new RateLimiter.Limit(2, 1, TimeUnit.SECONDS), 10, DropPolicy.REJECT_NEWEST);
+        Messageable<String, String> limited = limiter.limit("channel", sender);
+        for (int i = 0; i < 5; i++) {
+            limited.sendMessage("message " + i, recorder);
+        }
+        assertEquals(Arrays.asList("message 0", "message 1"), delivered);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.drain());
+        ticker.advance(500, TimeUnit.MILLISECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.drain());
+        assertEquals(3, delivered.size());
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(-1, limiter.drain());
+        assertEquals(Arrays.asList("message 0", "message 1", "message 2", "message 3", "message 4"), delivered);
+        assertEquals(delivered, results);
+    }
+
+    /**
+     * Ensure that the global bucket is shared between keys.
+     */
+    @Test
+    public void global() {
+        RateLimiter limiter = new RateLimiter(null, ticker, new RateLimiter.Limit(2, 1, TimeUnit.SECONDS),
+            new RateLimiter.Limit(10, 1, TimeUnit.SECONDS), 10, DropPolicy.REJECT_NEWEST, this::retryAfter);
+        limiter.submit("first", sender, "one", recorder);
+        limiter.submit("second", sender, "two", recorder);
+        limiter.submit("first", sender, "three", recorder);
+        assertEquals(Arrays.asList("one", "two"), delivered);
+        assertEquals(1, limiter.queued());
+        ticker.advance(500, TimeUnit.MILLISECONDS);
+        limiter.drain();
+        assertEquals(Arrays.asList("one", "two", "three"), delivered);
+    }
+
+    /**
+     * Ensure that the drop policy decides which message fails once a queue is full.
+     */
+    @Test
+    public void dropped() {
+        RateLimiter.Limit limit = new RateLimiter.Limit(1, 1, TimeUnit.SECONDS);
+        RateLimiter rejecting = limiter(limit, 1, DropPolicy.REJECT_NEWEST);
+        rejecting.submit("channel", sender, "sent", recorder);
+        rejecting.submit("channel", sender, "queued", recorder);
+        rejecting.submit("channel", sender, "rejected", recorder);
+        assertEquals(2, results.size());
+        assertTrue(results.get(1) instanceof RejectedExecutionException);
+        ticker.advance(1, TimeUnit.SECONDS);
+        rejecting.drain();
+        assertEquals(Arrays.asList("sent", "queued"), delivered);
+
+        delivered.clear();
+        results.clear();
+        RateLimiter dropping = limiter(limit, 1, DropPolicy.DROP_OLDEST);
+        dropping.submit("channel", sender, "sent", recorder);
+        dropping.submit("channel", sender, "dropped", recorder);
+        dropping.submit("channel", sender, "queued", recorder);
+        assertTrue(results.get(1) instanceof RejectedExecutionException);
+        ticker.advance(1, TimeUnit.SECONDS);
+        dropping.drain();
+        assertEquals(Arrays.asList("sent", "queued"), delivered);
+    }
+
+    /**
+     * Ensure that drains take turns between keys, starting after the key served last.
+     */
+    @Test
+    public void fair() {
+        RateLimiter limiter = new RateLimiter(null, ticker, new RateLimiter.Limit(1, 1, TimeUnit.SECONDS),
+            new RateLimiter.Limit(10, 1, TimeUnit.SECONDS), 10, DropPolicy.REJECT_NEWEST, this::retryAfter);
+        for (String message : Arrays.asList("a1", "a2", "a3", "a4", "b1", "c1")) {
+            limiter.submit(message.substring(0, 1), sender, message, recorder);
+        }
+        for (int i = 0; i < 5; i++) {
+            ticker.advance(1, TimeUnit.SECONDS);
+            limiter.drain();
+        }
+        assertEquals(Arrays.asList("a1", "a2", "b1", "c1", "a3", "a4"), delivered);
+    }
+
+    /**
+     * Ensure that a rate limited send queued again does not grow its queue beyond the capacity.
+     */
+    @Test
+    public void requeueBounded() {
+        List<FutureCallback<String>> inFlight = new ArrayList<>();
+        Messageable<String, String> deferred = (message, callback) -> inFlight.add(callback);
+        RateLimiter.Limit limit = new RateLimiter.Limit(1, 1, TimeUnit.SECONDS);
+        RateLimiter rejecting = limiter(limit, 1, DropPolicy.REJECT_NEWEST);
+        rejecting.submit("channel", deferred, "retried", recorder);
+        rejecting.submit("channel", deferred, "newest", recorder);
+        inFlight.get(0).onFailure(new IllegalStateException("429"));
+        assertEquals(1, rejecting.queued());
+        assertEquals(1, results.size());
+        assertTrue(results.get(0) instanceof RejectedExecutionException);
+        ticker.advance(3, TimeUnit.SECONDS);
+        rejecting.drain();
+        assertEquals(2, inFlight.size());
+        inFlight.get(1).onSuccess("retried");
+        assertEquals("retried", results.get(1));
+
+        inFlight.clear();
+        results.clear();
+        RateLimiter dropping = limiter(limit, 1, DropPolicy.DROP_OLDEST);
+        dropping.submit("channel", deferred, "retried", recorder);
+        dropping.submit("channel", deferred, "newest", recorder);
+        inFlight.get(0).onFailure(new IllegalStateException("429"));
+        assertEquals(1, dropping.queued());
+        assertTrue(results.get(0) instanceof RejectedExecutionException);
+    }
+
+    /**
+     * Ensure that a rate limited send is retried once the requested time has passed, at a reduced rate.
+     */
+    @Test
+    public void rateLimited() {
+        RateLimiter limiter = limiter(new RateLimiter.Limit(5, 5, TimeUnit.SECONDS), 10, DropPolicy.REJECT_NEWEST);
+        rateLimits = 1;
+        limiter.submit("channel", sender, "retried", recorder);
+        assertTrue(delivered.isEmpty());
+        assertTrue(results.isEmpty());
+        assertEquals(1, limiter.queued());
+        ticker.advance(2999, TimeUnit.MILLISECONDS);
+        limiter.drain();
+        assertTrue(delivered.isEmpty());
+        ticker.advance(1, TimeUnit.MILLISECONDS);
+        limiter.drain();
+        assertEquals(Arrays.asList("retried"), delivered);
+        assertEquals(Arrays.asList("retried"), results);
+        limiter.submit("channel", sender, "slowed", recorder);
+        ticker.advance(1, TimeUnit.SECONDS);
+        limiter.drain();
+        assertEquals(1, delivered.size());
+        ticker.advance(1500, TimeUnit.MILLISECONDS);
+        limiter.drain();
+        assertEquals(2, delivered.size());
+    }
+
+    /**
+     * Ensure that sends which keep being rate limited eventually fail.
+     */
+    @Test
+    public void exhausted() {
+        RateLimiter limiter = limiter(new RateLimiter.Limit(5, 5, TimeUnit.SECONDS), 10, DropPolicy.REJECT_NEWEST);
+        rateLimits = Integer.MAX_VALUE;
+        limiter.submit("channel", sender, "lost", recorder);
+        for (int i = 0; i < 10; i++) {
+            ticker.advance(1, TimeUnit.MINUTES);
+            limiter.drain();
+        }
+        assertEquals(1, results.size());
+        assertTrue(results.get(0) instanceof IllegalStateException);
+    }
+
+    /**
+     * Ensure that limited chats are keyed by their identifier and still pass their messages on.
+     */
+    @Test
+    public void chat() {
+        RateLimiter limiter = limiter(new RateLimiter.Limit(1, 1, TimeUnit.SECONDS), 10, DropPolicy.REJECT_NEWEST);
+        TestChat first = new TestChat("first");
+        TestChat second = new TestChat("second");
+        Chat limitedFirst = limiter.limit(first);
+        Chat limitedSecond = limiter.limit(second);
+        FutureCallback<Void> ignored = new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(final @Nullable Void result) {
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                fail(t.getMessage());
+            }
+        };
+        limitedFirst.sendMessage(new TestChatMessage(1, "Steve", "one"), ignored);
+        limitedFirst.sendMessage(new TestChatMessage(2, "Steve", "two"), ignored);
+        limitedSecond.sendMessage(new TestChatMessage(3, "Alex", "three"), ignored);
+        assertEquals(1, first.getReceived().size());
+        assertEquals(1, second.getReceived().size());
+        ticker.advance(1, TimeUnit.SECONDS);
+        limiter.drain();
+        assertEquals(2, first.getReceived().size());
+    }
+
+    private RateLimiter limiter(final RateLimiter.Limit keyLimit, final int queueCapacity, final DropPolicy policy) {
+        return new RateLimiter(null, ticker, new RateLimiter.Limit(1000, 1, TimeUnit.SECONDS), keyLimit,
+            queueCapacity, policy, this::retryAfter);
+    }
+
+    private long retryAfter(final Throwable failure) {
+        return failure instanceof IllegalStateException ? TimeUnit.SECONDS.toMillis(3) : -1;
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.metrics;
+
+import com.discordsrv.core.api.common.functional.Translator;
+import com.discordsrv.core.api.common.unit.Messageable;
+import com.discordsrv.core.test.FakeTicker;
+import com.google.common.util.concurrent.FutureCallback;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link MetricsRegistry} class.
+ */
+public class MetricsRegistryTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final MetricsRegistry registry = new MetricsRegistry(ticker);
+    private final List<Object> results = new ArrayList<>();
+    private final FutureCallback<Object> recorder = new FutureCallback<Object>() {
+        @Override
+        public void onSuccess(final @Nullable Object result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onFailure(final @Nonnull Throwable t) {
+            results.add(t);
+        }
+    };
+
+    /**
+     * Ensure that successes, null results and failures are counted apart, and that results still reach the caller.
+     */
+    @Test
+    public void outcomes() {
+        Translator<Integer, Object> translator = registry.translator("square", (original, callback) -> {
+            ticker.advance(original, TimeUnit.MILLISECONDS);
+            if (original < 0) {
+                callback.onFailure(new IllegalArgumentException());
+            } else {
+                callback.onSuccess(original == 0 ? null : original * original);
+            }
+        });
+        translator.translate(3, recorder);
+        translator.translate(0, recorder);
+        translator.translate(-1, recorder);
+        translator.translate(4, recorder);
+        assertEquals(9, results.get(0));
+        assertNull(results.get(1));
+        assertTrue(results.get(2) instanceof IllegalArgumentException);
+        CallSnapshot snapshot = registry.snapshot().get("square");
+        assertEquals(4, snapshot.getCalls());
+        assertEquals(2, snapshot.getSuccesses());
+        assertEquals(1, snapshot.getNulls());
+        assertEquals(1, snapshot.getFailures());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(6), snapshot.getTotalNanos());
+    }
+
+    /**
+     * Ensure that bulk translations are measured apart from single translations.
+     */
+    @Test
+    public void bulk() {
+        Translator<Integer, Object> translator = registry.translator("square", (original, callback) -> {
+            ticker.advance(1, TimeUnit.MILLISECONDS);
+            callback.onSuccess(original * original);
+        });
+        List<Object> found = new ArrayList<>();
+        translator.translateAll(Arrays.asList(2, 3), new FutureCallback<Map<Integer, Object>>() {
+            @Override
+            public void onSuccess(final @Nullable Map<Integer, Object> result) {
+                found.add(result);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                found.add(t);
+            }
+        });
+        assertEquals(1, found.size());
+        assertEquals(2, ((Map<?, ?>) found.get(0)).size());
+        CallSnapshot all = registry.snapshot().get("square.all");
+        assertEquals(1, all.getCalls());
+        assertEquals(1, all.getSuccesses());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), all.getTotalNanos());
+        assertEquals(0, registry.snapshot().get("square").getCalls());
+    }
+
+    /**
+     * Ensure that a call is timed until its callback is invoked, even when that happens later.
+     */
+    @Test
+    public void asynchronous() {
+        List<FutureCallback<Void>> pending = new ArrayList<>();
+        Messageable<String, Void> messageable =
+            registry.messageable("send", (message, callback) -> pending.add(callback));
+        messageable.sendMessage("hello", new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(final @Nullable Void result) {
+                results.add("sent");
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                results.add(t);
+            }
+        });
+        assertEquals(0, registry.snapshot().get("send").getCalls());
+        ticker.advance(250, TimeUnit.MILLISECONDS);
+        pending.get(0).onSuccess(null);
+        CallSnapshot snapshot = registry.snapshot().get("send");
+        assertEquals(1, snapshot.getCalls());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), snapshot.getTotalNanos());
+        assertEquals("[sent]", results.toString());
+    }
+
+    /**
+     * Ensure that a call which throws is counted as a failure once, and the exception still reaches the caller.
+     */
+    @Test
+    public void thrown() {
+        Translator<Integer, Object> translator = registry.translator("throwing", (original, callback) -> {
+            callback.onFailure(new IllegalStateException());
+            throw new IllegalStateException();
+        });
+        try {
+            translator.translate(1, recorder);
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertEquals(1, registry.snapshot().get("throwing").getFailures());
+        Translator<Integer, Object> silent = registry.translator("silent", (original, callback) -> {
+            throw new IllegalStateException();
+        });
+        try {
+            silent.translate(1, recorder);
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertEquals(1, registry.snapshot().get("silent").getFailures());
+    }
+
+    /**
+     * Ensure that quantiles are bounded by the bucket which holds them, to within a quarter of their value.
+     */
+    @Test
+    public void quantiles() {
+        CallMetrics metrics = registry.metrics("latency");
+        for (int i = 1; i <= 100; i++) {
+            metrics.success(TimeUnit.MICROSECONDS.toNanos(i), false);
+        }
+        CallSnapshot snapshot = metrics.snapshot();
+        long median = snapshot.getQuantileNanos(0.5);
+        long tail = snapshot.getQuantileNanos(0.99);
+        assertTrue(median >= 50_000 && median <= 50_000 * 5 / 4);
+        assertTrue(tail >= 99_000 && tail <= 99_000 * 5 / 4);
+        assertTrue(snapshot.getQuantileNanos(1) >= 100_000);
+        assertEquals(0, registry.metrics("empty").snapshot().getQuantileNanos(0.5));
+    }
+
+    /**
+     * Ensure that every latency falls into a bucket whose bound covers it and whose predecessor's bound does not.
+     */
+    @Test
+    public void buckets() {
+        long[] samples = {0, 1, 2, 3, 4, 5, 6, 7, 8, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long sample : samples) {
+            int bucket = CallMetrics.bucket(sample);
+            assertTrue(sample + " above bound", sample <= CallSnapshot.getBucketBound(bucket));
+            if (bucket > 0) {
+                assertTrue(sample + " below bound", sample > CallSnapshot.getBucketBound(bucket - 1));
+            }
+        }
+    }
+
+    /**
+     * Ensure that the snapshot holds every registered path, sorted by name.
+     */
+    @Test
+    public void snapshot() {
+        registry.metrics("b");
+        registry.metrics("a");
+        Map<String, CallSnapshot> snapshot = registry.snapshot();
+        assertEquals("[a, b]", snapshot.keySet().toString());
+        assertSame(registry.metrics("a"), registry.metrics("a"));
+    }
+
+}
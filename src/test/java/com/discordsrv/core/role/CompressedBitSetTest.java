@@ -0,0 +1,128 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link CompressedBitSet} class.
+ */
+public class CompressedBitSetTest {
+
+    /**
+     * Ensure that chunks move between their array and bitmap forms without losing integers.
+     */
+    @Test
+    public void conversion() {
+        CompressedBitSet set = new CompressedBitSet();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(set.add(i * 3));
+        }
+        assertFalse(set.add(0));
+        assertEquals(10_000, set.cardinality());
+        for (int i = 0; i < 10_000; i += 2) {
+            assertTrue(set.remove(i * 3));
+        }
+        assertFalse(set.remove(0));
+        assertEquals(5_000, set.cardinality());
+        assertTrue(set.contains(3));
+        assertFalse(set.contains(6));
+        int[] values = set.toArray();
+        for (int i = 0; i < values.length; i++) {
+            assertEquals((i * 2 + 1) * 3, values[i]);
+        }
+    }
+
+    /**
+     * Ensure that a chunk shrinking from a bitmap back past its array limit, and growing again, keeps its integers.
+     */
+    @Test
+    public void hysteresis() {
+        CompressedBitSet set = new CompressedBitSet();
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                set.add(i * 7);
+                reference.add(i * 7);
+            }
+            for (int i = 0; i < 4_000; i++) {
+                assertTrue(set.remove(i * 7 + round * 7));
+                reference.remove(i * 7 + round * 7);
+            }
+            assertContents(reference, set);
+        }
+    }
+
+    /**
+     * Ensure that the set operations agree with a reference set, across sparse and dense chunks.
+     */
+    @Test
+    public void operations() {
+        Random random = new Random(0);
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Integer> firstReference = new TreeSet<>();
+            TreeSet<Integer> secondReference = new TreeSet<>();
+            CompressedBitSet first = new CompressedBitSet();
+            CompressedBitSet second = new CompressedBitSet();
+            fill(random, first, firstReference);
+            fill(random, second, secondReference);
+
+            TreeSet<Integer> expected = new TreeSet<>(firstReference);
+            expected.retainAll(secondReference);
+            assertContents(expected, CompressedBitSet.and(first, second));
+            expected = new TreeSet<>(firstReference);
+            expected.removeAll(secondReference);
+            assertContents(expected, CompressedBitSet.andNot(first, second));
+            expected = new TreeSet<>(firstReference);
+            expected.addAll(secondReference);
+            assertContents(expected, CompressedBitSet.or(first, second));
+            assertContents(firstReference, new CompressedBitSet(first));
+        }
+    }
+
+    /**
+     * Ensure that negative integers are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void negative() {
+        new CompressedBitSet().add(-1);
+    }
+
+    private static void fill(final Random random, final CompressedBitSet set, final TreeSet<Integer> reference) {
+        // Each of four chunks is randomly empty, sparse or dense.
+        for (int chunk = 0; chunk < 4; chunk++) {
+            int count = new int[]{0, 100, 20_000}[random.nextInt(3)];
+            for (int i = 0; i < count; i++) {
+                int value = (chunk << 16) | random.nextInt(1 << 16);
+                set.add(value);
+                reference.add(value);
+            }
+        }
+    }
+
+    private static void assertContents(final TreeSet<Integer> expected, final CompressedBitSet actual) {
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual.toArray());
+        assertEquals(expected.size(), actual.cardinality());
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import com.discordsrv.core.test.role.TestTeam;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import com.google.common.util.concurrent.FutureCallback;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link MembershipIndex} class.
+ */
+public class MembershipIndexTest {
+
+    private final MembershipIndex index = new MembershipIndex();
+
+    /**
+     * Ensure that set operations between groups resolve back to players.
+     */
+    @Test
+    public void operations() {
+        index.setMembers("team", Arrays.asList("alex", "steve", "herobrine"));
+        index.add("role", "steve");
+        index.add("role", "notch");
+        assertEquals(Arrays.asList("alex", "herobrine"), names(index.difference("team", "role")));
+        assertEquals(Arrays.asList("steve"), names(index.intersection("team", "role")));
+        assertEquals(Arrays.asList("team", "role"), groups(index.groupsOf("steve")));
+        assertTrue(index.remove("team", "steve"));
+        assertFalse(index.remove("team", "steve"));
+        assertEquals(Arrays.asList("role"), groups(index.groupsOf("steve")));
+        List<String> members = new ArrayList<>();
+        index.forEachMember("team", members::add);
+        assertEquals(Arrays.asList("alex", "herobrine"), members);
+    }
+
+    /**
+     * Ensure that unknown groups behave as empty groups.
+     */
+    @Test
+    public void unknown() {
+        index.add("team", "alex");
+        assertTrue(index.members("missing").isEmpty());
+        assertTrue(index.intersection("team", "missing").isEmpty());
+        assertEquals(Arrays.asList("alex"), names(index.difference("team", "missing")));
+        assertTrue(index.groupsOf("missing").isEmpty());
+    }
+
+    /**
+     * Ensure that the ids of players which left every group are freed and given to new players.
+     */
+    @Test
+    public void reuse() {
+        index.setMembers("team", Arrays.asList("alex", "steve"));
+        index.add("role", "steve");
+        int alex = index.playerId("alex");
+        int steve = index.playerId("steve");
+        index.setMembers("team", Arrays.asList("steve"));
+        assertNull(index.player(alex));
+        assertTrue(index.remove("role", "steve"));
+        assertEquals("steve", index.player(steve));
+        index.add("team", "notch");
+        assertEquals(alex, index.playerId("notch"));
+        index.add("role", "herobrine");
+        assertEquals(2, index.playerId("herobrine"));
+        assertEquals(Arrays.asList("notch", "steve"), names(index.members("team")));
+        assertEquals(Arrays.asList("team"), groups(index.groupsOf("notch")));
+    }
+
+    /**
+     * Ensure that a team may replace the members of its group.
+     */
+    @Test
+    public void update() {
+        TestTeam team = new TestTeam("builders");
+        team.getMemberList().add(new TestMinecraftPlayer("Test", "alex"));
+        team.getMemberList().add(new TestMinecraftPlayer("Test", "steve"));
+        index.add("builders", "notch");
+        boolean[] updated = new boolean[1];
+        index.update(team, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(final @Nullable Void result) {
+                updated[0] = true;
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                fail(t.getMessage());
+            }
+        });
+        assertTrue(updated[0]);
+        assertEquals(Arrays.asList("alex", "steve"), names(index.members("builders")));
+    }
+
+    private List<String> names(final CompressedBitSet ids) {
+        List<String> names = new ArrayList<>();
+        ids.forEach(id -> names.add(index.player(id)));
+        names.sort(null);
+        return names;
+    }
+
+    private List<String> groups(final CompressedBitSet ids) {
+        List<String> names = new ArrayList<>();
+        ids.forEach(id -> names.add(index.group(id)));
+        return names;
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.role;
+
+import com.discordsrv.core.api.role.Team;
+import com.discordsrv.core.api.role.TeamRoleLinker;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.api.user.PlayerUserLinker;
+import com.discordsrv.core.test.mocker.Mocker;
+import com.discordsrv.core.test.role.TestTeam;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import com.discordsrv.core.test.user.TestPlayerUserLookup;
+import com.discordsrv.core.user.LocalPlayerUserLinker;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.entities.User;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link RoleSyncEngine} class.
+ */
+public class RoleSyncEngineTest {
+
+    private final Mocker mocker = new Mocker();
+    private final Guild guild = guild(1);
+    private final Map<String, Role> roles = new HashMap<>();
+    private final LocalPlayerUserLinker userLinker = new LocalPlayerUserLinker(new TestPlayerUserLookup());
+    private final List<String> updates = new CopyOnWriteArrayList<>();
+    private final Set<Long> rejected = new HashSet<>();
+    private final AtomicInteger translations = new AtomicInteger();
+    private final RoleSyncEngine engine = new RoleSyncEngine(new TeamRoleLinker() {
+        @Override
+        public void translate(final @Nonnull Team<MinecraftPlayer> team,
+                              final @Nonnull FutureCallback<Role> callback) {
+            team.getUniqueIdentifier(identifier -> callback.onSuccess(roles.get(identifier)));
+        }
+
+        @Override
+        public void translate(final @Nonnull Role role, final @Nonnull FutureCallback<Team<MinecraftPlayer>> callback) {
+            callback.onSuccess(null);
+        }
+    }, new PlayerUserLinker() {
+        @Override
+        public void translate(final @Nonnull MinecraftPlayer player, final @Nonnull FutureCallback<User> callback) {
+            translations.incrementAndGet();
+            userLinker.translate(player, callback);
+        }
+
+        @Override
+        public void translate(final @Nonnull User user, final @Nonnull FutureCallback<MinecraftPlayer> callback) {
+            userLinker.translate(user, callback);
+        }
+    }) {
+        @Override
+        protected void modifyRoles(final @Nonnull Guild guild, final long user, final @Nonnull Collection<Role> add,
+                                   final @Nonnull Collection<Role> remove,
+                                   final @Nonnull FutureCallback<Void> callback) {
+            updates.add(guild.getIdLong() + ":" + user + "+" + ids(add) + "-" + ids(remove));
+            if (rejected.contains(user)) {
+                callback.onFailure(new IllegalStateException("Missing permission"));
+            } else {
+                callback.onSuccess(null);
+            }
+        }
+    };
+    private long nextUser = 1;
+
+    /**
+     * Ensure that only the members which changed since the last sync are updated.
+     */
+    @Test
+    public void incremental() {
+        TestTeam team = team("builders", 100);
+        for (int i = 0; i < 5_000; i++) {
+            team.getMemberList().add(linkedPlayer());
+        }
+        assertEquals(5_000, sync(team));
+        assertEquals(0, sync(team));
+        updates.clear();
+        List<MinecraftPlayer> members = team.getMemberList();
+        for (int i = 0; i < 5; i++) {
+            members.remove(0);
+            members.add(linkedPlayer());
+        }
+        assertEquals(10, sync(team));
+        assertEquals(10, updates.size());
+        assertTrue(updates.contains("1:1+[]-[100]"));
+        assertTrue(updates.contains("1:" + (nextUser - 1) + "+[100]-[]"));
+    }
+
+    /**
+     * Ensure that the changes of several teams for the same member are merged into a single update.
+     */
+    @Test
+    public void merged() {
+        TestTeam first = team("builders", 100);
+        TestTeam second = team("moderators", 200);
+        MinecraftPlayer shared = linkedPlayer();
+        first.getMemberList().add(shared);
+        second.getMemberList().add(shared);
+        assertEquals(1, sync(first, second));
+        assertEquals(Arrays.asList("1:1+[100, 200]-[]"), updates);
+    }
+
+    /**
+     * Ensure that unlinked players are skipped without being translated again, and picked up once they link.
+     */
+    @Test
+    public void unlinked() {
+        TestTeam team = team("builders", 100);
+        String identifier = UUID.randomUUID().toString();
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Test", identifier);
+        team.getMemberList().add(player);
+        assertEquals(0, sync(team));
+        assertEquals(0, sync(team));
+        assertEquals(1, translations.get());
+        link(player, 42);
+        assertEquals(1, sync(team));
+        assertEquals(2, translations.get());
+        assertEquals(Arrays.asList("1:42+[100]-[]"), updates);
+    }
+
+    /**
+     * Ensure that the role of a player which is relinked is moved to the new user.
+     */
+    @Test
+    public void relinked() {
+        TestTeam team = team("builders", 100);
+        MinecraftPlayer player = linkedPlayer();
+        team.getMemberList().add(player);
+        assertEquals(1, sync(team));
+        updates.clear();
+        link(player, 42);
+        assertEquals(2, sync(team));
+        assertEquals(new HashSet<>(Arrays.asList("1:1+[]-[100]", "1:42+[100]-[]")), new HashSet<>(updates));
+        updates.clear();
+        link(player, 42);
+        assertEquals(0, sync(team));
+        assertEquals(0, sync(team));
+        assertTrue(updates.isEmpty());
+    }
+
+    /**
+     * Ensure that linking a user to another player takes the role from it if that player is not a member.
+     */
+    @Test
+    public void stolen() {
+        TestTeam team = team("builders", 100);
+        MinecraftPlayer player = linkedPlayer();
+        team.getMemberList().add(player);
+        assertEquals(1, sync(team));
+        updates.clear();
+        link(new TestMinecraftPlayer("Other", UUID.randomUUID().toString()), 1);
+        assertEquals(1, sync(team));
+        assertEquals(Arrays.asList("1:1+[]-[100]"), updates);
+    }
+
+    /**
+     * Ensure that rejected updates are tried again by the next sync.
+     */
+    @Test
+    public void rejected() {
+        TestTeam team = team("builders", 100);
+        team.getMemberList().add(linkedPlayer());
+        rejected.add(1L);
+        assertEquals(0, sync(team));
+        rejected.clear();
+        assertEquals(1, sync(team));
+        assertEquals(0, sync(team));
+        assertEquals(2, updates.size());
+    }
+
+    private int sync(final TestTeam... teams) {
+        AtomicReference<Object> result = new AtomicReference<>();
+        engine.sync(Arrays.asList(teams), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(final @Nullable Integer count) {
+                result.set(count);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                result.set(t);
+            }
+        });
+        assertTrue(String.valueOf(result.get()), result.get() instanceof Integer);
+        return (Integer) result.get();
+    }
+
+    private TestTeam team(final String identifier, final long role) {
+        roles.put(identifier, Mocker.getInstance(Role.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getIdLong":
+                    return role;
+                case "getGuild":
+                    return guild;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+        return new TestTeam(identifier);
+    }
+
+    private MinecraftPlayer linkedPlayer() {
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Test", UUID.randomUUID().toString());
+        link(player, nextUser++);
+        return player;
+    }
+
+    private void link(final MinecraftPlayer player, final long user) {
+        User linked = mocker.getMockedUser(user);
+        userLinker.push(player, linked);
+        engine.push(player, linked);
+    }
+
+    private Guild guild(final long id) {
+        return Mocker.getInstance(Guild.class, (proxy, method, args) -> {
+            if ("getIdLong".equals(method.getName())) {
+                return id;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static String ids(final Collection<Role> roles) {
+        return Arrays.toString(roles.stream().mapToLong(Role::getIdLong).sorted().toArray());
+    }
+
+}
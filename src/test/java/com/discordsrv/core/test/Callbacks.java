@@ -0,0 +1,76 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.test;
+
+import com.discordsrv.core.common.functional.CallbackFuture;
+import com.google.common.util.concurrent.FutureCallback;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Captures the results of callback style methods which complete before returning.
+ */
+public final class Callbacks {
+
+    private Callbacks() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Calls a method and fetches the result it passed to its callback.
+     *
+     * @param call
+     *         The call, given the callback to pass on.
+     * @param <T>
+     *         The type of the result.
+     *
+     * @return result The result, failing the test if the callback failed.
+     */
+    public static <T> T get(final Consumer<FutureCallback<T>> call) {
+        CallbackFuture<T> result = new CallbackFuture<>();
+        call.accept(result);
+        assertTrue("The callback was not invoked", result.isDone());
+        return result.join();
+    }
+
+    /**
+     * Calls a method and fetches the failure it passed to its callback.
+     *
+     * @param call
+     *         The call, given the callback to pass on.
+     * @param <T>
+     *         The type of the result.
+     *
+     * @return failure The failure, failing the test if the callback succeeded.
+     */
+    public static <T> Throwable failure(final Consumer<FutureCallback<T>> call) {
+        CallbackFuture<T> result = new CallbackFuture<>();
+        call.accept(result);
+        assertTrue("The callback was not invoked", result.isDone());
+        try {
+            result.join();
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("The callback succeeded");
+    }
+
+}
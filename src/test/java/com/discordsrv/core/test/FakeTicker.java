@@ -0,0 +1,48 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.test;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Ticker} which only moves when the test advances it.
+ */
+public final class FakeTicker extends Ticker {
+
+    private long time = 1234;
+
+    /**
+     * Moves the time forwards.
+     *
+     * @param duration
+     *         The time to move by.
+     * @param unit
+     *         The unit of the time.
+     */
+    public void advance(final long duration, final TimeUnit unit) {
+        time += unit.toNanos(duration);
+    }
+
+    @Override
+    public long read() {
+        return time;
+    }
+
+}
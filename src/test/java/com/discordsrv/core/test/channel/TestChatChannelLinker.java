@@ -0,0 +1,60 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.test.channel;
+
+import com.discordsrv.core.api.channel.Chat;
+import com.discordsrv.core.api.channel.ChatChannelLinker;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.TextChannel;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A simple test implementation of the {@link ChatChannelLinker} type, backed by a pair of maps.
+ */
+public class TestChatChannelLinker implements ChatChannelLinker {
+
+    private final Map<String, TextChannel> channels = new ConcurrentHashMap<>();
+    private final Map<Long, Chat> chats = new ConcurrentHashMap<>();
+
+    /**
+     * Links a chat and a channel.
+     *
+     * @param chat
+     *         The chat to link.
+     * @param channel
+     *         The channel to link.
+     */
+    public void link(final @Nonnull Chat chat, final @Nonnull TextChannel channel) {
+        chat.getUniqueIdentifier(identifier -> channels.put(identifier, channel));
+        chats.put(channel.getIdLong(), chat);
+    }
+
+    @Override
+    public void translate(final @Nonnull Chat chat, final @Nonnull FutureCallback<TextChannel> callback) {
+        chat.getUniqueIdentifier(identifier -> callback.onSuccess(channels.get(identifier)));
+    }
+
+    @Override
+    public void translate(final @Nonnull TextChannel channel, final @Nonnull FutureCallback<Chat> callback) {
+        callback.onSuccess(chats.get(channel.getIdLong()));
+    }
+
+}
@@ -98,6 +98,12 @@ public class Mocker {
             public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
                 if (method.equals(User.class.getMethod("getIdLong"))) {
                     return id;
+                } else if (method.equals(User.class.getMethod("getName"))) {
+                    return "User" + id;
+                } else if (method.equals(Object.class.getMethod("hashCode"))) {
+                    return Long.hashCode(id);
+                } else if (method.equals(Object.class.getMethod("equals", Object.class))) {
+                    return proxy == args[0];
                 } else {
                     return super.invoke(proxy, method, args);
                 }
@@ -180,8 +186,11 @@ public class Mocker {
         return getInstance(Message.class, new NoopInvocationHandler() {
             @Override
             public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
-                if (method.equals(Message.class.getMethod("getContentRaw"))) {
+                if (method.equals(Message.class.getMethod("getContentRaw"))
+                    || method.equals(Message.class.getMethod("getContentDisplay"))) {
                     return message;
+                } else if (method.equals(Message.class.getMethod("getMember"))) {
+                    return null;
                 } else if (method.equals(Message.class.getMethod("getIdLong"))) {
                     return messageIdLong;
                 } else if (method.equals(Message.class.getMethod("getTextChannel"))) {
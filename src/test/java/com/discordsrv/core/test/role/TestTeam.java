@@ -0,0 +1,64 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.test.role;
+
+import com.discordsrv.core.api.role.Team;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A simple test implementation of the {@link Team} type, whose members may be changed freely.
+ */
+@RequiredArgsConstructor
+public class TestTeam implements Team<MinecraftPlayer> {
+
+    private final String identifier;
+    private final List<MinecraftPlayer> members = new CopyOnWriteArrayList<>();
+
+    /**
+     * Fetches the mutable list of members of this team.
+     *
+     * @return members The members of this team.
+     */
+    public List<MinecraftPlayer> getMemberList() {
+        return members;
+    }
+
+    @Override
+    public void getMembers(final @Nonnull Consumer<Collection<MinecraftPlayer>> callback) {
+        callback.accept(new ArrayList<>(members));
+    }
+
+    @Override
+    public void getName(final @Nonnull Consumer<CharSequence> callback) {
+        callback.accept(identifier);
+    }
+
+    @Override
+    public void getUniqueIdentifier(final @Nonnull Consumer<String> callback) {
+        callback.accept(identifier);
+    }
+
+}
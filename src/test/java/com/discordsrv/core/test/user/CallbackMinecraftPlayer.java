@@ -0,0 +1,76 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.test.user;
+
+import com.discordsrv.core.api.auth.State;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.discordsrv.core.api.common.unit.DirectlyNamed;
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.google.common.util.concurrent.FutureCallback;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nonnull;
+import java.util.function.Consumer;
+
+/**
+ * A test implementation of the {@link MinecraftPlayer} type which only answers through callbacks, hiding whether its
+ * delegate is {@link DirectlyIdentifiable} or {@link DirectlyNamed}.
+ */
+@RequiredArgsConstructor
+public class CallbackMinecraftPlayer implements MinecraftPlayer {
+
+    private final MinecraftPlayer delegate;
+
+    /**
+     * Creates a player with the given name and identifier.
+     *
+     * @param name
+     *         The name of the player.
+     * @param identifier
+     *         The identifier of the player.
+     */
+    public CallbackMinecraftPlayer(final CharSequence name, final String identifier) {
+        this(new TestMinecraftPlayer(name, identifier));
+    }
+
+    @Override
+    public void getAuthenticationStage(final @Nonnull Consumer<State> callback) {
+        delegate.getAuthenticationStage(callback);
+    }
+
+    @Override
+    public void setAuthenticationStage(final @Nonnull State state) {
+        delegate.setAuthenticationStage(state);
+    }
+
+    @Override
+    public void sendMessage(final @Nonnull String message, final @Nonnull FutureCallback<Void> resultCallback) {
+        delegate.sendMessage(message, resultCallback);
+    }
+
+    @Override
+    public void getName(final @Nonnull Consumer<CharSequence> callback) {
+        delegate.getName(callback);
+    }
+
+    @Override
+    public void getUniqueIdentifier(final @Nonnull Consumer<String> callback) {
+        delegate.getUniqueIdentifier(callback);
+    }
+
+}
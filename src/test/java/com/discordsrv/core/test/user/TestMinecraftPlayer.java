@@ -18,6 +18,8 @@
 package com.discordsrv.core.test.user;
 
 import com.discordsrv.core.api.auth.State;
+import com.discordsrv.core.api.common.unit.DirectlyIdentifiable;
+import com.discordsrv.core.api.common.unit.DirectlyNamed;
 import com.discordsrv.core.api.user.MinecraftPlayer;
 import com.google.common.util.concurrent.FutureCallback;
 import lombok.RequiredArgsConstructor;
@@ -26,10 +28,10 @@ import javax.annotation.Nonnull;
 import java.util.function.Consumer;
 
 /**
- * A simple test implementation of the {@link MinecraftPlayer} type.
+ * A simple test implementation of the {@link MinecraftPlayer} type, which holds its name and identifier in memory.
  */
 @RequiredArgsConstructor
-public class TestMinecraftPlayer implements MinecraftPlayer {
+public class TestMinecraftPlayer implements MinecraftPlayer, DirectlyIdentifiable<String>, DirectlyNamed {
 
     private State state = State.UNAUTHENTICATED;
     private final CharSequence name;
@@ -51,12 +53,12 @@ public class TestMinecraftPlayer implements MinecraftPlayer {
     }
 
     @Override
-    public void getName(final @Nonnull Consumer<CharSequence> callback) {
-        callback.accept(this.name);
+    public CharSequence getName() {
+        return this.name;
     }
 
     @Override
-    public void getUniqueIdentifier(final @Nonnull Consumer<String> callback) {
-        callback.accept(this.identifier);
+    public String getUniqueIdentifier() {
+        return this.identifier;
     }
 }
@@ -0,0 +1,168 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.test.user;
+
+import com.discordsrv.core.user.LinkDelta;
+import com.discordsrv.core.user.LinkStorage;
+import com.discordsrv.core.user.ReplicatedLinkStorage;
+import com.discordsrv.core.user.ReplicationTransport;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * An in-memory network of {@link ReplicatedLinkStorage} nodes.
+ * <p>
+ * Messages are queued until delivered, and pass through their byte encoding on the way, so tests choose when and in
+ * which order nodes hear of each other's changes.
+ */
+public class TestReplicationNetwork {
+
+    private final Map<Integer, ReplicatedLinkStorage> nodes = new TreeMap<>();
+    private final List<Message> queue = new ArrayList<>();
+
+    /**
+     * Adds a node to this network. The node does not exchange its state until it joins.
+     *
+     * @param node
+     *         The identifier of the node.
+     * @param local
+     *         The storage to keep the links of the node in.
+     *
+     * @return storage The storage of the node.
+     */
+    public synchronized ReplicatedLinkStorage add(final int node, final @Nonnull LinkStorage local) {
+        ReplicatedLinkStorage storage = new ReplicatedLinkStorage(node, local, new ReplicationTransport() {
+            @Override
+            public void broadcast(final @Nonnull LinkDelta delta) {
+                synchronized (TestReplicationNetwork.this) {
+                    nodes.keySet().stream().filter(target -> target != node)
+                        .forEach(target -> queue.add(new Message(target, encode(delta))));
+                }
+            }
+
+            @Override
+            public void send(final int target, final @Nonnull LinkDelta delta) {
+                synchronized (TestReplicationNetwork.this) {
+                    queue.add(new Message(target, encode(delta)));
+                }
+            }
+        });
+        nodes.put(node, storage);
+        return storage;
+    }
+
+    /**
+     * Fetches the number of messages waiting to be delivered.
+     *
+     * @return pending The number of messages.
+     */
+    public synchronized int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Discards every message waiting to be delivered, as if the network had lost them.
+     */
+    public synchronized void drop() {
+        queue.clear();
+    }
+
+    /**
+     * Delivers messages in the order they were sent until none are left.
+     */
+    public void deliver() {
+        Message next;
+        while ((next = take(null)) != null) {
+            next.deliver();
+        }
+    }
+
+    /**
+     * Delivers messages in a random order until none are left, delivering some of them twice.
+     *
+     * @param random
+     *         The source of the order.
+     * @param duplicates
+     *         The share of messages to deliver twice.
+     */
+    public void shuffle(final @Nonnull Random random, final double duplicates) {
+        Message next;
+        while ((next = take(random)) != null) {
+            next.deliver();
+            if (random.nextDouble() < duplicates) {
+                next.deliver();
+            }
+        }
+    }
+
+    private synchronized Message take(final Random random) {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        return queue.remove(random == null ? 0 : random.nextInt(queue.size()));
+    }
+
+    private static byte[] encode(final LinkDelta delta) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            delta.write(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A message on its way to a node.
+     */
+    private final class Message {
+
+        private final int target;
+        private final byte[] payload;
+
+        private Message(final int target, final byte[] payload) {
+            this.target = target;
+            this.payload = payload;
+        }
+
+        private void deliver() {
+            ReplicatedLinkStorage storage;
+            synchronized (TestReplicationNetwork.this) {
+                storage = nodes.get(target);
+            }
+            try {
+                storage.receive(LinkDelta.read(new DataInputStream(new ByteArrayInputStream(payload))));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+}
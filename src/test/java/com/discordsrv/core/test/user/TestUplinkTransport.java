@@ -0,0 +1,105 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.test.user;
+
+import com.discordsrv.core.user.UplinkTransport;
+import com.google.common.util.concurrent.FutureCallback;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process stand-in for the upstream link service.
+ * <p>
+ * While held, requests are queued until {@link #release()} is invoked.
+ */
+public class TestUplinkTransport implements UplinkTransport {
+
+    private final Map<String, Long> links = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<Runnable> held = new ArrayList<>();
+    private boolean holding;
+
+    /**
+     * Links a player and a user upstream.
+     *
+     * @param player
+     *         The identifier of the player.
+     * @param user
+     *         The snowflake of the user.
+     */
+    public void link(final @Nonnull String player, final long user) {
+        links.put(player, user);
+    }
+
+    /**
+     * Fetches the number of requests this service has received.
+     *
+     * @return requests The number of requests.
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Holds every following request until released.
+     */
+    public synchronized void hold() {
+        holding = true;
+    }
+
+    /**
+     * Answers every held request and stops holding.
+     */
+    public void release() {
+        List<Runnable> answers;
+        synchronized (this) {
+            holding = false;
+            answers = new ArrayList<>(held);
+            held.clear();
+        }
+        answers.forEach(Runnable::run);
+    }
+
+    @Override
+    public void fetchUser(final @Nonnull String player, final @Nonnull FutureCallback<Long> callback) {
+        answer(() -> callback.onSuccess(links.get(player)));
+    }
+
+    @Override
+    public void fetchPlayer(final long user, final @Nonnull FutureCallback<String> callback) {
+        answer(() -> callback.onSuccess(links.entrySet().stream().filter(entry -> entry.getValue() == user)
+            .map(Map.Entry::getKey).findAny().orElse(null)));
+    }
+
+    private void answer(final Runnable answer) {
+        requests.incrementAndGet();
+        synchronized (this) {
+            if (holding) {
+                held.add(answer);
+                return;
+            }
+        }
+        answer.run();
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.api.user.PlayerUserLookup;
+import com.discordsrv.core.common.dispatch.Dispatcher;
+import com.discordsrv.core.test.mocker.Mocker;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.FutureCallback;
+import net.dv8tion.jda.core.entities.User;
+import org.apache.commons.collections4.bidimap.DualTreeBidiMap;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link CachingPlayerUserLookup} class.
+ */
+public class CachingPlayerUserLookupTest {
+
+    private final String testMCId = "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8";
+    private final long testDiscordId = 1234;
+    private final Mocker mocker = new Mocker();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Map<Long, User> known = new HashMap<>();
+    private final PlayerUserLookup upstream = new PlayerUserLookup() {
+        @Override
+        public void lookup(final long id, final @Nonnull FutureCallback<User> callback) {
+            requests.incrementAndGet();
+            callback.onSuccess(known.get(id));
+        }
+
+        @Override
+        public void lookup(final @Nonnull String id, final @Nonnull FutureCallback<MinecraftPlayer> callback) {
+            requests.incrementAndGet();
+            callback.onSuccess(new TestMinecraftPlayer("Test", id));
+        }
+    };
+    private final CachingPlayerUserLookup lookup = new CachingPlayerUserLookup(upstream,
+        builder(2, 1, TimeUnit.MINUTES), builder(16, 10, TimeUnit.SECONDS));
+
+    /**
+     * Ensure that found users are cached until they expire.
+     */
+    @Test
+    public void cached() {
+        known.put(testDiscordId, mocker.getMockedUser(testDiscordId));
+        assertSame(known.get(testDiscordId), lookupUser(testDiscordId));
+        assertSame(known.get(testDiscordId), lookupUser(testDiscordId));
+        assertEquals(1, requests.get());
+        assertEquals(1, lookup.getHitCount());
+        assertEquals(1, lookup.getMissCount());
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        lookupUser(testDiscordId);
+        assertEquals(2, requests.get());
+        assertEquals(1, lookup.getEvictionCount());
+    }
+
+    /**
+     * Ensure that absent users are cached for the shorter negative expiry only.
+     */
+    @Test
+    public void negative() {
+        assertNull(lookupUser(testDiscordId));
+        assertNull(lookupUser(testDiscordId));
+        assertEquals(1, requests.get());
+        known.put(testDiscordId, mocker.getMockedUser(testDiscordId));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertNotNull(lookupUser(testDiscordId));
+        assertEquals(2, requests.get());
+    }
+
+    /**
+     * Ensure that entries beyond the size bound are evicted.
+     */
+    @Test
+    public void bounded() {
+        for (long id = 1; id <= 3; id++) {
+            known.put(id, mocker.getMockedUser(id));
+            lookupUser(id);
+        }
+        assertEquals(1, lookup.getEvictionCount());
+    }
+
+    /**
+     * Ensure that pushes through a linker write through to the cache, replacing a cached absence, even when the linker
+     * resolves through a wrapped lookup.
+     */
+    @Test
+    public void writeThrough() {
+        assertNull(lookupUser(testDiscordId));
+        LocalPlayerUserLinker linker = new LocalPlayerUserLinker(new BidiMapLinkStorage(new DualTreeBidiMap<>()),
+            Dispatcher.lookup(Dispatcher.CALLER, lookup), lookup);
+        TestMinecraftPlayer player = new TestMinecraftPlayer("Scarsz", testMCId);
+        User user = mocker.getMockedUser(testDiscordId);
+        linker.push(player, user);
+        AtomicReference<MinecraftPlayer> translated = new AtomicReference<>();
+        linker.translate(user, callback(translated));
+        assertSame(player, translated.get());
+        assertSame(user, lookupUser(testDiscordId));
+        assertEquals(1, requests.get());
+        linker.remove(player, user);
+        assertNull(lookupUser(testDiscordId));
+        assertEquals(2, requests.get());
+    }
+
+    private User lookupUser(final long id) {
+        AtomicReference<User> result = new AtomicReference<>();
+        lookup.lookup(id, callback(result));
+        return result.get();
+    }
+
+    private <T> FutureCallback<T> callback(final AtomicReference<T> result) {
+        return new FutureCallback<T>() {
+            @Override
+            public void onSuccess(final @Nullable T value) {
+                result.set(value);
+            }
+
+            @Override
+            public void onFailure(final @Nonnull Throwable t) {
+                fail(t.getMessage());
+            }
+        };
+    }
+
+    private CacheBuilder<Object, Object> builder(final long size, final long expiry, final TimeUnit unit) {
+        return CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(expiry, unit).recordStats()
+            .ticker(new Ticker() {
+                @Override
+                public long read() {
+                    return nanos.get();
+                }
+            });
+    }
+
+}
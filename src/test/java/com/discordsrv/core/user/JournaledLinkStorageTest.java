@@ -0,0 +1,121 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link JournaledLinkStorage} class.
+ */
+public class JournaledLinkStorageTest {
+
+    private final String player = "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8";
+    private final long user = 1234;
+
+    /** The directory to keep the storage within. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Ensure that links survive reopening the storage.
+     */
+    @Test
+    public void reopen() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (JournaledLinkStorage storage = JournaledLinkStorage.open(directory)) {
+            storage.put(player, user);
+            storage.put("1234", user + 1);
+            storage.put("5678", user + 2);
+            storage.remove("5678", user + 2);
+        }
+        try (JournaledLinkStorage storage = JournaledLinkStorage.open(directory)) {
+            assertEquals(2, storage.size());
+            assertEquals(user, storage.getUser(player));
+            assertEquals("1234", storage.getPlayer(user + 1));
+            assertNull(storage.getPlayer(user + 2));
+        }
+    }
+
+    /**
+     * Ensure that a record torn by a crash is discarded without losing the records before it.
+     */
+    @Test
+    public void tornRecord() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (JournaledLinkStorage storage = JournaledLinkStorage.open(directory)) {
+            storage.put(player, user);
+        }
+        Files.write(directory.resolve("links.0.log"), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        try (JournaledLinkStorage storage = JournaledLinkStorage.open(directory)) {
+            assertEquals(user, storage.getUser(player));
+            storage.put("1234", user + 1);
+        }
+        try (JournaledLinkStorage storage = JournaledLinkStorage.open(directory)) {
+            assertEquals(2, storage.size());
+            assertEquals("1234", storage.getPlayer(user + 1));
+        }
+    }
+
+    /**
+     * Ensure that the log is compacted into a snapshot, and that both are replayed in order.
+     */
+    @Test
+    public void compaction() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        String[] players = new String[1000];
+        try (JournaledLinkStorage storage = JournaledLinkStorage.open(directory, 4096)) {
+            for (int i = 0; i < players.length; i++) {
+                players[i] = UUID.randomUUID().toString();
+                storage.put(players[i], i + 1);
+                if (i % 100 == 0) {
+                    storage.flush();
+                }
+            }
+            storage.remove(players[0], 1);
+        }
+        assertFalse(Files.exists(directory.resolve("links.0.log")));
+        try (JournaledLinkStorage storage = JournaledLinkStorage.open(directory, 4096)) {
+            assertEquals(players.length - 1, storage.size());
+            assertEquals(LinkStorage.NO_USER, storage.getUser(players[0]));
+            for (int i = 1; i < players.length; i++) {
+                assertEquals(i + 1, storage.getUser(players[i]));
+            }
+        }
+    }
+
+    /**
+     * Ensure that a closed storage refuses changes.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void closed() throws IOException {
+        JournaledLinkStorage storage = JournaledLinkStorage.open(folder.getRoot().toPath());
+        storage.close();
+        storage.put(player, user);
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link LinkSnapshot} class.
+ */
+public class LinkSnapshotTest {
+
+    /** The directory to write snapshots within. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Ensure that every link of a storage may be looked up in both directions once written and mapped.
+     */
+    @Test
+    public void roundTrip() throws IOException {
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        Map<String, Long> links = new HashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            String player = new UUID(random.nextLong(), random.nextLong()).toString();
+            index.put(player, random.nextLong() | 1);
+        }
+        index.put("1234", 42);
+        index.forEach(links::put);
+        Path file = folder.getRoot().toPath().resolve("links.snapshot");
+        LinkSnapshot.write(file, index);
+        LinkSnapshot snapshot = LinkSnapshot.open(file);
+        assertEquals(links.size(), snapshot.size());
+        for (Map.Entry<String, Long> entry : links.entrySet()) {
+            assertEquals((long) entry.getValue(), snapshot.getUser(entry.getKey()));
+            assertEquals(entry.getKey(), snapshot.getPlayer(entry.getValue()));
+        }
+        assertEquals(LinkStorage.NO_USER, snapshot.getUser(UUID.randomUUID().toString()));
+        assertNull(snapshot.getPlayer(43));
+        Map<String, Long> visited = new HashMap<>();
+        snapshot.forEach(visited::put);
+        assertEquals(links, visited);
+    }
+
+    /**
+     * Ensure that an empty snapshot may be written and mapped.
+     */
+    @Test
+    public void empty() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("links.snapshot");
+        LinkSnapshot.write(file, new PrimitiveLinkIndex());
+        assertEquals(0, LinkSnapshot.open(file).size());
+        assertEquals(0, LinkSnapshot.empty().size());
+        assertNull(LinkSnapshot.empty().getPlayer(1));
+    }
+
+    /**
+     * Ensure that files which are not snapshots are refused.
+     */
+    @Test(expected = IOException.class)
+    public void unrecognized() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("links.snapshot");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        LinkSnapshot.open(file);
+    }
+
+}
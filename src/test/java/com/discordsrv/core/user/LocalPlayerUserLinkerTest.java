@@ -19,6 +19,7 @@ package com.discordsrv.core.user;
 
 import com.discordsrv.core.api.user.MinecraftPlayer;
 import com.discordsrv.core.test.mocker.Mocker;
+import com.discordsrv.core.test.user.CallbackMinecraftPlayer;
 import com.discordsrv.core.test.user.TestMinecraftPlayer;
 import com.discordsrv.core.test.user.TestPlayerUserLookup;
 import com.google.common.util.concurrent.FutureCallback;
@@ -30,6 +31,7 @@ import org.junit.BeforeClass;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 
+import static com.discordsrv.core.test.Callbacks.get;
 import static org.junit.Assert.*;
 
 @FixMethodOrder
@@ -89,6 +91,32 @@ public class LocalPlayerUserLinkerTest {
         });
     }
 
+    /**
+     * Ensure that links are pushed, translated and removed alike whether players answer directly or through callbacks.
+     */
+    @Test
+    public void directAndCallbackPlayers() {
+        LocalPlayerUserLinker local = new LocalPlayerUserLinker(new DualTreeBidiMap<>(), new TestPlayerUserLookup());
+        MinecraftPlayer direct = new TestMinecraftPlayer("Test", "direct");
+        MinecraftPlayer callback = new CallbackMinecraftPlayer("Test", "callback");
+        local.push(direct, mocker.getMockedUser(1));
+        local.push(callback, mocker.getMockedUser(2));
+        String[] identifiers = {"direct", "callback"};
+        for (int i = 0; i < identifiers.length; i++) {
+            for (MinecraftPlayer asked : new MinecraftPlayer[]{new TestMinecraftPlayer("Test", identifiers[i]),
+                new CallbackMinecraftPlayer("Test", identifiers[i])}) {
+                User user = get(result -> local.translate(asked, result));
+                assertEquals(i + 1, user.getIdLong());
+            }
+        }
+        local.remove(direct, mocker.getMockedUser(1));
+        local.remove(callback, mocker.getMockedUser(2));
+        User unlinked = get(result -> local.translate(direct, result));
+        assertNull(unlinked);
+        unlinked = get(result -> local.translate(callback, result));
+        assertNull(unlinked);
+    }
+
     @Test
     public void stage4Remove() {
         linker.remove(new TestMinecraftPlayer("Test", testMCId), mocker.getMockedUser(testDiscordId));
@@ -0,0 +1,142 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link PrimitiveLinkIndex} class.
+ */
+public class PrimitiveLinkIndexTest {
+
+    private final String player = "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8";
+    private final long user = 1234;
+
+    /**
+     * Ensure that links may be found in both directions.
+     */
+    @Test
+    public void put() {
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        index.put(player, user);
+        assertEquals(user, index.getUser(player));
+        assertEquals(player, index.getPlayer(user));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Ensure that a new link replaces the previous links of both the player and the user.
+     */
+    @Test
+    public void replace() {
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        String other = UUID.randomUUID().toString();
+        index.put(player, user);
+        index.put(other, user + 1);
+        index.put(player, user + 1);
+        assertEquals(user + 1, index.getUser(player));
+        assertEquals(LinkStorage.NO_USER, index.getUser(other));
+        assertNull(index.getPlayer(user));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Ensure that removal unlinks both the player and the user.
+     */
+    @Test
+    public void remove() {
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        String other = UUID.randomUUID().toString();
+        index.put(player, user);
+        index.put(other, user + 1);
+        index.remove(player, user + 1);
+        assertEquals(LinkStorage.NO_USER, index.getUser(player));
+        assertEquals(LinkStorage.NO_USER, index.getUser(other));
+        assertNull(index.getPlayer(user));
+        assertNull(index.getPlayer(user + 1));
+        assertEquals(0, index.size());
+    }
+
+    /**
+     * Ensure that identifiers which are not canonical UUIDs are still stored.
+     */
+    @Test
+    public void unpackable() {
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        index.put("1234", user);
+        index.put(player.toUpperCase(), user + 1);
+        assertEquals(user, index.getUser("1234"));
+        assertEquals("1234", index.getPlayer(user));
+        assertEquals(player.toUpperCase(), index.getPlayer(user + 1));
+        assertEquals(LinkStorage.NO_USER, index.getUser(player));
+        index.put(player, user);
+        assertEquals(LinkStorage.NO_USER, index.getUser("1234"));
+        assertEquals(player, index.getPlayer(user));
+    }
+
+    /**
+     * Ensure that the absent user may not be linked.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void putAbsent() {
+        new PrimitiveLinkIndex().put(player, LinkStorage.NO_USER);
+    }
+
+    /**
+     * Ensure that the index agrees with a reference map through growth and many removals.
+     */
+    @Test
+    public void randomized() {
+        PrimitiveLinkIndex index = new PrimitiveLinkIndex();
+        Map<String, Long> reference = new HashMap<>();
+        Random random = new Random(0);
+        String[] players = new String[4096];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+        for (int i = 0; i < 100_000; i++) {
+            String player = players[random.nextInt(players.length)];
+            long user = 1 + random.nextInt(players.length);
+            if (random.nextInt(3) == 0) {
+                index.remove(player, user);
+                reference.remove(player);
+                reference.values().remove(user);
+            } else {
+                index.put(player, user);
+                reference.values().remove(user);
+                reference.put(player, user);
+            }
+        }
+        assertEquals(reference.size(), index.size());
+        for (String player : players) {
+            Long expected = reference.get(player);
+            assertEquals(expected == null ? LinkStorage.NO_USER : expected, index.getUser(player));
+        }
+        for (Map.Entry<String, Long> entry : reference.entrySet()) {
+            assertEquals(entry.getKey(), index.getPlayer(entry.getValue()));
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import com.discordsrv.core.test.mocker.Mocker;
+import com.discordsrv.core.test.user.TestMinecraftPlayer;
+import com.discordsrv.core.test.user.TestPlayerUserLookup;
+import com.discordsrv.core.test.user.TestReplicationNetwork;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link ReplicatedLinkStorage} class.
+ */
+public class ReplicatedLinkStorageTest {
+
+    private final TestReplicationNetwork network = new TestReplicationNetwork();
+
+    /**
+     * Ensure that pushes and removals made through a linker on one node reach every other node.
+     */
+    @Test
+    public void propagated() {
+        List<ReplicatedLinkStorage> nodes = nodes(3);
+        LocalPlayerUserLinker linker = new LocalPlayerUserLinker(nodes.get(0), new TestPlayerUserLookup());
+        Mocker mocker = new Mocker();
+        linker.push(new TestMinecraftPlayer("Steve", "steve"), mocker.getMockedUser(1));
+        linker.push(new TestMinecraftPlayer("Alex", "alex"), mocker.getMockedUser(2));
+        network.deliver();
+        for (ReplicatedLinkStorage node : nodes) {
+            assertEquals(1, node.getUser("steve"));
+            assertEquals("alex", node.getPlayer(2));
+        }
+        new LocalPlayerUserLinker(nodes.get(2), new TestPlayerUserLookup())
+            .remove(new TestMinecraftPlayer("Steve", "steve"), mocker.getMockedUser(1));
+        nodes.get(1).put("alex", 3);
+        network.deliver();
+        for (ReplicatedLinkStorage node : nodes) {
+            assertEquals(LinkStorage.NO_USER, node.getUser("steve"));
+            assertEquals(3, node.getUser("alex"));
+            assertNull(node.getPlayer(2));
+            assertEquals(1, node.size());
+        }
+    }
+
+    /**
+     * Ensure that concurrent, conflicting changes on many nodes converge on the same links, whichever order and however
+     * often the messages arrive.
+     */
+    @Test
+    public void converges() {
+        for (int seed = 0; seed < 20; seed++) {
+            TestReplicationNetwork shuffled = new TestReplicationNetwork();
+            List<ReplicatedLinkStorage> nodes = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                nodes.add(shuffled.add(i, new StripedLinkStorage()));
+            }
+            Random random = new Random(seed);
+            for (int op = 0; op < 200; op++) {
+                ReplicatedLinkStorage node = nodes.get(random.nextInt(nodes.size()));
+                String player = "player-" + random.nextInt(8);
+                long user = 1 + random.nextInt(8);
+                if (random.nextInt(4) == 0) {
+                    node.remove(player, user);
+                } else {
+                    node.put(player, user);
+                }
+                if (random.nextInt(10) == 0) {
+                    shuffled.shuffle(random, 0.2);
+                }
+            }
+            shuffled.shuffle(random, 0.2);
+            assertConverged(nodes);
+        }
+    }
+
+    /**
+     * Ensure that a node joining late, with links of its own, and a node which missed messages both catch up.
+     */
+    @Test
+    public void resync() {
+        List<ReplicatedLinkStorage> nodes = nodes(2);
+        nodes.get(0).put("steve", 1);
+        nodes.get(1).put("alex", 2);
+        network.deliver();
+
+        nodes.get(0).put("herobrine", 3);
+        nodes.get(0).remove("alex", 2);
+        network.drop();
+        StripedLinkStorage offline = new StripedLinkStorage();
+        offline.put("notch", 4);
+        ReplicatedLinkStorage late = network.add(2, offline);
+        nodes.add(late);
+        assertEquals(LinkStorage.NO_USER, late.getUser("steve"));
+
+        late.join();
+        network.deliver();
+        nodes.get(1).join();
+        network.deliver();
+        assertConverged(nodes);
+        assertEquals(1, late.getUser("steve"));
+        assertEquals(4, nodes.get(0).getUser("notch"));
+        assertEquals(3, nodes.get(1).getUser("herobrine"));
+        assertNull(nodes.get(1).getPlayer(2));
+        assertEquals(0, network.getPending());
+    }
+
+    private List<ReplicatedLinkStorage> nodes(final int count) {
+        List<ReplicatedLinkStorage> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(network.add(i, new StripedLinkStorage()));
+        }
+        return nodes;
+    }
+
+    private static void assertConverged(final List<ReplicatedLinkStorage> nodes) {
+        Map<String, Long> expected = links(nodes.get(0));
+        assertEquals("Users are linked to one player each", expected.size(), new HashSet<>(expected.values()).size());
+        for (ReplicatedLinkStorage node : nodes) {
+            assertEquals(expected, links(node));
+        }
+    }
+
+    private static Map<String, Long> links(final LinkStorage storage) {
+        Map<String, Long> links = new TreeMap<>();
+        storage.forEach(links::put);
+        return links;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link SnapshotLinkStorage} class.
+ */
+public class SnapshotLinkStorageTest {
+
+    /** The directory to write snapshots within. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Ensure that changes on top of a snapshot, including a compaction halfway through, agree with a reference index.
+     */
+    @Test
+    public void randomized() throws IOException {
+        Random random = new Random(0);
+        String[] players = new String[512];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong()).toString();
+        }
+        PrimitiveLinkIndex reference = new PrimitiveLinkIndex();
+        mutate(reference, null, players, new Random(1), 2000);
+        Path file = folder.getRoot().toPath().resolve("links.snapshot");
+        LinkSnapshot.write(file, reference);
+        SnapshotLinkStorage storage = new SnapshotLinkStorage(LinkSnapshot.open(file));
+        Random mutations = new Random(2);
+        mutate(reference, storage, players, mutations, 2000);
+        LinkStorage view = storage.beginCompaction();
+        mutate(reference, storage, players, mutations, 2000);
+        Path compacted = folder.getRoot().toPath().resolve("links.compacted");
+        LinkSnapshot.write(compacted, view);
+        storage.finishCompaction(LinkSnapshot.open(compacted));
+        mutate(reference, storage, players, mutations, 2000);
+        assertEquals(reference.size(), storage.size());
+        for (String player : players) {
+            long user = reference.getUser(player);
+            assertEquals(user, storage.getUser(player));
+            if (user != LinkStorage.NO_USER) {
+                assertEquals(player, storage.getPlayer(user));
+            }
+        }
+        for (long user = 1; user <= players.length; user++) {
+            assertEquals(reference.getPlayer(user), storage.getPlayer(user));
+        }
+        Map<String, Long> expected = new HashMap<>();
+        reference.forEach(expected::put);
+        Map<String, Long> visited = new HashMap<>();
+        storage.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    /**
+     * Ensure that the view handed out for compaction refuses changes.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyView() {
+        new SnapshotLinkStorage(LinkSnapshot.empty()).beginCompaction().put("1234", 1);
+    }
+
+    private static void mutate(final LinkStorage reference, final LinkStorage storage, final String[] players,
+                               final Random random, final int count) {
+        for (int i = 0; i < count; i++) {
+            String player = players[random.nextInt(players.length)];
+            long user = 1 + random.nextInt(players.length);
+            boolean remove = random.nextInt(3) == 0;
+            for (LinkStorage target : new LinkStorage[]{reference, storage}) {
+                if (target == null) {
+                    continue;
+                }
+                if (remove) {
+                    target.remove(player, user);
+                } else {
+                    target.put(player, user);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * DiscordSRV2-Core: A library for generic Minecraft plugin development for all DiscordSRV2 projects
+ * Copyright (C) 2018 DiscordSRV
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.discordsrv.core.user;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link StripedLinkStorage} class.
+ */
+public class StripedLinkStorageTest {
+
+    private final String player = "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8";
+    private final long user = 1234;
+
+    /**
+     * Ensure that a new link replaces the previous links of both the player and the user.
+     */
+    @Test
+    public void replace() {
+        StripedLinkStorage storage = new StripedLinkStorage();
+        String other = UUID.randomUUID().toString();
+        storage.put(player, user);
+        storage.put(other, user + 1);
+        storage.put(player, user + 1);
+        assertEquals(user + 1, storage.getUser(player));
+        assertEquals(player, storage.getPlayer(user + 1));
+        assertEquals(LinkStorage.NO_USER, storage.getUser(other));
+        assertNull(storage.getPlayer(user));
+        assertEquals(1, storage.size());
+    }
+
+    /**
+     * Ensure that removal unlinks both the player and the user, including identifiers which are not canonical UUIDs.
+     */
+    @Test
+    public void remove() {
+        StripedLinkStorage storage = new StripedLinkStorage(1);
+        storage.put(player, user);
+        storage.put("1234", user + 1);
+        storage.remove(player, user + 1);
+        assertEquals(LinkStorage.NO_USER, storage.getUser(player));
+        assertEquals(LinkStorage.NO_USER, storage.getUser("1234"));
+        assertNull(storage.getPlayer(user));
+        assertNull(storage.getPlayer(user + 1));
+        assertEquals(0, storage.size());
+    }
+
+    /**
+     * Ensure that both directions stay consistent while many threads race to link the same few players and users.
+     *
+     * @throws Exception
+     *         If a worker failed.
+     */
+    @Test
+    public void racing() throws Exception {
+        StripedLinkStorage storage = new StripedLinkStorage(4);
+        String[] players = new String[32];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = i % 4 == 0 ? "player-" + i : UUID.randomUUID().toString();
+        }
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20_000; i++) {
+                    String player = players[random.nextInt(players.length)];
+                    long user = 1 + random.nextInt(players.length);
+                    if (random.nextInt(4) == 0) {
+                        storage.remove(player, user);
+                    } else {
+                        storage.put(player, user);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+        Map<String, Long> links = new HashMap<>();
+        storage.forEach(links::put);
+        assertEquals(links.size(), storage.size());
+        for (String player : players) {
+            long user = storage.getUser(player);
+            assertEquals(links.getOrDefault(player, LinkStorage.NO_USER).longValue(), user);
+            if (user != LinkStorage.NO_USER) {
+                assertEquals(player, storage.getPlayer(user));
+            }
+        }
+        for (long user = 1; user <= players.length; user++) {
+            String player = storage.getPlayer(user);
+            if (player != null) {
+                assertEquals(user, storage.getUser(player));
+            }
+        }
+    }
+
+}
@@ -18,36 +18,59 @@
 package com.discordsrv.core.user;
 
 import com.discordsrv.core.api.user.MinecraftPlayer;
+import com.discordsrv.core.test.mocker.Mocker;
 import com.discordsrv.core.test.user.TestMinecraftPlayer;
 import com.discordsrv.core.test.user.TestPlayerUserLookup;
+import com.discordsrv.core.test.user.TestUplinkTransport;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.FutureCallback;
 import net.dv8tion.jda.core.entities.User;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.junit.Ignore;
+import org.junit.Before;
 import org.junit.Test;
 
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.fail;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
 
 /**
  * Tests for the {@link UplinkedPlayerUserLinker} class.
- * <p>
- * TODO Finish link.scarsz.me first
  */
 public class UplinkedPlayerUserLinkerTest {
 
+    private final String testMCId = "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8";
+    private final long testDiscordId = 1234;
+    private final Mocker mocker = new Mocker();
+    private final AtomicLong nanos = new AtomicLong();
+    private TestUplinkTransport transport;
+    private UplinkedPlayerUserLinker linker;
+
+    @Before
+    public void setup() {
+        transport = new TestUplinkTransport();
+        transport.link(testMCId, testDiscordId);
+        linker = new UplinkedPlayerUserLinker(transport, new TestPlayerUserLookup(),
+            CacheBuilder.newBuilder().maximumSize(16).expireAfterWrite(1, TimeUnit.MINUTES).ticker(new Ticker() {
+                @Override
+                public long read() {
+                    return nanos.get();
+                }
+            }));
+    }
+
     /**
      * Tests the player -> user translation.
      */
-    @Ignore // TODO remove
     @Test
     public void translate() {
-        UplinkedPlayerUserLinker linker = new UplinkedPlayerUserLinker(new TestPlayerUserLookup());
-        MinecraftPlayer player = new TestMinecraftPlayer("Scarsz", "d7c1db4d-e57b-488b-b8bc-4462fe49a3e8");
-        linker.translate(player, new FutureCallback<User>() {
+        linker.translate(new TestMinecraftPlayer("Scarsz", testMCId), new FutureCallback<User>() {
             @Override
             public void onSuccess(@Nullable final User result) {
                 assertNotNull(result);
+                assertEquals(testDiscordId, result.getIdLong());
             }
 
             @Override
@@ -60,9 +83,83 @@ public class UplinkedPlayerUserLinkerTest {
     /**
      * Tests the user -> player translation.
      */
-    @Ignore // TODO remove
     @Test
     public void translate1() {
+        linker.translate(mocker.getMockedUser(testDiscordId), new FutureCallback<MinecraftPlayer>() {
+            @Override
+            public void onSuccess(@Nullable final MinecraftPlayer result) {
+                assertNotNull(result);
+                result.getUniqueIdentifier(ident -> assertEquals(testMCId, ident));
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                fail();
+            }
+        });
+    }
+
+    /**
+     * Ensure that a resolved link is served from the cache in both directions until it expires.
+     */
+    @Test
+    public void cached() {
+        translate();
+        translate();
+        translate1();
+        assertEquals(1, transport.getRequests());
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        translate1();
+        assertEquals(2, transport.getRequests());
+    }
+
+    /**
+     * Ensure that the absence of a link is cached as well.
+     */
+    @Test
+    public void cachedAbsence() {
+        MinecraftPlayer player = new TestMinecraftPlayer("Test", "1234");
+        for (int i = 0; i < 2; i++) {
+            linker.translate(player, new FutureCallback<User>() {
+                @Override
+                public void onSuccess(@Nullable final User result) {
+                    assertNull(result);
+                }
+
+                @Override
+                public void onFailure(final Throwable t) {
+                    fail();
+                }
+            });
+        }
+        assertEquals(1, transport.getRequests());
+    }
+
+    /**
+     * Ensure that concurrent misses for the same player share a single upstream request.
+     */
+    @Test
+    public void coalesced() {
+        AtomicInteger answered = new AtomicInteger();
+        transport.hold();
+        for (int i = 0; i < 10; i++) {
+            linker.translate(new TestMinecraftPlayer("Scarsz", testMCId), new FutureCallback<User>() {
+                @Override
+                public void onSuccess(@Nullable final User result) {
+                    assertNotNull(result);
+                    answered.incrementAndGet();
+                }
+
+                @Override
+                public void onFailure(final Throwable t) {
+                    fail();
+                }
+            });
+        }
+        assertEquals(0, answered.get());
+        transport.release();
+        assertEquals(10, answered.get());
+        assertEquals(1, transport.getRequests());
     }
 
 }